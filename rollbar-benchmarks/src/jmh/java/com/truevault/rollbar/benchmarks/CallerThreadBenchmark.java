@@ -0,0 +1,78 @@
+package com.truevault.rollbar.benchmarks;
+
+import com.truevault.rollbar.DefaultRollbarReporter;
+import com.truevault.rollbar.OverflowPolicy;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * How long a call to {@link DefaultRollbarReporter#error(Throwable)} takes on the calling thread, depending on where
+ * the item is built.
+ *
+ * <ul>
+ * <li>{@code direct}: no dispatch queue, everything happens on the caller.</li>
+ * <li>{@code queued}: the item is built on the caller, then queued for sending.</li>
+ * <li>{@code deferred}: only a snapshot is queued; the item is built on a dispatch thread.</li>
+ * </ul>
+ *
+ * Each invocation makes {@value #BATCH} reports, and the queue is drained between invocations, outside the measured
+ * time. So no report is ever dropped, which is much cheaper than queueing one: a caller in a tight loop would otherwise
+ * fill the queue, since the dispatch thread can't keep up with it. On a single CPU, the dispatch thread still takes
+ * time away from the caller while the batch is being made.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallerThreadBenchmark {
+    static final int BATCH = 256;
+
+    @Param({"direct", "queued", "deferred"})
+    public String mode;
+
+    private DefaultRollbarReporter reporter;
+    private Exception exception;
+
+    @Setup
+    public void setUp() {
+        DefaultRollbarReporter.Builder builder =
+                new DefaultRollbarReporter.Builder(new StubItemClient(), "benchmark", "token");
+        if (!mode.equals("direct")) {
+            builder.dispatchQueue(BATCH, OverflowPolicy.DROP_NEWEST)
+                    .deferItemConstruction(mode.equals("deferred"));
+        }
+        reporter = builder.build();
+        exception = Traces.nested(20, new IllegalStateException("benchmark"));
+    }
+
+    @Setup(Level.Invocation)
+    public void drain() {
+        if (!reporter.flush(Duration.ofSeconds(10)).isComplete()) {
+            throw new IllegalStateException("The dispatch queue didn't drain");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void error(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            blackhole.consume(reporter.error(exception));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.truevault.rollbar.benchmarks;
+
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.Level;
+import com.truevault.rollbar.payload.data.Person;
+import com.truevault.rollbar.payload.data.Request;
+import com.truevault.rollbar.payload.data.Server;
+import com.truevault.rollbar.payload.data.body.Body;
+import com.truevault.rollbar.utilities.Json;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonOutputPool;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A complete, typical item: an exception 50 frames deep with one cause, a request with 20 headers, a person, a server,
+ * and 10 entries of custom data. {@code build} measures {@link Data.Builder} with the parts already made, and {@code
+ * serialize} turns the finished item into the bytes that are sent, with Jackson. {@code write} does the same with the
+ * generated writers, as the HTTP clients do, and {@code writePooled} writes into a pooled buffer, as {@code
+ * AsyncHttpItemClient} does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemSerializationBenchmark {
+    private Body body;
+    private Request request;
+    private Person person;
+    private Server server;
+    private Map<String, Object> custom;
+    private Instant timestamp;
+    private Item item;
+    private final JsonOutputPool buffers = new JsonOutputPool();
+
+    @Setup
+    public void setUp() {
+        body = Body.fromThrowable(Traces.chain(1, 50), "Could not load things");
+        request = Payloads.request(20);
+        person = new Person("12345", "someone", "someone@example.com");
+        server = new Server("web-1", "/srv/app", "main", "0123456789abcdef");
+        custom = Payloads.custom(10);
+        timestamp = Instant.now();
+        item = build();
+    }
+
+    @Benchmark
+    public Item build() {
+        Data data = new Data.Builder(body, "production")
+                .level(Level.ERROR)
+                .timestamp(timestamp)
+                .platform("Linux JVM")
+                .language("Java")
+                .request(request)
+                .person(person)
+                .server(server)
+                .custom(custom)
+                .build();
+        return new Item("token", data);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return Json.getObjectWriter().writeValueAsBytes(item);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return JsonOutput.toJsonBytes(item);
+    }
+
+    @Benchmark
+    public int writePooled() {
+        JsonOutput out = buffers.acquire();
+        item.writeJson(out);
+        int size = out.size();
+        buffers.release(out);
+        return size;
+    }
+}
@@ -0,0 +1,51 @@
+package com.truevault.rollbar.benchmarks;
+
+import com.truevault.rollbar.payload.data.body.Body;
+import com.truevault.rollbar.utilities.Json;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a message {@link Body} with custom data, which copies every entry into the message through {@code
+ * Extensible.put}, and serializing it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageBenchmark {
+    @Param({"10", "1000"})
+    public int entries;
+
+    private Map<String, Object> custom;
+    private Body body;
+
+    @Setup
+    public void setUp() {
+        custom = Payloads.custom(entries);
+        body = Body.fromString("Something happened", custom);
+    }
+
+    @Benchmark
+    public Body fromString() {
+        return Body.fromString("Something happened", custom);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return Json.getObjectWriter().writeValueAsBytes(body);
+    }
+}
@@ -0,0 +1,43 @@
+package com.truevault.rollbar.benchmarks;
+
+import com.truevault.rollbar.payload.data.Request;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Helpers to create payload parts of a given size.
+ */
+final class Payloads {
+    private Payloads() {
+    }
+
+    /**
+     * @param entries the number of entries
+     * @return a map of short strings and numbers, like typical custom data
+     */
+    static Map<String, Object> custom(int entries) {
+        Map<String, Object> custom = new LinkedHashMap<>();
+        for (int i = 0; i < entries; i++) {
+            custom.put("key-" + i, i % 2 == 0 ? "value " + i : (Object) (long) i);
+        }
+        return custom;
+    }
+
+    /**
+     * @param headers the number of headers
+     * @return a request with the given number of headers, and a handful of parameters
+     */
+    static Request request(int headers) {
+        Map<String, String> headerMap = new LinkedHashMap<>();
+        headerMap.put("Accept", "application/json");
+        headerMap.put("User-Agent", "Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/115.0");
+        for (int i = headerMap.size(); i < headers; i++) {
+            headerMap.put("X-Header-" + i, "header value number " + i);
+        }
+        Map<String, String> get = new LinkedHashMap<>();
+        get.put("page", "3");
+        get.put("sort", "desc");
+        return new Request("https://example.com/things?page=3&sort=desc", "GET", headerMap, null, get,
+                "page=3&sort=desc", null, null, "203.0.113.7");
+    }
+}
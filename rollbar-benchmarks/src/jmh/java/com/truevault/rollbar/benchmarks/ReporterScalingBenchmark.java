@@ -0,0 +1,124 @@
+package com.truevault.rollbar.benchmarks;
+
+import com.truevault.rollbar.DefaultRollbarReporter;
+import com.truevault.rollbar.OverflowPolicy;
+import com.truevault.rollbar.http.HttpItemClient;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.http.ahc.AsyncHttpItemClient;
+import com.truevault.rollbar.http.blocking.BlockingHttpItemClient;
+import com.truevault.rollbar.testkit.FakeRollbarServer;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One {@link DefaultRollbarReporter} shared by all benchmark threads, each reporting an exception. Run it with
+ * increasing thread counts (see {@link ScalingHarness}) to find contention.
+ *
+ * {@link #report} measures what callers pay: the time until {@code error()} returns. Each thread waits for its report
+ * from {@value #WINDOW} calls earlier before it makes another one, so that callers can't get arbitrarily far ahead of
+ * the client; those waits are measured too, since they are what limits sustained throughput. {@link #roundTrip}
+ * measures the time until the response arrives.
+ *
+ * <ul>
+ * <li>{@code stub}: the client answers right away, so this measures the reporter alone.</li>
+ * <li>{@code http}: a real {@link AsyncHttpItemClient} sending to a {@link FakeRollbarServer} on the loopback
+ * interface, so this also covers serialization, AsyncHttpClient and its Netty event loop.</li>
+ * <li>{@code blocking}: the same, with a {@link BlockingHttpItemClient}, which sends on a thread per item (a virtual
+ * thread on Java 21 and later) instead of an event loop.</li>
+ * </ul>
+ *
+ * With {@code dispatch=queue}, reports go through a dispatch queue, where callers contend for the queue's lock. It
+ * blocks callers when full rather than dropping reports, since dropping is cheaper than reporting and would flatter
+ * the results.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReporterScalingBenchmark {
+    // reports each thread may have in flight
+    static final int WINDOW = 16;
+
+    @Param({"stub", "http", "blocking"})
+    public String target;
+
+    @Param({"none", "queue"})
+    public String dispatch;
+
+    private FakeRollbarServer server;
+    private DefaultRollbarReporter reporter;
+    private Exception exception;
+
+    @Setup
+    public void setUp() throws IOException {
+        HttpItemClient client;
+        if (target.equals("stub")) {
+            client = new StubItemClient();
+        } else {
+            server = FakeRollbarServer.start();
+            server.setRecordItems(false);
+            client = target.equals("http") ? new AsyncHttpItemClient(server.url())
+                    : new BlockingHttpItemClient.Builder().url(server.url()).build();
+        }
+        DefaultRollbarReporter.Builder builder = new DefaultRollbarReporter.Builder(client, "benchmark", "token");
+        if (dispatch.equals("queue")) {
+            builder.dispatchQueue(1024, OverflowPolicy.BLOCK).blockTimeout(Duration.ofMinutes(1));
+        }
+        reporter = builder.build();
+        exception = Traces.nested(20, new IllegalStateException("benchmark"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        reporter.close(Duration.ofSeconds(5));
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public CompletableFuture<RollbarResponse> report(Caller caller) {
+        CompletableFuture<RollbarResponse> response = reporter.error(exception);
+        caller.add(response);
+        return response;
+    }
+
+    @Benchmark
+    public RollbarResponse roundTrip() {
+        return reporter.error(exception).join();
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        private final CompletableFuture<?>[] window = new CompletableFuture<?>[WINDOW];
+        private int next;
+
+        /**
+         * Add a report to the window, after waiting for the oldest one in it to complete.
+         */
+        void add(CompletableFuture<?> response) {
+            CompletableFuture<?> oldest = window[next];
+            if (oldest != null) {
+                oldest.join();
+            }
+            window[next] = response;
+            next = (next + 1) % window.length;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.truevault.rollbar.benchmarks;
+
+import com.truevault.rollbar.payload.data.Request;
+import com.truevault.rollbar.utilities.Json;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a {@link Request}, which copies its maps, and serializing it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestBenchmark {
+    @Param({"10", "100"})
+    public int headers;
+
+    private Request request;
+
+    @Setup
+    public void setUp() {
+        request = Payloads.request(headers);
+    }
+
+    @Benchmark
+    public Request build() {
+        return new Request(request.url(), request.method(), request.headers(), null, request.getGet(),
+                request.queryString(), null, null, request.userIp());
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return Json.getObjectWriter().writeValueAsBytes(request);
+    }
+}
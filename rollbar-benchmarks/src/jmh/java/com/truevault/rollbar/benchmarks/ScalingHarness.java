@@ -0,0 +1,186 @@
+package com.truevault.rollbar.benchmarks;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Runs {@link ReporterScalingBenchmark} at each thread count, and summarizes throughput, latency percentiles and
+ * allocation per item as CSV, one row per benchmark, target, dispatch and thread count.
+ *
+ * Given a baseline (the CSV of an earlier run, on the same machine), it fails with exit status 1 if throughput in any
+ * row dropped by more than the tolerance, so that concurrency changes can be gated on it.
+ *
+ * Options:
+ * <ul>
+ * <li>{@code --threads 1,2,4}: thread counts to run. Defaults to 1, 2, 4, 8, 16, 32 and 64.</li>
+ * <li>{@code --out scaling.csv}: also write the CSV to a file.</li>
+ * <li>{@code --baseline baseline.csv}: compare throughput against an earlier run.</li>
+ * <li>{@code --tolerance 0.1}: the fraction of baseline throughput that may be lost. Defaults to 0.1.</li>
+ * <li>{@code --quick}: fewer and shorter iterations, for a rough picture.</li>
+ * </ul>
+ */
+public final class ScalingHarness {
+    private static final String HEADER =
+            "benchmark,target,dispatch,threads,ops_per_us,p50_us,p99_us,p999_us,bytes_per_op";
+
+    private ScalingHarness() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        List<Integer> threadCounts = new ArrayList<>();
+        Path out = null;
+        Path baseline = null;
+        double tolerance = 0.1;
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    for (String count : args[++i].split(",")) {
+                        threadCounts.add(Integer.parseInt(count.trim()));
+                    }
+                    break;
+                case "--out":
+                    out = Paths.get(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "--quick":
+                    quick = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (threadCounts.isEmpty()) {
+            for (int threads = 1; threads <= 64; threads *= 2) {
+                threadCounts.add(threads);
+            }
+        }
+
+        // benchmark,target,dispatch -> threads -> row
+        Map<String, Map<Integer, Row>> rows = new LinkedHashMap<>();
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(ReporterScalingBenchmark.class.getName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class);
+            if (quick) {
+                options.warmupIterations(2)
+                        .warmupTime(TimeValue.seconds(1))
+                        .measurementIterations(3)
+                        .measurementTime(TimeValue.seconds(1));
+            }
+
+            for (RunResult result : new Runner(options.build()).run()) {
+                String benchmark = result.getParams().getBenchmark();
+                String key = benchmark.substring(benchmark.lastIndexOf('.') + 1) + ","
+                        + result.getParams().getParam("target") + "," + result.getParams().getParam("dispatch");
+                Row row = rows.computeIfAbsent(key, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(threads, t -> new Row(key, t));
+                if (result.getParams().getMode() == Mode.Throughput) {
+                    row.opsPerMicro = result.getPrimaryResult().getScore();
+                    row.bytesPerOp = secondary(result, "gc.alloc.rate.norm");
+                } else {
+                    row.p50 = result.getPrimaryResult().getStatistics().getPercentile(50);
+                    row.p99 = result.getPrimaryResult().getStatistics().getPercentile(99);
+                    row.p999 = result.getPrimaryResult().getStatistics().getPercentile(99.9);
+                }
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (Map<Integer, Row> byThreads : rows.values()) {
+            for (Row row : byThreads.values()) {
+                lines.add(row.toCsv());
+            }
+        }
+        System.out.println();
+        lines.forEach(System.out::println);
+        if (out != null) {
+            Files.write(out, lines, UTF_8);
+        }
+
+        if (baseline != null && !compare(Files.readAllLines(baseline, UTF_8), rows, tolerance, System.out)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return false if any throughput dropped below the baseline by more than the tolerance
+     */
+    private static boolean compare(List<String> baseline, Map<String, Map<Integer, Row>> rows, double tolerance,
+            PrintStream out) {
+        boolean ok = true;
+        for (String line : baseline) {
+            String[] fields = line.split(",");
+            if (line.equals(HEADER) || fields.length < 5) {
+                continue;
+            }
+            String key = fields[0] + "," + fields[1] + "," + fields[2];
+            Row row = rows.getOrDefault(key, new LinkedHashMap<>()).get(Integer.parseInt(fields[3]));
+            if (row == null) {
+                continue;
+            }
+            double before = Double.parseDouble(fields[4]);
+            double change = (row.opsPerMicro - before) / before;
+            boolean regressed = change < -tolerance;
+            out.printf("%s %s threads=%s: %.4f -> %.4f ops/us (%+.1f%%)%n", regressed ? "REGRESSION" : "ok",
+                    key, fields[3], before, row.opsPerMicro, change * 100);
+            ok &= !regressed;
+        }
+        return ok;
+    }
+
+    private static double secondary(RunResult result, String suffix) {
+        for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+            if (entry.getKey().endsWith(suffix)) {
+                return entry.getValue().getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static final class Row {
+        // benchmark,target,dispatch
+        final String key;
+        final int threads;
+        double opsPerMicro = Double.NaN;
+        double p50 = Double.NaN;
+        double p99 = Double.NaN;
+        double p999 = Double.NaN;
+        double bytesPerOp = Double.NaN;
+
+        Row(String key, int threads) {
+            this.key = key;
+            this.threads = threads;
+        }
+
+        String toCsv() {
+            return String.format("%s,%d,%.4f,%.2f,%.2f,%.2f,%.0f", key, threads, opsPerMicro, p50, p99, p999,
+                    bytesPerOp);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.truevault.rollbar.benchmarks;
+
+import com.truevault.rollbar.http.HttpItemClient;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.Item;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An HttpItemClient that answers immediately without doing any I/O, so benchmarks measure only the reporter.
+ */
+class StubItemClient implements HttpItemClient {
+    private static final RollbarResponse OK = RollbarResponse.ok(new UUID(0, 0));
+
+    @Override
+    public CompletableFuture<RollbarResponse> send(Item item) {
+        return CompletableFuture.completedFuture(OK);
+    }
+}
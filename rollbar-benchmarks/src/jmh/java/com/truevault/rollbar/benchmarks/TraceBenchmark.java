@@ -0,0 +1,61 @@
+package com.truevault.rollbar.benchmarks;
+
+import com.truevault.rollbar.payload.data.body.Body;
+import com.truevault.rollbar.payload.data.body.Frame;
+import com.truevault.rollbar.payload.data.body.FrameCache;
+import com.truevault.rollbar.utilities.Json;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converting a single throwable to a {@link Body}, for a shallow and a deep stack.
+ *
+ * {@code fromThrowable} goes through the shared {@link FrameCache}, so after the first call it measures a cache hit,
+ * which is what a service reporting the same error over and over sees. {@code framesUncached} converts the frames
+ * from scratch every time, which is what each new error costs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TraceBenchmark {
+    @Param({"10", "1000"})
+    public int depth;
+
+    private Exception exception;
+    private Body body;
+
+    @Setup
+    public void setUp() {
+        exception = Traces.nested(depth, new IllegalStateException("benchmark"));
+        body = Body.fromThrowable(exception);
+    }
+
+    @Benchmark
+    public Body fromThrowable() {
+        return Body.fromThrowable(exception);
+    }
+
+    @Benchmark
+    public List<Frame> framesUncached() {
+        return new FrameCache(1).frames(exception);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return Json.getObjectWriter().writeValueAsBytes(body);
+    }
+}
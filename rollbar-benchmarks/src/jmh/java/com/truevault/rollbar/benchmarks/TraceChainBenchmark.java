@@ -0,0 +1,51 @@
+package com.truevault.rollbar.benchmarks;
+
+import com.truevault.rollbar.payload.data.body.Body;
+import com.truevault.rollbar.payload.data.body.TraceChain;
+import com.truevault.rollbar.utilities.Json;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converting a throwable with a chain of causes to a {@link TraceChain}, and serializing it. Each throwable in the
+ * chain has a stack 20 frames deeper than the benchmark's.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TraceChainBenchmark {
+    @Param({"1", "10", "50"})
+    public int causes;
+
+    private Throwable throwable;
+    private Body body;
+
+    @Setup
+    public void setUp() {
+        throwable = Traces.chain(causes, 20);
+        body = Body.fromThrowable(throwable);
+    }
+
+    @Benchmark
+    public TraceChain fromThrowable() {
+        return TraceChain.fromThrowable(throwable);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return Json.getObjectWriter().writeValueAsBytes(body);
+    }
+}
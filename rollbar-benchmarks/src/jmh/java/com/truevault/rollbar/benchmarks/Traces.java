@@ -0,0 +1,44 @@
+package com.truevault.rollbar.benchmarks;
+
+import java.util.function.Supplier;
+
+/**
+ * Helpers to create throwables with realistic stack traces.
+ */
+final class Traces {
+    private Traces() {
+    }
+
+    /**
+     * @param depth the number of extra stack frames the throwable should have beyond the caller's
+     * @param t     the throwable to fill in
+     * @param <T>   the type of throwable
+     * @return {@code t}, with its stack trace filled in {@code depth} frames deeper than the caller
+     */
+    static <T extends Throwable> T nested(int depth, T t) {
+        return recurse(depth, () -> {
+            t.fillInStackTrace();
+            return t;
+        });
+    }
+
+    /**
+     * @param causes the number of causes below the top level throwable
+     * @param depth  the stack depth of each throwable
+     * @return a throwable with a chain of {@code causes} causes
+     */
+    static Throwable chain(int causes, int depth) {
+        Throwable t = nested(depth, new IllegalStateException("root cause"));
+        for (int i = 0; i < causes; i++) {
+            t = nested(depth, new RuntimeException("wrapper " + i, t));
+        }
+        return t;
+    }
+
+    private static <T> T recurse(int depth, Supplier<T> atBottom) {
+        if (depth <= 0) {
+            return atBottom.get();
+        }
+        return recurse(depth - 1, atBottom);
+    }
+}
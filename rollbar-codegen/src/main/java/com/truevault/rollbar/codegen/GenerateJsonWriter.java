@@ -0,0 +1,25 @@
+package com.truevault.rollbar.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate a JSON writer for the annotated class, named after it with a JsonWriter suffix (e.g. ItemJsonWriter for
+ * Item), in the same package. The class must implement {@code com.truevault.rollbar.utilities.JsonWritable}, by
+ * calling the writer:
+ *
+ * <pre>
+ * &#64;Override
+ * public void writeJson(JsonOutput out) {
+ *     ItemJsonWriter.write(this, out);
+ * }
+ * </pre>
+ *
+ * See {@link JsonWriterProcessor} for the Jackson annotations the writer follows.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateJsonWriter {
+}
@@ -0,0 +1,246 @@
+package com.truevault.rollbar.codegen;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the writers for {@link GenerateJsonWriter} classes, from the same Jackson annotations Jackson itself
+ * serializes them by, so that both write the same JSON:
+ *
+ * <ul>
+ * <li>A {@code @JsonValue} method, declared or inherited, is written in place of the object.</li>
+ * <li>Otherwise each declared method with {@code @JsonProperty} (and without {@code @JsonIgnore}) is a field, in
+ * declaration order, except that the ones named in {@code @JsonPropertyOrder} come first. Null values are left out,
+ * like Json's ObjectMapper does.</li>
+ * </ul>
+ *
+ * Fields, inherited properties, getters without {@code @JsonProperty} and other Jackson annotations aren't supported.
+ * Property methods must not be private, since the writer calls them from the same package.
+ */
+@SupportedAnnotationTypes("com.truevault.rollbar.codegen.GenerateJsonWriter")
+public class JsonWriterProcessor extends AbstractProcessor {
+    private static final String JSON_WRITABLE = "com.truevault.rollbar.utilities.JsonWritable";
+    private static final String JSON_OUTPUT = "com.truevault.rollbar.utilities.JsonOutput";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_PROPERTY_ORDER = "com.fasterxml.jackson.annotation.JsonPropertyOrder";
+    private static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+    private static final String JSON_VALUE = "com.fasterxml.jackson.annotation.JsonValue";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateJsonWriter.class)) {
+            if ((element.getKind() != ElementKind.CLASS && element.getKind() != ElementKind.ENUM)
+                    || element.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+                error(element, "@GenerateJsonWriter only applies to top level classes and enums");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            TypeElement writable = processingEnv.getElementUtils().getTypeElement(JSON_WRITABLE);
+            if (writable == null
+                    || !processingEnv.getTypeUtils().isAssignable(type.asType(), writable.asType())) {
+                error(type, type.getSimpleName() + " must implement " + JSON_WRITABLE);
+                continue;
+            }
+            try {
+                generate(type);
+            } catch (InvalidPropertyException e) {
+                error(e.method, e.getMessage());
+            } catch (IOException e) {
+                error(type, "Could not write the JSON writer: " + e);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException, InvalidPropertyException {
+        String packageName = ((PackageElement) type.getEnclosingElement()).getQualifiedName().toString();
+        String typeName = type.getSimpleName().toString();
+        String writerName = typeName + "JsonWriter";
+
+        StringBuilder body = new StringBuilder();
+        ExecutableElement jsonValue = findJsonValue(type);
+        if (jsonValue != null) {
+            checkAccessor(jsonValue);
+            body.append("        out.value(value.").append(jsonValue.getSimpleName()).append("());\n");
+        } else {
+            body.append("        out.beginObject();\n");
+            int i = 0;
+            for (Property property : properties(type)) {
+                writeProperty(body, property, "v" + i++);
+            }
+            body.append("        out.endObject();\n");
+        }
+
+        String qualifiedName = packageName.isEmpty() ? writerName : packageName + "." + writerName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("import " + JSON_OUTPUT + ";\n\n"
+                    + "/**\n"
+                    + " * Writes {@link " + typeName + "} as JSON, like Jackson would.\n"
+                    + " * Generated by " + getClass().getName() + " from its Jackson annotations.\n"
+                    + " */\n"
+                    + "final class " + writerName + " {\n"
+                    + "    private " + writerName + "() {\n"
+                    + "    }\n\n"
+                    + "    static void write(" + typeName + " value, JsonOutput out) {\n"
+                    + body
+                    + "    }\n"
+                    + "}\n");
+        }
+    }
+
+    private static void writeProperty(StringBuilder body, Property property, String variable) {
+        String name = "\"" + property.name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        String call = "value." + property.method.getSimpleName() + "()";
+        TypeMirror type = property.method.getReturnType();
+        switch (type.getKind()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case DOUBLE:
+                body.append("        out.name(").append(name).append(");\n");
+                body.append("        out.value(").append(call).append(");\n");
+                break;
+            case CHAR:
+            case FLOAT:
+                // boxed, so they're written like Jackson writes them rather than widened
+                body.append("        out.name(").append(name).append(");\n");
+                body.append("        out.value((Object) ").append(call).append(");\n");
+                break;
+            default:
+                body.append("        ").append(type).append(" ").append(variable).append(" = ").append(call)
+                        .append(";\n");
+                body.append("        if (").append(variable).append(" != null) {\n");
+                body.append("            out.name(").append(name).append(");\n");
+                body.append("            out.value(").append(variable).append(");\n");
+                body.append("        }\n");
+        }
+    }
+
+    private ExecutableElement findJsonValue(TypeElement type) {
+        for (ExecutableElement method : ElementFilter.methodsIn(
+                processingEnv.getElementUtils().getAllMembers(type))) {
+            if (annotation(method, JSON_VALUE) != null && annotation(method, JSON_IGNORE) == null) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private List<Property> properties(TypeElement type) throws InvalidPropertyException {
+        List<Property> properties = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            AnnotationMirror jsonProperty = annotation(method, JSON_PROPERTY);
+            if (jsonProperty == null || annotation(method, JSON_IGNORE) != null) {
+                continue;
+            }
+            checkAccessor(method);
+            String name = (String) value(jsonProperty);
+            properties.add(new Property(name == null || name.isEmpty() ? method.getSimpleName().toString() : name,
+                    method));
+        }
+
+        AnnotationMirror order = annotation(type, JSON_PROPERTY_ORDER);
+        if (order != null) {
+            List<Property> ordered = new ArrayList<>();
+            @SuppressWarnings("unchecked")
+            List<? extends AnnotationValue> names = (List<? extends AnnotationValue>) value(order);
+            for (AnnotationValue name : names == null ? Collections.<AnnotationValue>emptyList() : names) {
+                for (Property property : properties) {
+                    if (property.name.equals(name.getValue())) {
+                        ordered.add(property);
+                    }
+                }
+            }
+            properties.removeAll(ordered);
+            ordered.addAll(properties);
+            properties = ordered;
+        }
+        return properties;
+    }
+
+    private static void checkAccessor(ExecutableElement method) throws InvalidPropertyException {
+        if (method.getModifiers().contains(Modifier.PRIVATE)) {
+            throw new InvalidPropertyException(method, "JSON property methods must not be private");
+        }
+        if (method.getModifiers().contains(Modifier.STATIC) || !method.getParameters().isEmpty()
+                || method.getReturnType().getKind() == TypeKind.VOID) {
+            throw new InvalidPropertyException(method, "JSON property methods must be instance methods that take "
+                    + "no arguments and return a value");
+        }
+    }
+
+    private static AnnotationMirror annotation(Element element, String annotationType) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(annotationType)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static Object value(AnnotationMirror annotation) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static final class Property {
+        final String name;
+        final ExecutableElement method;
+
+        Property(String name, ExecutableElement method) {
+            this.name = name;
+            this.method = method;
+        }
+    }
+
+    // only ever thrown and caught within the processor, never serialized
+    @SuppressWarnings("serial")
+    private static final class InvalidPropertyException extends Exception {
+        final ExecutableElement method;
+
+        InvalidPropertyException(ExecutableElement method, String message) {
+            super(message);
+            this.method = method;
+        }
+    }
+}
@@ -1,41 +1,62 @@
 package com.truevault.rollbar.http.ahc;
 
-import com.fasterxml.jackson.core.JsonPointer;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.truevault.rollbar.http.ErrorMessageResponseException;
-import com.truevault.rollbar.http.HttpItemClient;
 import com.truevault.rollbar.http.HttpResponseException;
 import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.http.RollbarResponseReader;
+import com.truevault.rollbar.http.SerializedItemClient;
+import com.truevault.rollbar.http.metrics.RollbarMetrics;
 import com.truevault.rollbar.payload.Item;
 import com.truevault.rollbar.utilities.ArgumentNullException;
-import com.truevault.rollbar.utilities.Json;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonOutputPool;
 import com.truevault.rollbar.utilities.Validate;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.asynchttpclient.AsyncCompletionHandler;
+import org.asynchttpclient.AsyncHandler;
 import org.asynchttpclient.AsyncHttpClient;
 import org.asynchttpclient.DefaultAsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
 import org.asynchttpclient.Response;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * A HttpItemClient implementation that uses Async Http Client (https://github.com/AsyncHttpClient/async-http-client).
+ *
+ * Use the {@link Builder} to tune its connection pool and timeouts, and {@link #warmUp(int)} to connect ahead of the
+ * first report.
+ *
+ * By default responses are parsed and their futures completed on AsyncHttpClient's I/O threads, so callbacks attached
+ * to those futures run there too, and hold up other sends while they do. Set a {@link
+ * Builder#completionExecutor(Executor) completion executor} to run them on it instead.
  */
-public class AsyncHttpItemClient implements HttpItemClient {
+public class AsyncHttpItemClient implements SerializedItemClient {
     /**
      * If you don't set the url this is the URL that gets used.
      */
     public static final String DEFAULT_API_ENDPOINT = "https://api.rollbar.com/api/1/item/";
 
-    private static final JsonPointer SUCCESS_UUID_PTR = JsonPointer.compile("/result/uuid");
-    private static final JsonPointer ERROR_MSG_PTR = JsonPointer.compile("/message");
-
     private final String url;
     private final AsyncHttpClient httpClient;
+    // only a client this created is closed with it
+    private final boolean ownsHttpClient;
+    // null rather than NOOP, so that nothing is measured at all
+    @Nullable
+    private final RollbarMetrics metrics;
+    // items are serialized into these, and sent straight from them
+    private final JsonOutputPool buffers = new JsonOutputPool();
+    // where futures are completed, or null to complete them on the I/O thread
+    @Nullable
+    private final Executor completionExecutor;
 
     /**
      * Default constructor, sends to the public api endpoint.
@@ -50,95 +71,493 @@ public class AsyncHttpItemClient implements HttpItemClient {
      * @param url The Rollbar endpoint to POST items to.
      */
     public AsyncHttpItemClient(@Nonnull String url) {
-        this(url, new DefaultAsyncHttpClient());
+        this(url, RollbarMetrics.NOOP);
+    }
+
+    /**
+     * @param url     The Rollbar endpoint to POST items to.
+     * @param metrics Where to report serialization times and payload sizes.
+     */
+    public AsyncHttpItemClient(@Nonnull String url, @Nonnull RollbarMetrics metrics) {
+        this(url, new DefaultAsyncHttpClient(), true, metrics, null);
     }
 
+    /**
+     * @param url        The Rollbar endpoint to POST items to.
+     * @param httpClient The client to send requests with. It is not closed when this is closed.
+     */
     public AsyncHttpItemClient(@Nonnull String url, @Nonnull AsyncHttpClient httpClient) {
+        this(url, httpClient, RollbarMetrics.NOOP);
+    }
+
+    /**
+     * @param url        The Rollbar endpoint to POST items to.
+     * @param httpClient The client to send requests with. It is not closed when this is closed.
+     * @param metrics    Where to report serialization times and payload sizes.
+     */
+    public AsyncHttpItemClient(@Nonnull String url, @Nonnull AsyncHttpClient httpClient,
+            @Nonnull RollbarMetrics metrics) {
+        this(url, httpClient, false, metrics, null);
+    }
+
+    private AsyncHttpItemClient(@Nonnull String url, @Nonnull AsyncHttpClient httpClient, boolean ownsHttpClient,
+            @Nonnull RollbarMetrics metrics, @Nullable Executor completionExecutor) {
         Validate.isNotNull(url, "url");
+        Validate.isNotNull(metrics, "metrics");
         this.url = url;
         this.httpClient = httpClient;
+        this.ownsHttpClient = ownsHttpClient;
+        this.metrics = metrics == RollbarMetrics.NOOP ? null : metrics;
+        this.completionExecutor = completionExecutor;
+    }
+
+    private AsyncHttpItemClient(Builder builder) {
+        this(builder.url, new DefaultAsyncHttpClient(builder.config()), true, builder.metrics,
+                builder.completionExecutor);
     }
 
     /**
      * Sends the json (rollbar payload) to the endpoint configured in the constructor. Returns the (parsed) response
      * from Rollbar.
      *
+     * The item is serialized into a pooled buffer, which is sent without copying it and reused once Rollbar has
+     * responded.
+     *
      * @param item the serialized JSON payload
      * @return the response from Rollbar {@link RollbarResponse}
      */
     @Override
     public CompletableFuture<RollbarResponse> send(Item item) {
-        CompletableFuture<RollbarResponse> cf = new CompletableFuture<>();
-
-        final byte[] bytes;
+        long start = metrics == null ? 0 : System.nanoTime();
+        JsonOutput out = buffers.acquire();
         try {
-            bytes = Json.getObjectWriter().writeValueAsBytes(item);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Could not serialize json", e);
+            item.writeJson(out);
+        } catch (RuntimeException e) {
+            buffers.release(out);
+            throw e;
+        }
+        if (metrics != null) {
+            metrics.recordSerializationNanos(System.nanoTime() - start);
+        }
+
+        return post(out.toByteBuffer(), out);
+    }
+
+    @Override
+    public CompletableFuture<RollbarResponse> sendSerialized(ByteBuffer json) {
+        return post(json, null);
+    }
+
+    /**
+     * @param pooled the buffer json is a view of, to release once the request is done with it, or null if it's not
+     *               pooled
+     */
+    private CompletableFuture<RollbarResponse> post(ByteBuffer json, @Nullable JsonOutput pooled) {
+        if (metrics != null) {
+            metrics.recordPayloadBytes(json.remaining());
         }
+        CompletableFuture<RollbarResponse> cf = new CompletableFuture<>();
 
         httpClient.preparePost(url)
-                .setBody(bytes)
+                .setBody(json)
                 .addHeader("Accept-Charset", "utf-8")
                 .addHeader("Accept", "application/json")
                 .addHeader("Content-Type", "application/json; charset=utf-8")
                 .execute(new AsyncCompletionHandler<Void>() {
+                    // Whether Netty has finished writing the body, and is done with the buffer. A ByteBuffer body is
+                    // written along with the headers, which AHC reports as the headers being written.
+                    private volatile boolean written;
+
                     @Override
-                    public Void onCompleted(Response response) throws IOException, HttpResponseException {
-                        RollbarResponse rollbarResponse =
-                                readResponse(response.getResponseBody(UTF_8), response.getStatusCode());
-                        cf.complete(rollbarResponse);
+                    public AsyncHandler.State onHeadersWritten() {
+                        written = true;
+                        return AsyncHandler.State.CONTINUE;
+                    }
+
+                    @Override
+                    public AsyncHandler.State onContentWritten() {
+                        written = true;
+                        return AsyncHandler.State.CONTINUE;
+                    }
+
+                    @Override
+                    public Void onCompleted(Response response) {
+                        // Rollbar may respond (e.g. with a 413) before reading the whole body, in which case it may
+                        // still be being written, so the buffer is only reused if it's known to be written
+                        if (pooled != null && written) {
+                            buffers.release(pooled);
+                        }
+                        byte[] body = response.getResponseBodyAsBytes();
+                        int status = response.getStatusCode();
+                        complete(() -> {
+                            try {
+                                cf.complete(RollbarResponseReader.read(body, status));
+                            } catch (HttpResponseException | IOException e) {
+                                cf.completeExceptionally(e);
+                            }
+                        });
                         return null;
                     }
 
                     @Override
                     public void onThrowable(Throwable t) {
-                        cf.completeExceptionally(t);
+                        // the buffer isn't reused, since Netty may still be writing it
+                        complete(() -> cf.completeExceptionally(t));
                     }
                 });
 
         return cf;
     }
 
-    @Nonnull
-    static RollbarResponse readResponse(String body, int statusCode) throws HttpResponseException, IOException {
-        JsonNode node = Json.getObjectReader().readTree(body);
+    /**
+     * Runs completion, which parses a response and completes its future, on the completion executor if there is one,
+     * or else right away on this, the I/O thread.
+     */
+    private void complete(Runnable completion) {
+        if (completionExecutor != null) {
+            long start = metrics == null ? 0 : System.nanoTime();
+            try {
+                completionExecutor.execute(() -> timeCompletion(completion, false));
+                if (metrics != null) {
+                    // all the I/O thread spent on this response
+                    metrics.recordCompletionNanos(System.nanoTime() - start, true);
+                }
+                return;
+            } catch (RejectedExecutionException e) {
+                // complete it here instead
+            }
+        }
+        timeCompletion(completion, true);
+    }
 
-        if (statusCode == 200) {
-            String uuidStr = node.at(SUCCESS_UUID_PTR).asText("");
+    private void timeCompletion(Runnable completion, boolean onIoThread) {
+        if (metrics == null) {
+            completion.run();
+            return;
+        }
+        long start = System.nanoTime();
+        completion.run();
+        metrics.recordCompletionNanos(System.nanoTime() - start, onIoThread);
+    }
 
-            if (uuidStr.length() == 32) {
-                return RollbarResponse.ok(parseUUID(uuidStr));
-            }
+    /**
+     * Opens a connection to the endpoint ahead of time, as {@link #warmUp(int)} does.
+     *
+     * @return a future that completes once the connection is open
+     */
+    public CompletableFuture<Void> warmUp() {
+        return warmUp(1);
+    }
 
-            throw new HttpResponseException(statusCode,
-                    "Could not parse successful response: <" + body + ">");
+    /**
+     * Opens connections to the endpoint ahead of time, so that the first reports don't wait for a DNS lookup and TCP
+     * and TLS handshakes. The connections are opened with concurrent GET requests, which don't report anything, and
+     * stay in the pool for sends until they've been idle for the pooled connection idle timeout. Idle connections that
+     * are already in the pool serve some of the requests, so this tops the pool up rather than adding to it.
+     *
+     * @param connections how many connections to have open, at most the maximum connections per host
+     * @return a future that completes once the connections are open, whatever the endpoint responds, or fails if one
+     * can't be opened
+     */
+    public CompletableFuture<Void> warmUp(int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections must be positive");
+        }
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            requests[i] = httpClient.prepareGet(url)
+                    .addHeader("Accept", "application/json")
+                    .execute()
+                    .toCompletableFuture();
         }
+        return CompletableFuture.allOf(requests);
+    }
 
-        JsonNode errorMsgNode = node.at(ERROR_MSG_PTR);
-        if (errorMsgNode.isMissingNode()) {
-            throw new HttpResponseException(statusCode,
-                    "Could not parse unsuccessful response: <" + body + ">");
+    /**
+     * Close the underlying AsyncHttpClient, if this created it. Requests that are still in progress fail.
+     *
+     * @throws UncheckedIOException if closing the AsyncHttpClient fails
+     */
+    @Override
+    public void close() {
+        if (!ownsHttpClient) {
+            return;
         }
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        throw new ErrorMessageResponseException(statusCode, errorMsgNode.asText(""));
+    @Nonnull
+    static RollbarResponse readResponse(String body, int statusCode) throws HttpResponseException, IOException {
+        return RollbarResponseReader.read(body.getBytes(UTF_8), statusCode);
     }
 
     /**
      * @param uuidStr a string of 32 hex bytes, most significant bits first
      * @return a UUID
+     * @throws IllegalArgumentException if uuidStr isn't 32 hex digits
      */
     @Nonnull
     static UUID parseUUID(String uuidStr) {
+        UUID uuid = RollbarResponseReader.parseUuid(uuidStr.toCharArray(), 0, uuidStr.length());
+        if (uuid == null) {
+            throw new IllegalArgumentException("Not a UUID: " + uuidStr);
+        }
+        return uuid;
+    }
+
+    /**
+     * Builds an AsyncHttpItemClient with an AsyncHttpClient of its own, which is closed with it. Anything not set
+     * keeps AsyncHttpClient's default, which can be overridden with its {@code org.asynchttpclient.*} system
+     * properties. The defaults documented here are AsyncHttpClient's own.
+     */
+    public static class Builder {
+        @Nonnull
+        private String url = DEFAULT_API_ENDPOINT;
+        @Nonnull
+        private RollbarMetrics metrics = RollbarMetrics.NOOP;
+        // -1 when not set
+        private int maxConnectionsPerHost = -1;
+        @Nullable
+        private Duration pooledConnectionIdleTimeout;
+        @Nullable
+        private Duration connectTimeout;
+        @Nullable
+        private Duration requestTimeout;
+        @Nullable
+        private Duration readTimeout;
+        // -1 when not set
+        private int sslSessionCacheSize = -1;
+        @Nullable
+        private Duration sslSessionTimeout;
+        @Nullable
+        private Executor completionExecutor;
+
+        /**
+         * @param url The Rollbar endpoint to POST items to. Defaults to {@link #DEFAULT_API_ENDPOINT}.
+         * @return this
+         */
+        public Builder url(@Nonnull String url) {
+            Validate.isNotNull(url, "url");
+            this.url = url;
+            return this;
+        }
+
+        /**
+         * @param metrics where to report serialization times and payload sizes. By default nothing is measured.
+         * @return this
+         */
+        public Builder metrics(@Nonnull RollbarMetrics metrics) {
+            Validate.isNotNull(metrics, "metrics");
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param maxConnectionsPerHost the most connections to keep open to Rollbar at once. Sends beyond that fail
+         *                              rather than wait. By default there's no limit.
+         * @return this
+         */
+        public Builder maxConnectionsPerHost(int maxConnectionsPerHost) {
+            if (maxConnectionsPerHost < 1) {
+                throw new IllegalArgumentException("maxConnectionsPerHost must be positive");
+            }
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            return this;
+        }
+
+        /**
+         * @param pooledConnectionIdleTimeout how long a connection may stay idle in the pool before it's closed.
+         *                                    Defaults to 60s.
+         * @return this
+         */
+        public Builder pooledConnectionIdleTimeout(@Nonnull Duration pooledConnectionIdleTimeout) {
+            this.pooledConnectionIdleTimeout = positive(pooledConnectionIdleTimeout, "pooledConnectionIdleTimeout");
+            return this;
+        }
+
+        /**
+         * @param connectTimeout how long to wait to connect before a send fails. Defaults to 5s.
+         * @return this
+         */
+        public Builder connectTimeout(@Nonnull Duration connectTimeout) {
+            this.connectTimeout = positive(connectTimeout, "connectTimeout");
+            return this;
+        }
+
+        /**
+         * @param requestTimeout how long to wait for the whole response to a send before it fails. Defaults to 60s.
+         * @return this
+         */
+        public Builder requestTimeout(@Nonnull Duration requestTimeout) {
+            this.requestTimeout = positive(requestTimeout, "requestTimeout");
+            return this;
+        }
+
+        /**
+         * @param readTimeout how long a connection may go without reading anything during a send before it fails.
+         *                    Defaults to 60s.
+         * @return this
+         */
+        public Builder readTimeout(@Nonnull Duration readTimeout) {
+            this.readTimeout = positive(readTimeout, "readTimeout");
+            return this;
+        }
+
+        /**
+         * TLS sessions are cached per host and port, so that new connections to Rollbar can resume a session with an
+         * abbreviated handshake.
+         *
+         * @param sslSessionCacheSize how many TLS sessions to cache, or 0 for the JDK's default. Defaults to 0.
+         * @return this
+         */
+        public Builder sslSessionCacheSize(int sslSessionCacheSize) {
+            if (sslSessionCacheSize < 0) {
+                throw new IllegalArgumentException("sslSessionCacheSize must not be negative");
+            }
+            this.sslSessionCacheSize = sslSessionCacheSize;
+            return this;
+        }
 
-        // parse in 4-byte chunks to avoid max value quirks
-        long mostSigBits = Long.parseUnsignedLong(uuidStr.substring(0, 8), 16);
-        mostSigBits <<= 32;
-        mostSigBits |= Long.parseUnsignedLong(uuidStr.substring(8, 16), 16);
-        long leastSigBits = Long.parseUnsignedLong(uuidStr.substring(16, 24), 16);
-        leastSigBits <<= 32;
-        leastSigBits |= Long.parseUnsignedLong(uuidStr.substring(24, 32), 16);
+        /**
+         * @param sslSessionTimeout how long a cached TLS session may be resumed for. By default the JDK's default
+         *                          applies.
+         * @return this
+         */
+        public Builder sslSessionTimeout(@Nonnull Duration sslSessionTimeout) {
+            Validate.isNotNull(sslSessionTimeout, "sslSessionTimeout");
+            if (sslSessionTimeout.getSeconds() < 1) {
+                throw new IllegalArgumentException("sslSessionTimeout must be at least a second");
+            }
+            this.sslSessionTimeout = sslSessionTimeout;
+            return this;
+        }
+
+        /**
+         * Responses are parsed, and their futures completed, on this executor, so that slow callbacks don't hold up
+         * AsyncHttpClient's I/O threads, and with them other sends. Every response is handed off, since the
+         * reporter and the other item clients attach callbacks to every send anyway. The hand-off costs a thread
+         * switch per send, so it's only worth it if callers attach slow callbacks. If the executor rejects a
+         * completion, it runs on the I/O thread.
+         *
+         * @param completionExecutor where to complete futures. By default they're completed on the I/O threads.
+         * @return this
+         */
+        public Builder completionExecutor(@Nullable Executor completionExecutor) {
+            this.completionExecutor = completionExecutor;
+            return this;
+        }
+
+        public AsyncHttpItemClient build() {
+            return new AsyncHttpItemClient(this);
+        }
+
+        @Nonnull
+        public String getUrl() {
+            return url;
+        }
 
-        return new UUID(mostSigBits, leastSigBits);
+        @Nonnull
+        public RollbarMetrics getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * @return the most connections to keep open to Rollbar at once, or -1 if not set
+         */
+        public int getMaxConnectionsPerHost() {
+            return maxConnectionsPerHost;
+        }
+
+        /**
+         * @return the pooled connection idle timeout, or null if not set
+         */
+        @Nullable
+        public Duration getPooledConnectionIdleTimeout() {
+            return pooledConnectionIdleTimeout;
+        }
+
+        /**
+         * @return the connect timeout, or null if not set
+         */
+        @Nullable
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        /**
+         * @return the request timeout, or null if not set
+         */
+        @Nullable
+        public Duration getRequestTimeout() {
+            return requestTimeout;
+        }
+
+        /**
+         * @return the read timeout, or null if not set
+         */
+        @Nullable
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        /**
+         * @return the TLS session cache size, or -1 if not set
+         */
+        public int getSslSessionCacheSize() {
+            return sslSessionCacheSize;
+        }
+
+        @Nullable
+        public Duration getSslSessionTimeout() {
+            return sslSessionTimeout;
+        }
+
+        @Nullable
+        public Executor getCompletionExecutor() {
+            return completionExecutor;
+        }
+
+        DefaultAsyncHttpClientConfig config() {
+            DefaultAsyncHttpClientConfig.Builder config = new DefaultAsyncHttpClientConfig.Builder()
+                    .setKeepAlive(true);
+            if (maxConnectionsPerHost != -1) {
+                config.setMaxConnectionsPerHost(maxConnectionsPerHost);
+            }
+            if (pooledConnectionIdleTimeout != null) {
+                config.setPooledConnectionIdleTimeout(millis(pooledConnectionIdleTimeout));
+            }
+            if (connectTimeout != null) {
+                config.setConnectTimeout(millis(connectTimeout));
+            }
+            if (requestTimeout != null) {
+                config.setRequestTimeout(millis(requestTimeout));
+            }
+            if (readTimeout != null) {
+                config.setReadTimeout(millis(readTimeout));
+            }
+            if (sslSessionCacheSize != -1) {
+                config.setSslSessionCacheSize(sslSessionCacheSize);
+            }
+            if (sslSessionTimeout != null) {
+                config.setSslSessionTimeout((int) Math.min(Integer.MAX_VALUE, sslSessionTimeout.getSeconds()));
+            }
+            return config.build();
+        }
+
+        private static Duration positive(Duration duration, String name) {
+            Validate.isNotNull(duration, name);
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException(name + " must be positive");
+            }
+            return duration;
+        }
+
+        private static int millis(Duration duration) {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(1, duration.toMillis()));
+        }
     }
 }
@@ -0,0 +1,217 @@
+package com.truevault.rollbar.http.ahc;
+
+import com.truevault.rollbar.http.ErrorMessageResponseException;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.http.metrics.Histogram;
+import com.truevault.rollbar.http.metrics.InMemoryRollbarMetrics;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.body.Body;
+import com.truevault.rollbar.testkit.Behavior;
+import com.truevault.rollbar.testkit.FakeRollbarServer;
+import com.truevault.rollbar.testkit.Latency;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Sends to a local {@link FakeRollbarServer}, so these don't need network access.
+ */
+public class AsyncHttpItemClientFaultTest {
+    private FakeRollbarServer server;
+    private AsyncHttpItemClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = FakeRollbarServer.start();
+        client = new AsyncHttpItemClient(server.url());
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void sendsItems() throws ExecutionException, InterruptedException {
+        RollbarResponse response = client.send(item("hello")).get();
+
+        assertNotNull(response.getUuid());
+        assertEquals(1, server.getItemCount());
+        assertEquals("hello", server.getItems().get(0).at("/data/body/message/body").asText());
+    }
+
+    @Test
+    public void reusedBuffersSendEachItemIntact() throws ExecutionException, InterruptedException {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            large.append(i);
+        }
+        client.send(item(large.toString())).get();
+        client.send(item("small")).get();
+
+        assertEquals(large.toString(), server.getItems().get(0).at("/data/body/message/body").asText());
+        assertEquals("small", server.getItems().get(1).at("/data/body/message/body").asText());
+    }
+
+    @Test
+    public void rateLimitingFailsWithTheMessage() throws InterruptedException {
+        server.setBehavior(new Behavior.Builder().rateLimitRate(1).build());
+
+        ErrorMessageResponseException e = failure(ErrorMessageResponseException.class);
+        assertEquals(429, e.getHttpStatusCode());
+    }
+
+    @Test
+    public void serverErrorsFailWithTheMessage() throws InterruptedException {
+        server.setBehavior(new Behavior.Builder().serverErrorRate(1).build());
+
+        int status = failure(ErrorMessageResponseException.class).getHttpStatusCode();
+        assertTrue(String.valueOf(status), status == 500 || status == 503);
+    }
+
+    @Test
+    public void oversizedPayloadsFail() throws InterruptedException {
+        server.setBehavior(new Behavior.Builder().maxPayloadBytes(10).build());
+
+        assertEquals(413, failure(ErrorMessageResponseException.class).getHttpStatusCode());
+    }
+
+    @Test
+    public void resetsFail() throws InterruptedException {
+        server.setBehavior(new Behavior.Builder().resetRate(1).build());
+
+        failure(IOException.class);
+        assertEquals(0, server.getItemCount());
+    }
+
+    @Test
+    public void recoversOnTheSameClient() throws ExecutionException, InterruptedException {
+        server.setBehavior(new Behavior.Builder().resetRate(1).build());
+        failure(IOException.class);
+
+        server.setBehavior(Behavior.ok());
+        assertNotNull(client.send(item("again")).get().getUuid());
+    }
+
+    @Test
+    public void warmUpOpensConnectionsAheadOfTime() throws ExecutionException, InterruptedException {
+        // a round trip as long as a real one, so that no warm-up request finishes before the others have started
+        server.setBehavior(new Behavior.Builder().latency(Latency.fixed(Duration.ofMillis(50))).build());
+        AsyncHttpItemClient warm = new AsyncHttpItemClient.Builder()
+                .url(server.url())
+                .maxConnectionsPerHost(3)
+                .build();
+        try {
+            warm.warmUp(3).get();
+            assertEquals(3, server.getConnectionCount());
+            assertEquals(0, server.getItemCount());
+
+            for (int i = 0; i < 3; i++) {
+                assertNotNull(warm.send(item("warm " + i)).get().getUuid());
+            }
+            assertEquals(3, server.getConnectionCount());
+        } finally {
+            warm.close();
+        }
+    }
+
+    @Test
+    public void builderSetsTimeouts() throws InterruptedException {
+        server.setBehavior(new Behavior.Builder().latency(Latency.fixed(Duration.ofMillis(500))).build());
+        client.close();
+        client = new AsyncHttpItemClient.Builder()
+                .url(server.url())
+                .requestTimeout(Duration.ofMillis(100))
+                .build();
+
+        failure(TimeoutException.class);
+    }
+
+    @Test
+    public void callbacksRunOnTheCompletionExecutor() throws ExecutionException, InterruptedException {
+        // long enough for the callback to be attached before the response arrives
+        server.setBehavior(new Behavior.Builder().latency(Latency.fixed(Duration.ofMillis(50))).build());
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "completion"));
+        InMemoryRollbarMetrics metrics = new InMemoryRollbarMetrics();
+        client.close();
+        client = new AsyncHttpItemClient.Builder()
+                .url(server.url())
+                .metrics(metrics)
+                .completionExecutor(executor)
+                .build();
+        try {
+            String thread = client.send(item("callback")).thenApply(r -> Thread.currentThread().getName()).get();
+
+            assertEquals("completion", thread);
+            // the time is recorded once the future is complete
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+            assertEquals(1, metrics.getExecutorCompletionNanos().getCount());
+            // just the hand-off
+            awaitCount(metrics.getIoThreadCompletionNanos(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void withoutACompletionExecutorCallbacksRunOnTheIoThread() throws ExecutionException,
+            InterruptedException {
+        server.setBehavior(new Behavior.Builder().latency(Latency.fixed(Duration.ofMillis(50))).build());
+        InMemoryRollbarMetrics metrics = new InMemoryRollbarMetrics();
+        client.close();
+        client = new AsyncHttpItemClient.Builder()
+                .url(server.url())
+                .metrics(metrics)
+                .build();
+
+        String thread = client.send(item("callback")).thenApply(r -> Thread.currentThread().getName()).get();
+
+        assertTrue(thread, thread.startsWith("AsyncHttpClient"));
+        // recorded once the future is complete
+        awaitCount(metrics.getIoThreadCompletionNanos(), 1);
+        assertEquals(0, metrics.getExecutorCompletionNanos().getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderRejectsNonPositiveTimeouts() {
+        new AsyncHttpItemClient.Builder().readTimeout(Duration.ZERO);
+    }
+
+    private static void awaitCount(Histogram histogram, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (histogram.getCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, histogram.getCount());
+    }
+
+    private <T extends Throwable> T failure(Class<T> type) throws InterruptedException {
+        try {
+            client.send(item("fail")).get();
+            fail();
+            return null;
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().toString(), type.isInstance(e.getCause()));
+            return type.cast(e.getCause());
+        }
+    }
+
+    private static Item item(String message) {
+        return new Item("token", new Data.Builder(Body.fromString(message), "test").build());
+    }
+}
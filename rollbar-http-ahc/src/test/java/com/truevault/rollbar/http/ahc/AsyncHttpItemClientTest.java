@@ -10,9 +10,11 @@ import com.truevault.rollbar.payload.data.Notifier;
 import com.truevault.rollbar.payload.data.body.Body;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -54,6 +56,22 @@ public class AsyncHttpItemClientTest {
         assertNotNull(response.getUuid());
     }
 
+    @Test
+    public void unsetBuilderValuesKeepAsyncHttpClientDefaults() {
+        DefaultAsyncHttpClientConfig defaults = new DefaultAsyncHttpClientConfig.Builder().build();
+        DefaultAsyncHttpClientConfig config = new AsyncHttpItemClient.Builder()
+                .connectTimeout(Duration.ofSeconds(1))
+                .config();
+
+        assertEquals(1000, config.getConnectTimeout());
+        assertEquals(defaults.getMaxConnectionsPerHost(), config.getMaxConnectionsPerHost());
+        assertEquals(defaults.getPooledConnectionIdleTimeout(), config.getPooledConnectionIdleTimeout());
+        assertEquals(defaults.getRequestTimeout(), config.getRequestTimeout());
+        assertEquals(defaults.getReadTimeout(), config.getReadTimeout());
+        assertEquals(defaults.getSslSessionCacheSize(), config.getSslSessionCacheSize());
+        assertEquals(defaults.getSslSessionTimeout(), config.getSslSessionTimeout());
+    }
+
     @Test
     public void uuidDecodeRandomRoundtrip() {
         ByteBuffer buf = ByteBuffer.allocate(16);
@@ -0,0 +1,439 @@
+package com.truevault.rollbar.http.blocking;
+
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.http.RollbarResponseReader;
+import com.truevault.rollbar.http.SerializedItemClient;
+import com.truevault.rollbar.http.metrics.RollbarMetrics;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonOutputPool;
+import com.truevault.rollbar.utilities.Validate;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * A HttpItemClient implementation that sends each item with plain blocking socket I/O, on a thread of its own, and
+ * keeps connections alive to reuse them for later sends. It needs no dependencies besides rollbar-http.
+ *
+ * It's meant for virtual threads: on Java 21 and later each send runs on a new virtual thread by default, so a blocked
+ * send costs a few hundred bytes rather than a platform thread, and thread dumps show each send's stack as it is. On
+ * earlier versions sends run on a cached pool of daemon threads instead.
+ */
+@ThreadSafe
+public class BlockingHttpItemClient implements SerializedItemClient {
+    /**
+     * If you don't set the url this is the URL that gets used.
+     */
+    public static final String DEFAULT_API_ENDPOINT = "https://api.rollbar.com/api/1/item/";
+
+    // servers usually close idle connections after a minute or so; closing them sooner avoids sending on a connection
+    // the server is closing
+    private static final long MAX_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    @Nonnull
+    private final String host;
+    private final int port;
+    private final boolean https;
+    // the request line and headers, up to the value of Content-Length
+    @Nonnull
+    private final byte[] requestHead;
+    @Nonnull
+    private final Executor executor;
+    // the executor this client created, and so shuts down on close, or null if it was given one
+    @Nullable
+    private final ExecutorService ownedExecutor;
+    private final int maxIdleConnections;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    // null rather than NOOP, so that nothing is measured at all
+    @Nullable
+    private final RollbarMetrics metrics;
+    // most recently used first, so that the least recently used ones time out
+    private final ConcurrentLinkedDeque<HttpConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final JsonOutputPool buffers = new JsonOutputPool();
+    private volatile boolean closed;
+
+    private BlockingHttpItemClient(Builder builder) {
+        URI uri = URI.create(builder.url);
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("url must be absolute: " + builder.url);
+        }
+        this.https = uri.getScheme().equalsIgnoreCase("https");
+        if (!https && !uri.getScheme().equalsIgnoreCase("http")) {
+            throw new IllegalArgumentException("url must be http or https: " + builder.url);
+        }
+        String host = uri.getHost();
+        // IPv6 literals are bracketed in URIs, but not when connecting
+        this.host = host.startsWith("[") ? host.substring(1, host.length() - 1) : host;
+        this.port = uri.getPort() != -1 ? uri.getPort() : https ? 443 : 80;
+
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            path += "?" + uri.getRawQuery();
+        }
+        this.requestHead = ("POST " + path + " HTTP/1.1\r\n"
+                + "Host: " + uri.getRawAuthority() + "\r\n"
+                + "Accept-Charset: utf-8\r\n"
+                + "Accept: application/json\r\n"
+                + "Content-Type: application/json; charset=utf-8\r\n"
+                + "Content-Length: ").getBytes(US_ASCII);
+
+        if (builder.executor != null) {
+            this.executor = builder.executor;
+            this.ownedExecutor = null;
+        } else {
+            this.ownedExecutor = defaultExecutor();
+            this.executor = ownedExecutor;
+        }
+        this.maxIdleConnections = builder.maxIdleConnections;
+        this.connectTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, builder.connectTimeout.toMillis());
+        this.readTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, builder.readTimeout.toMillis());
+        this.metrics = builder.metrics == RollbarMetrics.NOOP ? null : builder.metrics;
+    }
+
+    /**
+     * Sends the item to the endpoint configured in the builder. Returns the (parsed) response from Rollbar.
+     *
+     * The item is serialized on the calling thread, into a pooled buffer that is written straight to the connection.
+     *
+     * @param item the item to send
+     * @return the response from Rollbar {@link RollbarResponse}
+     */
+    @Override
+    public CompletableFuture<RollbarResponse> send(Item item) {
+        long start = metrics == null ? 0 : System.nanoTime();
+        JsonOutput out = buffers.acquire();
+        try {
+            item.writeJson(out);
+        } catch (RuntimeException e) {
+            buffers.release(out);
+            throw e;
+        }
+        if (metrics != null) {
+            metrics.recordSerializationNanos(System.nanoTime() - start);
+        }
+
+        return post(out.toByteBuffer(), out);
+    }
+
+    @Override
+    public CompletableFuture<RollbarResponse> sendSerialized(ByteBuffer json) {
+        return post(json, null);
+    }
+
+    /**
+     * Close idle connections, and shut down the default executor, interrupting sends that are still in progress. A
+     * given executor is left running.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+        HttpConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            connection.close();
+        }
+    }
+
+    /**
+     * @return the number of connections kept alive for later sends
+     */
+    int getIdleConnectionCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * @param pooled the buffer json is a view of, to release once it has been sent, or null if it's not pooled
+     */
+    private CompletableFuture<RollbarResponse> post(ByteBuffer json, @Nullable JsonOutput pooled) {
+        if (metrics != null) {
+            metrics.recordPayloadBytes(json.remaining());
+        }
+        CompletableFuture<RollbarResponse> cf = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    HttpConnection.Response response = exchange(json);
+                    cf.complete(RollbarResponseReader.read(response.body, response.status));
+                } catch (Throwable t) {
+                    cf.completeExceptionally(t);
+                } finally {
+                    // the connection has written all of the buffer or been closed, so it's free to reuse
+                    if (pooled != null) {
+                        buffers.release(pooled);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (pooled != null) {
+                buffers.release(pooled);
+            }
+            cf.completeExceptionally(e);
+        }
+        return cf;
+    }
+
+    /**
+     * Posts the json on an idle connection if there is one, or else a new one. If an idle connection is closed or
+     * reset before any of the response arrives, the server has most likely closed it, so the json is posted again on
+     * a new connection. Other failures, like a timeout, aren't retried: the server may have the request already.
+     */
+    private HttpConnection.Response exchange(ByteBuffer json) throws IOException {
+        HttpConnection connection = pollIdle();
+        if (connection != null) {
+            try {
+                return exchange(connection, json);
+            } catch (IOException e) {
+                if (connection.isResponseStarted() || !isStale(e)) {
+                    throw e;
+                }
+            }
+        }
+        return exchange(connect(), json);
+    }
+
+    /**
+     * @return whether the failure is how a connection the server closed while it was idle fails: it ends, or is reset
+     */
+    private static boolean isStale(IOException e) {
+        // SocketTimeoutException isn't a SocketException
+        return e instanceof EOFException || e instanceof SocketException;
+    }
+
+    private HttpConnection.Response exchange(HttpConnection connection, ByteBuffer json) throws IOException {
+        HttpConnection.Response response;
+        try {
+            response = connection.post(requestHead, json);
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        release(connection);
+        return response;
+    }
+
+    @Nullable
+    private HttpConnection pollIdle() {
+        long now = System.nanoTime();
+        HttpConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (now - connection.getIdleSince() < MAX_IDLE_NANOS) {
+                return connection;
+            }
+            connection.close();
+        }
+        return null;
+    }
+
+    private void release(HttpConnection connection) {
+        if (!connection.isReusable() || closed) {
+            connection.close();
+            return;
+        }
+        if (idleCount.incrementAndGet() > maxIdleConnections) {
+            idleCount.decrementAndGet();
+            connection.close();
+            return;
+        }
+        connection.markIdle(System.nanoTime());
+        idleConnections.offerFirst(connection);
+        // close() may have drained the idle connections before this one was added
+        if (closed && idleConnections.remove(connection)) {
+            idleCount.decrementAndGet();
+            connection.close();
+        }
+    }
+
+    private HttpConnection connect() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(readTimeoutMillis);
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+            if (https) {
+                SSLSocket sslSocket = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault())
+                        .createSocket(socket, host, port, true);
+                SSLParameters parameters = sslSocket.getSSLParameters();
+                parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                sslSocket.setSSLParameters(parameters);
+                sslSocket.startHandshake();
+                socket = sslSocket;
+            }
+            return new HttpConnection(socket);
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return an executor that starts a virtual thread per send on Java 21 and later, or else a cached pool of daemon
+     * threads
+     */
+    private static ExecutorService defaultExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "rollbar-send-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+                    ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException
+                | InvocationTargetException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "rollbar-send-" + threads.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public static class Builder {
+        @Nonnull
+        private String url = DEFAULT_API_ENDPOINT;
+        @Nullable
+        private Executor executor;
+        private int maxIdleConnections = 16;
+        @Nonnull
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        @Nonnull
+        private Duration readTimeout = Duration.ofSeconds(60);
+        @Nonnull
+        private RollbarMetrics metrics = RollbarMetrics.NOOP;
+
+        /**
+         * @param url The Rollbar endpoint to POST items to. Defaults to {@link #DEFAULT_API_ENDPOINT}.
+         * @return this
+         */
+        public Builder url(@Nonnull String url) {
+            Validate.isNotNull(url, "url");
+            this.url = url;
+            return this;
+        }
+
+        /**
+         * @param executor the executor that runs each send, blocking one of its threads until the response arrives.
+         *                 By default each send runs on a new virtual thread on Java 21 and later, or on a cached pool
+         *                 of daemon threads before then.
+         * @return this
+         */
+        public Builder executor(@Nullable Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param maxIdleConnections how many connections to keep alive between sends. Concurrent sends open more, and
+         *                           close them when they're done. Defaults to 16.
+         * @return this
+         */
+        public Builder maxIdleConnections(int maxIdleConnections) {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException("maxIdleConnections must not be negative");
+            }
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * @param connectTimeout how long to wait to connect before a send fails. Defaults to 5s.
+         * @return this
+         */
+        public Builder connectTimeout(@Nonnull Duration connectTimeout) {
+            Validate.isNotNull(connectTimeout, "connectTimeout");
+            if (connectTimeout.isNegative() || connectTimeout.isZero()) {
+                throw new IllegalArgumentException("connectTimeout must be positive");
+            }
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param readTimeout how long to wait for each part of the response before a send fails. Defaults to 60s.
+         * @return this
+         */
+        public Builder readTimeout(@Nonnull Duration readTimeout) {
+            Validate.isNotNull(readTimeout, "readTimeout");
+            if (readTimeout.isNegative() || readTimeout.isZero()) {
+                throw new IllegalArgumentException("readTimeout must be positive");
+            }
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * @param metrics where to report serialization times and payload sizes. By default nothing is measured.
+         * @return this
+         */
+        public Builder metrics(@Nonnull RollbarMetrics metrics) {
+            Validate.isNotNull(metrics, "metrics");
+            this.metrics = metrics;
+            return this;
+        }
+
+        public BlockingHttpItemClient build() {
+            return new BlockingHttpItemClient(this);
+        }
+
+        @Nonnull
+        public String getUrl() {
+            return url;
+        }
+
+        @Nullable
+        public Executor getExecutor() {
+            return executor;
+        }
+
+        public int getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+
+        @Nonnull
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        @Nonnull
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        @Nonnull
+        public RollbarMetrics getMetrics() {
+            return metrics;
+        }
+    }
+}
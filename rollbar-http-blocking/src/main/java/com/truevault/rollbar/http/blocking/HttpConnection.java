@@ -0,0 +1,278 @@
+package com.truevault.rollbar.http.blocking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * One HTTP/1.1 connection, which posts one request at a time and reads the whole response, so that it can be kept
+ * alive for the next request.
+ */
+@NotThreadSafe
+final class HttpConnection implements Closeable {
+    // the most a response's status line, headers and body may take up. Rollbar's responses are far smaller.
+    private static final int MAX_RESPONSE_BYTES = 1024 * 1024;
+    private static final byte[] CRLF_CRLF = {'\r', '\n', '\r', '\n'};
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final StringBuilder line = new StringBuilder();
+    // the digits of the Content-Length header
+    private final byte[] digits = new byte[10];
+
+    private boolean reusable;
+    private boolean responseStarted;
+    private long idleSince;
+
+    HttpConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * @param head the request line and headers, up to the value of a final Content-Length header
+     * @param body the body, from its position to its limit. Neither is modified.
+     * @return the response
+     * @throws IOException if the request can't be sent or the response can't be read
+     */
+    Response post(byte[] head, ByteBuffer body) throws IOException {
+        reusable = false;
+        responseStarted = false;
+
+        out.write(head);
+        writeContentLength(body.remaining());
+        out.write(CRLF_CRLF);
+        if (body.hasArray()) {
+            out.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        } else {
+            ByteBuffer remaining = body.duplicate();
+            byte[] chunk = new byte[Math.min(remaining.remaining(), 8192)];
+            while (remaining.hasRemaining()) {
+                int n = Math.min(chunk.length, remaining.remaining());
+                remaining.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        }
+        out.flush();
+
+        return readResponse();
+    }
+
+    /**
+     * @return whether the connection can be used for another request: the last response was read completely, and
+     * neither side asked to close the connection
+     */
+    boolean isReusable() {
+        return reusable;
+    }
+
+    /**
+     * @return whether any of the last response was read. If not, a failure may be because the server closed an idle
+     * connection, and the request can be sent again on a new one.
+     */
+    boolean isResponseStarted() {
+        return responseStarted;
+    }
+
+    void markIdle(long nanoTime) {
+        idleSince = nanoTime;
+    }
+
+    long getIdleSince() {
+        return idleSince;
+    }
+
+    @Override
+    public void close() {
+        reusable = false;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing more to do
+        }
+    }
+
+    private void writeContentLength(int length) throws IOException {
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + length % 10);
+            length /= 10;
+        } while (length > 0);
+        out.write(digits, i, digits.length - i);
+    }
+
+    private Response readResponse() throws IOException {
+        int status;
+        boolean http10;
+        do {
+            String statusLine = readLine(true);
+            if (!statusLine.startsWith("HTTP/1.") || statusLine.length() < 12) {
+                throw new IOException("Invalid status line: " + statusLine);
+            }
+            http10 = statusLine.startsWith("HTTP/1.0");
+            try {
+                status = Integer.parseInt(statusLine.substring(9, 12));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid status line: " + statusLine);
+            }
+            // an interim response (e.g. 100 Continue) is followed by headers, and then the actual response
+        } while (status >= 100 && status < 200 && skipHeaders());
+
+        long contentLength = -1;
+        boolean chunked = false;
+        boolean keepAlive = !http10;
+        for (String header = readLine(false); !header.isEmpty(); header = readLine(false)) {
+            int colon = header.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = header.substring(0, colon).trim();
+            String value = header.substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                try {
+                    contentLength = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid Content-Length: " + value);
+                }
+            } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+            } else if (name.equalsIgnoreCase("Connection")) {
+                if (value.equalsIgnoreCase("close")) {
+                    keepAlive = false;
+                } else if (value.equalsIgnoreCase("keep-alive")) {
+                    keepAlive = true;
+                }
+            }
+        }
+
+        byte[] body;
+        if (status == 204 || status == 304) {
+            body = new byte[0];
+        } else if (chunked) {
+            body = readChunked();
+        } else if (contentLength >= 0) {
+            if (contentLength > MAX_RESPONSE_BYTES) {
+                throw new IOException("Response too large: " + contentLength + " bytes");
+            }
+            body = readFully((int) contentLength);
+        } else {
+            // the body ends when the connection does
+            body = readToEnd();
+            keepAlive = false;
+        }
+        reusable = keepAlive;
+        return new Response(status, body);
+    }
+
+    /**
+     * @return true, once the headers of an interim response are skipped
+     */
+    private boolean skipHeaders() throws IOException {
+        while (!readLine(false).isEmpty()) {
+            // skip
+        }
+        return true;
+    }
+
+    private byte[] readChunked() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true) {
+            String sizeLine = readLine(false);
+            int semicolon = sizeLine.indexOf(';');
+            int size;
+            try {
+                size = Integer.parseInt((semicolon < 0 ? sizeLine : sizeLine.substring(0, semicolon)).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid chunk size: " + sizeLine);
+            }
+            if (size == 0) {
+                // trailers, up to the empty line
+                skipHeaders();
+                return body.toByteArray();
+            }
+            if (size < 0 || body.size() + size > MAX_RESPONSE_BYTES) {
+                throw new IOException("Response too large");
+            }
+            body.write(readFully(size));
+            if (!readLine(false).isEmpty()) {
+                throw new IOException("Chunk not followed by CRLF");
+            }
+        }
+    }
+
+    private byte[] readFully(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(bytes, read, length - read);
+            if (n < 0) {
+                throw new EOFException("Response ended after " + read + " of " + length + " bytes");
+            }
+            read += n;
+        }
+        return bytes;
+    }
+
+    private byte[] readToEnd() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            body.write(buffer, 0, n);
+            if (body.size() > MAX_RESPONSE_BYTES) {
+                throw new IOException("Response too large");
+            }
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * @param first whether this is the first line of the response
+     * @return a line of ASCII text, without the line ending
+     */
+    private String readLine(boolean first) throws IOException {
+        line.setLength(0);
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException(first && line.length() == 0 ? "Connection closed before the response"
+                        : "Response ended in the middle of a line");
+            }
+            if (first) {
+                responseStarted = true;
+            }
+            if (b == '\n') {
+                int end = line.length();
+                if (end > 0 && line.charAt(end - 1) == '\r') {
+                    line.setLength(end - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_RESPONSE_BYTES) {
+                throw new IOException("Response line too long");
+            }
+            line.append((char) b);
+        }
+    }
+
+    static final class Response {
+        final int status;
+        final byte[] body;
+
+        Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
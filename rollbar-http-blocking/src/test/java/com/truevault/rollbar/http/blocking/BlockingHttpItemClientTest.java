@@ -0,0 +1,234 @@
+package com.truevault.rollbar.http.blocking;
+
+import com.truevault.rollbar.http.ErrorMessageResponseException;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.body.Body;
+import com.truevault.rollbar.testkit.Behavior;
+import com.truevault.rollbar.testkit.FakeRollbarServer;
+import com.truevault.rollbar.utilities.JsonOutput;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Sends to a local {@link FakeRollbarServer}, so these don't need network access.
+ */
+public class BlockingHttpItemClientTest {
+    private FakeRollbarServer server;
+    private BlockingHttpItemClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = FakeRollbarServer.start();
+        client = new BlockingHttpItemClient.Builder().url(server.url()).build();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void sendsItems() throws ExecutionException, InterruptedException {
+        RollbarResponse response = client.send(item("hello")).get();
+
+        assertNotNull(response.getUuid());
+        assertEquals(1, server.getItemCount());
+        assertEquals("hello", server.getItems().get(0).at("/data/body/message/body").asText());
+    }
+
+    @Test
+    public void sendsSerializedItems() throws ExecutionException, InterruptedException {
+        ByteBuffer json = ByteBuffer.wrap(JsonOutput.toJsonBytes(item("serialized")));
+
+        assertNotNull(client.sendSerialized(json).get().getUuid());
+        assertEquals("serialized", server.getItems().get(0).at("/data/body/message/body").asText());
+        assertEquals(0, json.position());
+    }
+
+    @Test
+    public void reusesConnections() throws ExecutionException, InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            client.send(item("item " + i)).get();
+        }
+
+        assertEquals(5, server.getItemCount());
+        assertEquals(1, server.getConnectionCount());
+        assertEquals(1, client.getIdleConnectionCount());
+    }
+
+    @Test
+    public void sendsConcurrentlyWithReusedBuffers() throws ExecutionException, InterruptedException {
+        List<CompletableFuture<RollbarResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            responses.add(client.send(item("item " + i)));
+        }
+        for (CompletableFuture<RollbarResponse> response : responses) {
+            assertNotNull(response.get().getUuid());
+        }
+        for (int i = 0; i < 50; i++) {
+            client.send(item("again " + i)).get();
+        }
+
+        assertEquals(100, server.getItemCount());
+        assertEquals("again 49", server.getItems().get(99).at("/data/body/message/body").asText());
+        assertTrue(String.valueOf(client.getIdleConnectionCount()), client.getIdleConnectionCount() <= 16);
+    }
+
+    @Test
+    public void serverErrorsFailWithTheMessage() throws InterruptedException {
+        server.setBehavior(new Behavior.Builder().serverErrorRate(1).build());
+
+        int status = failure(ErrorMessageResponseException.class).getHttpStatusCode();
+        assertTrue(String.valueOf(status), status == 500 || status == 503);
+    }
+
+    @Test
+    public void resetsFail() throws InterruptedException {
+        server.setBehavior(new Behavior.Builder().resetRate(1).build());
+
+        failure(IOException.class);
+        assertEquals(0, server.getItemCount());
+        assertEquals(0, client.getIdleConnectionCount());
+    }
+
+    @Test
+    public void retriesConnectionsClosedWhileIdle() throws Exception {
+        // answers one request per connection, in chunks, but doesn't say it's closing the connection
+        AtomicInteger connections = new AtomicInteger();
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> {
+                while (true) {
+                    try (Socket socket = serverSocket.accept()) {
+                        connections.incrementAndGet();
+                        respondOnce(socket);
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            BlockingHttpItemClient oneShot = new BlockingHttpItemClient.Builder()
+                    .url("http://127.0.0.1:" + serverSocket.getLocalPort() + "/api/1/item/")
+                    .build();
+            try {
+                for (int i = 0; i < 3; i++) {
+                    assertEquals("01234567-89ab-cdef-0123-456789abcdef",
+                            oneShot.send(item("item " + i)).get().getUuid().toString());
+                }
+            } finally {
+                oneShot.close();
+            }
+        }
+        assertEquals(3, connections.get());
+    }
+
+    @Test
+    public void timeoutsOnReusedConnectionsAreNotRetried() throws Exception {
+        // answers the first request on each connection, then reads the next one and never answers it
+        AtomicInteger connections = new AtomicInteger();
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> {
+                while (true) {
+                    try (Socket socket = serverSocket.accept()) {
+                        connections.incrementAndGet();
+                        respondOnce(socket);
+                        while (socket.getInputStream().read() >= 0) {
+                            // wait for the client to give up
+                        }
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            BlockingHttpItemClient slow = new BlockingHttpItemClient.Builder()
+                    .url("http://127.0.0.1:" + serverSocket.getLocalPort() + "/api/1/item/")
+                    .readTimeout(Duration.ofMillis(200))
+                    .build();
+            try {
+                slow.send(item("answered")).get();
+                try {
+                    slow.send(item("unanswered")).get();
+                    fail();
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause().toString(), e.getCause() instanceof SocketTimeoutException);
+                }
+            } finally {
+                slow.close();
+            }
+        }
+        assertEquals(1, connections.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherSchemes() {
+        new BlockingHttpItemClient.Builder().url("ftp://example.com/").build();
+    }
+
+    private static void respondOnce(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), US_ASCII));
+        int contentLength = 0;
+        for (String line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+            if (line.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        if (in.skip(contentLength) != contentLength) {
+            throw new IOException("short body");
+        }
+        String body = "{\"err\":0,\"result\":{\"uuid\":\"0123456789abcdef0123456789abcdef\"}}";
+        String chunked = Integer.toHexString(10) + "\r\n" + body.substring(0, 10) + "\r\n"
+                + Integer.toHexString(body.length() - 10) + "\r\n" + body.substring(10) + "\r\n"
+                + "0\r\n\r\n";
+        OutputStream out = socket.getOutputStream();
+        out.write(("HTTP/1.1 100 Continue\r\n\r\n"
+                + "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + chunked).getBytes(US_ASCII));
+        out.flush();
+    }
+
+    private <T extends Throwable> T failure(Class<T> type) throws InterruptedException {
+        try {
+            client.send(item("fail")).get();
+            fail();
+            return null;
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().toString(), type.isInstance(e.getCause()));
+            return type.cast(e.getCause());
+        }
+    }
+
+    private static Item item(String message) {
+        return new Item("token", new Data.Builder(Body.fromString(message), "test").build());
+    }
+}
@@ -0,0 +1,97 @@
+package com.truevault.rollbar.benchmarks;
+
+import com.truevault.rollbar.http.SerializedItemClient;
+import com.truevault.rollbar.http.ahc.AsyncHttpItemClient;
+import com.truevault.rollbar.http.jdk.JdkHttpItemClient;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.body.Body;
+import com.truevault.rollbar.testkit.FakeRollbarServer;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link AsyncHttpItemClient} against {@link JdkHttpItemClient}, each sending an exception item to a {@link
+ * FakeRollbarServer} on the loopback interface: one at a time, or in bursts of concurrent sends. Each trial prints the
+ * number of connections the client opened.
+ *
+ * With {@code http2} the server lets clients upgrade to HTTP/2 over cleartext, which JdkHttpItemClient asks to and
+ * AsyncHttpItemClient doesn't, so that the JDK client's bursts share its connections.
+ *
+ * java.net.http has a lot of code to compile, and on a small machine it takes tens of thousands of sends for
+ * JdkHttpItemClient to reach its steady state, hence the long warmup.
+ *
+ * AsyncHttpClient 2.0 fails every request on Java 9 and later, and this module's benchmarks run on Java 11, so run the
+ * {@code ahc} side on Java 8, with {@code -PjmhJvm=/path/to/java8/bin/java} (or JMH's {@code -jvm} and {@code -p
+ * client=ahc} options).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 3)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpClientBenchmark {
+    @Param({"ahc", "jdk"})
+    public String client;
+
+    @Param({"1", "16"})
+    public int concurrency;
+
+    @Param({"false", "true"})
+    public boolean http2;
+
+    private FakeRollbarServer server;
+    private SerializedItemClient itemClient;
+    private Item item;
+    private CompletableFuture<?>[] sends;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = FakeRollbarServer.start();
+        server.setRecordItems(false);
+        server.setHttp2(http2);
+        if (client.equals("ahc")) {
+            if (!System.getProperty("java.specification.version").startsWith("1.")) {
+                throw new IllegalStateException("AsyncHttpClient 2.0 needs Java 8; run this with -PjmhJvm");
+            }
+            itemClient = new AsyncHttpItemClient(server.url());
+        } else {
+            itemClient = new JdkHttpItemClient.Builder().url(server.url()).build();
+        }
+        Exception exception = new IllegalStateException("benchmark", new IllegalArgumentException("cause"));
+        item = new Item("token", new Data.Builder(Body.fromThrowable(exception), "benchmark").build());
+        sends = new CompletableFuture<?>[concurrency];
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println(client + " opened " + server.getConnectionCount() + " connections");
+        itemClient.close();
+        server.close();
+    }
+
+    @Benchmark
+    public Object send() {
+        if (concurrency == 1) {
+            return itemClient.send(item).join();
+        }
+        for (int i = 0; i < sends.length; i++) {
+            sends[i] = itemClient.send(item);
+        }
+        return CompletableFuture.allOf(sends).join();
+    }
+}
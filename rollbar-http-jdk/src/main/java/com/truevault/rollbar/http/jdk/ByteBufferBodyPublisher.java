@@ -0,0 +1,53 @@
+package com.truevault.rollbar.http.jdk;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+
+/**
+ * Publishes a request body straight from a ByteBuffer. {@link HttpRequest.BodyPublishers#ofByteArray(byte[], int,
+ * int)} would copy it into buffers of its own first.
+ *
+ * Each subscriber (there's more than one if the request is sent again) gets its own view of the buffer, so the buffer
+ * itself is never modified.
+ */
+final class ByteBufferBodyPublisher implements HttpRequest.BodyPublisher {
+    private final ByteBuffer body;
+
+    ByteBufferBodyPublisher(ByteBuffer body) {
+        this.body = body;
+    }
+
+    @Override
+    public long contentLength() {
+        return body.remaining();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        subscriber.onSubscribe(new Flow.Subscription() {
+            // request() and cancel() calls for one subscription don't overlap, but request() may be called again from
+            // within onNext()
+            private boolean done;
+
+            @Override
+            public void request(long n) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                if (n <= 0) {
+                    subscriber.onError(new IllegalArgumentException("n must be positive"));
+                    return;
+                }
+                subscriber.onNext(body.duplicate());
+                subscriber.onComplete();
+            }
+
+            @Override
+            public void cancel() {
+                done = true;
+            }
+        });
+    }
+}
@@ -0,0 +1,276 @@
+package com.truevault.rollbar.http.jdk;
+
+import com.truevault.rollbar.http.HttpResponseException;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.http.RollbarResponseReader;
+import com.truevault.rollbar.http.SerializedItemClient;
+import com.truevault.rollbar.http.metrics.RollbarMetrics;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonOutputPool;
+import com.truevault.rollbar.utilities.Validate;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A HttpItemClient implementation that uses the HTTP client built into Java 11 and later ({@link HttpClient}), so it
+ * needs no dependencies besides Java itself.
+ *
+ * Sends are spread over a few HttpClients. Each one multiplexes all of its requests over a single HTTP/2 connection
+ * when the server supports HTTP/2, as Rollbar does. Otherwise each HttpClient keeps a pool of HTTP/1.1 connections.
+ * Items are serialized into pooled buffers, which are sent without copying them.
+ */
+@ThreadSafe
+public class JdkHttpItemClient implements SerializedItemClient {
+    /**
+     * If you don't set the url this is the URL that gets used.
+     */
+    public static final String DEFAULT_API_ENDPOINT = "https://api.rollbar.com/api/1/item/";
+
+    // HttpClient.shutdownNow(), which was added in Java 21, or null before then
+    @Nullable
+    private static final MethodHandle SHUTDOWN_NOW = shutdownNow();
+
+    @Nonnull
+    private final URI uri;
+    @Nonnull
+    private final HttpClient[] httpClients;
+    private final AtomicInteger nextClient = new AtomicInteger();
+    @Nonnull
+    private final Duration timeout;
+    // null rather than NOOP, so that nothing is measured at all
+    @Nullable
+    private final RollbarMetrics metrics;
+    // items are serialized into these, and sent straight from them
+    private final JsonOutputPool buffers = new JsonOutputPool();
+
+    private JdkHttpItemClient(Builder builder) {
+        this.uri = URI.create(builder.url);
+        this.timeout = builder.timeout;
+        this.metrics = builder.metrics == RollbarMetrics.NOOP ? null : builder.metrics;
+        this.httpClients = new HttpClient[builder.connections];
+        for (int i = 0; i < httpClients.length; i++) {
+            HttpClient.Builder httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2);
+            if (builder.executor != null) {
+                httpClient.executor(builder.executor);
+            }
+            httpClients[i] = httpClient.build();
+        }
+    }
+
+    /**
+     * Sends the item to the endpoint configured in the builder. Returns the (parsed) response from Rollbar.
+     *
+     * The item is serialized into a pooled buffer, which is sent without copying it and reused once Rollbar has
+     * accepted the item.
+     *
+     * @param item the item to send
+     * @return the response from Rollbar {@link RollbarResponse}
+     */
+    @Override
+    public CompletableFuture<RollbarResponse> send(Item item) {
+        long start = metrics == null ? 0 : System.nanoTime();
+        JsonOutput out = buffers.acquire();
+        try {
+            item.writeJson(out);
+        } catch (RuntimeException e) {
+            buffers.release(out);
+            throw e;
+        }
+        if (metrics != null) {
+            metrics.recordSerializationNanos(System.nanoTime() - start);
+        }
+
+        return post(out.toByteBuffer(), out);
+    }
+
+    @Override
+    public CompletableFuture<RollbarResponse> sendSerialized(ByteBuffer json) {
+        return post(json, null);
+    }
+
+    /**
+     * Shut down the HttpClients on Java 21 and later, failing requests that are still in progress. Before Java 21
+     * they can't be shut down, and stop their threads once they're no longer referenced.
+     */
+    @Override
+    public void close() {
+        if (SHUTDOWN_NOW == null) {
+            return;
+        }
+        for (HttpClient httpClient : httpClients) {
+            try {
+                SHUTDOWN_NOW.invoke(httpClient);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    /**
+     * @param pooled the buffer json is a view of, to release once the request is done with it, or null if it's not
+     *               pooled
+     */
+    private CompletableFuture<RollbarResponse> post(ByteBuffer json, @Nullable JsonOutput pooled) {
+        if (metrics != null) {
+            metrics.recordPayloadBytes(json.remaining());
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Accept-Charset", "utf-8")
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(new ByteBufferBodyPublisher(json))
+                .build();
+
+        CompletableFuture<RollbarResponse> cf = new CompletableFuture<>();
+        nextClient().sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, t) -> {
+            if (t != null) {
+                // the buffer isn't reused, since the HttpClient may still be sending it
+                cf.completeExceptionally(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+                return;
+            }
+            // Rollbar may respond to a bad request (e.g. with a 413) before reading the whole body, in which case it
+            // may still be being sent, but it only accepts an item once it has read all of it
+            if (pooled != null && response.statusCode() == 200) {
+                buffers.release(pooled);
+            }
+            try {
+                cf.complete(RollbarResponseReader.read(response.body(), response.statusCode()));
+            } catch (HttpResponseException | IOException e) {
+                cf.completeExceptionally(e);
+            }
+        });
+        return cf;
+    }
+
+    private HttpClient nextClient() {
+        if (httpClients.length == 1) {
+            return httpClients[0];
+        }
+        return httpClients[Math.floorMod(nextClient.getAndIncrement(), httpClients.length)];
+    }
+
+    @Nullable
+    private static MethodHandle shutdownNow() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(HttpClient.class, "shutdownNow",
+                    MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    public static class Builder {
+        @Nonnull
+        private String url = DEFAULT_API_ENDPOINT;
+        @Nullable
+        private Executor executor;
+        private int connections = 2;
+        @Nonnull
+        private Duration timeout = Duration.ofSeconds(60);
+        @Nonnull
+        private RollbarMetrics metrics = RollbarMetrics.NOOP;
+
+        /**
+         * @param url The Rollbar endpoint to POST items to. Defaults to {@link #DEFAULT_API_ENDPOINT}.
+         * @return this
+         */
+        public Builder url(@Nonnull String url) {
+            Validate.isNotNull(url, "url");
+            this.url = url;
+            return this;
+        }
+
+        /**
+         * @param executor the executor that the HttpClients run their work and complete sends on. By default each
+         *                 HttpClient has a cached thread pool of its own.
+         * @return this
+         */
+        public Builder executor(@Nullable Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param connections the number of HttpClients to spread sends over, and so the number of HTTP/2 connections
+         *                    to Rollbar. Defaults to 2.
+         * @return this
+         */
+        public Builder connections(int connections) {
+            if (connections < 1) {
+                throw new IllegalArgumentException("connections must be positive");
+            }
+            this.connections = connections;
+            return this;
+        }
+
+        /**
+         * @param timeout how long to wait for a response to each send before it fails. Defaults to 60s.
+         * @return this
+         */
+        public Builder timeout(@Nonnull Duration timeout) {
+            Validate.isNotNull(timeout, "timeout");
+            if (timeout.isNegative() || timeout.isZero()) {
+                throw new IllegalArgumentException("timeout must be positive");
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * @param metrics where to report serialization times and payload sizes. By default nothing is measured.
+         * @return this
+         */
+        public Builder metrics(@Nonnull RollbarMetrics metrics) {
+            Validate.isNotNull(metrics, "metrics");
+            this.metrics = metrics;
+            return this;
+        }
+
+        public JdkHttpItemClient build() {
+            return new JdkHttpItemClient(this);
+        }
+
+        @Nonnull
+        public String getUrl() {
+            return url;
+        }
+
+        @Nullable
+        public Executor getExecutor() {
+            return executor;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        @Nonnull
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        @Nonnull
+        public RollbarMetrics getMetrics() {
+            return metrics;
+        }
+    }
+}
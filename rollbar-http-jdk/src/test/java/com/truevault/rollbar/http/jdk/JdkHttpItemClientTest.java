@@ -0,0 +1,154 @@
+package com.truevault.rollbar.http.jdk;
+
+import com.truevault.rollbar.http.ErrorMessageResponseException;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.body.Body;
+import com.truevault.rollbar.testkit.Behavior;
+import com.truevault.rollbar.testkit.FakeRollbarServer;
+import com.truevault.rollbar.testkit.Latency;
+import com.truevault.rollbar.utilities.JsonOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Sends to a local {@link FakeRollbarServer}, so these don't need network access.
+ */
+public class JdkHttpItemClientTest {
+    private FakeRollbarServer server;
+    private ExecutorService executor;
+    private JdkHttpItemClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = FakeRollbarServer.start();
+        executor = Executors.newFixedThreadPool(2);
+        client = new JdkHttpItemClient.Builder()
+                .url(server.url())
+                .executor(executor)
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Test
+    public void sendsItems() throws ExecutionException, InterruptedException {
+        RollbarResponse response = client.send(item("hello")).get();
+
+        assertNotNull(response.getUuid());
+        assertEquals(1, server.getItemCount());
+        assertEquals("hello", server.getItems().get(0).at("/data/body/message/body").asText());
+    }
+
+    @Test
+    public void sendsSerializedItems() throws ExecutionException, InterruptedException {
+        ByteBuffer json = ByteBuffer.wrap(JsonOutput.toJsonBytes(item("serialized")));
+
+        assertNotNull(client.sendSerialized(json).get().getUuid());
+        assertEquals("serialized", server.getItems().get(0).at("/data/body/message/body").asText());
+        assertEquals(0, json.position());
+    }
+
+    @Test
+    public void sendsConcurrentlyWithReusedBuffers() throws ExecutionException, InterruptedException {
+        List<CompletableFuture<RollbarResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            responses.add(client.send(item("item " + i)));
+        }
+        for (CompletableFuture<RollbarResponse> response : responses) {
+            assertNotNull(response.get().getUuid());
+        }
+        for (int i = 0; i < 50; i++) {
+            client.send(item("again " + i)).get();
+        }
+
+        assertEquals(100, server.getItemCount());
+        assertEquals("again 49", server.getItems().get(99).at("/data/body/message/body").asText());
+    }
+
+    @Test
+    public void multiplexesConcurrentSendsOverOneHttp2Connection() throws ExecutionException, InterruptedException {
+        server.setHttp2(true);
+        // slow enough that the sends overlap, and so would need a connection each over HTTP/1.1
+        server.setBehavior(new Behavior.Builder().latency(Latency.fixed(Duration.ofMillis(50))).build());
+        JdkHttpItemClient http2 = new JdkHttpItemClient.Builder()
+                .url(server.url())
+                .executor(executor)
+                .connections(1)
+                .build();
+        try {
+            // the first send upgrades the connection; sends made while it's upgrading would open connections of their
+            // own
+            http2.send(item("upgrade")).get();
+            List<CompletableFuture<RollbarResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                responses.add(http2.send(item("item " + i)));
+            }
+            for (CompletableFuture<RollbarResponse> response : responses) {
+                assertNotNull(response.get().getUuid());
+            }
+        } finally {
+            http2.close();
+        }
+
+        assertEquals(17, server.getItemCount());
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void serverErrorsFailWithTheMessage() throws InterruptedException {
+        server.setBehavior(new Behavior.Builder().serverErrorRate(1).build());
+
+        int status = failure(ErrorMessageResponseException.class).getHttpStatusCode();
+        assertTrue(String.valueOf(status), status == 500 || status == 503);
+    }
+
+    @Test
+    public void resetsFail() throws InterruptedException {
+        server.setBehavior(new Behavior.Builder().resetRate(1).build());
+
+        failure(IOException.class);
+        assertEquals(0, server.getItemCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNoConnections() {
+        new JdkHttpItemClient.Builder().connections(0);
+    }
+
+    private <T extends Throwable> T failure(Class<T> type) throws InterruptedException {
+        try {
+            client.send(item("fail")).get();
+            fail();
+            return null;
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().toString(), type.isInstance(e.getCause()));
+            return type.cast(e.getCause());
+        }
+    }
+
+    private static Item item(String message) {
+        return new Item("token", new Data.Builder(Body.fromString(message), "test").build());
+    }
+}
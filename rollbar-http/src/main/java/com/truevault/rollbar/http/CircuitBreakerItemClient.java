@@ -0,0 +1,351 @@
+package com.truevault.rollbar.http;
+
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.utilities.Validate;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An HttpItemClient that stops sending items for a while once too many sends have failed, so that an unreachable or
+ * overloaded Rollbar doesn't tie up connections and I/O threads with requests that are likely to fail anyway.
+ *
+ * The circuit starts out CLOSED, and all items are sent. Failures that may be temporary (see {@link
+ * Failures#isRetryable(Throwable)}) and successes are counted over a sliding window, and once the window has seen at
+ * least the minimum number of sends and the failure rate reaches the threshold, the circuit OPENs. While open, items
+ * aren't sent: they are handed to the fallback client if there is one (e.g. a client that spools them to disk), and
+ * otherwise fail right away with a {@link CircuitOpenException}.
+ *
+ * After the open duration, the circuit becomes HALF_OPEN and lets a limited number of probe items through. If they
+ * all succeed, the circuit closes again; if any of them fails, it opens for another open duration. Other items are
+ * treated as when the circuit is open until the probes are done.
+ */
+@ThreadSafe
+public class CircuitBreakerItemClient implements HttpItemClient {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Notified of state changes, on the thread that made the change. Implementations must be fast and must not throw.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onStateChange(@Nonnull State from, @Nonnull State to);
+    }
+
+    @Nonnull
+    private final HttpItemClient delegate;
+    @Nullable
+    private final HttpItemClient fallback;
+    @Nullable
+    private final Listener listener;
+    private final double failureRateThreshold;
+    private final int minimumSends;
+    private final long openNanos;
+    private final int probes;
+
+    private final SlidingWindow window;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile long openedAt;
+    // probes that may still be started, and probes that have succeeded, in the current half-open period
+    private final AtomicInteger probesAvailable = new AtomicInteger();
+    private final AtomicInteger probesSucceeded = new AtomicInteger();
+
+    private CircuitBreakerItemClient(Builder builder) {
+        this.delegate = builder.delegate;
+        this.fallback = builder.fallback;
+        this.listener = builder.listener;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.minimumSends = builder.minimumSends;
+        this.openNanos = builder.openDuration.toNanos();
+        this.probes = builder.probes;
+        this.window = new SlidingWindow(builder.window.toNanos(), builder.windowBuckets);
+    }
+
+    @Override
+    public CompletableFuture<RollbarResponse> send(Item item) {
+        State current = state.get();
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return reject(item);
+            }
+            halfOpen();
+            current = state.get();
+        }
+
+        if (current == State.CLOSED) {
+            return delegate.send(item).whenComplete((response, t) -> {
+                // sends that were started before the circuit opened don't count towards anything afterwards
+                if (state.get() == State.CLOSED) {
+                    recordClosed(t != null && Failures.isRetryable(t));
+                }
+            });
+        }
+
+        if (current == State.HALF_OPEN && probesAvailable.getAndDecrement() > 0) {
+            CompletableFuture<RollbarResponse> probe;
+            try {
+                probe = delegate.send(item);
+            } catch (RuntimeException e) {
+                // the probe took a slot, so it has to count as a failure, or the circuit could stay half open forever
+                recordProbe(true);
+                CompletableFuture<RollbarResponse> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+            return probe.whenComplete((response, t) -> recordProbe(t != null && Failures.isRetryable(t)));
+        }
+
+        return reject(item);
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+        if (fallback != null) {
+            fallback.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+        if (fallback != null) {
+            fallback.close();
+        }
+    }
+
+    /**
+     * @return the current state
+     */
+    @Nonnull
+    public State getState() {
+        return state.get();
+    }
+
+    private CompletableFuture<RollbarResponse> reject(Item item) {
+        if (fallback != null) {
+            return fallback.send(item);
+        }
+        CompletableFuture<RollbarResponse> future = new CompletableFuture<>();
+        future.completeExceptionally(new CircuitOpenException("Not sending items after recent failures"));
+        return future;
+    }
+
+    private void recordClosed(boolean failure) {
+        long now = System.nanoTime();
+        window.record(failure, now);
+        if (!failure) {
+            return;
+        }
+
+        SlidingWindow.Counts counts = window.counts(now);
+        if (counts.total() >= minimumSends && counts.failures >= failureRateThreshold * counts.total()) {
+            open(State.CLOSED);
+        }
+    }
+
+    private void recordProbe(boolean failure) {
+        if (state.get() != State.HALF_OPEN) {
+            return;
+        }
+        if (failure) {
+            open(State.HALF_OPEN);
+        } else if (probesSucceeded.incrementAndGet() >= probes && transition(State.HALF_OPEN, State.CLOSED)) {
+            window.reset();
+        }
+    }
+
+    // Opening and half-opening are synchronized so that each sets up the probe counts and open time before the new
+    // state is visible, without another thread changing them in between. Both are rare, unlike sends.
+    private synchronized void open(State from) {
+        if (state.get() != from) {
+            return;
+        }
+        openedAt = System.nanoTime();
+        // no probes until the next half-open period sets them up
+        probesAvailable.set(0);
+        transition(from, State.OPEN);
+    }
+
+    private synchronized void halfOpen() {
+        if (state.get() != State.OPEN || System.nanoTime() - openedAt < openNanos) {
+            return;
+        }
+        probesSucceeded.set(0);
+        probesAvailable.set(probes);
+        transition(State.OPEN, State.HALF_OPEN);
+    }
+
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        if (listener != null) {
+            listener.onStateChange(from, to);
+        }
+        return true;
+    }
+
+    public static class Builder {
+        @Nonnull
+        private final HttpItemClient delegate;
+        @Nullable
+        private HttpItemClient fallback;
+        @Nullable
+        private Listener listener;
+        private double failureRateThreshold = 0.5;
+        private int minimumSends = 20;
+        @Nonnull
+        private Duration window = Duration.ofSeconds(30);
+        private int windowBuckets = 10;
+        @Nonnull
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int probes = 3;
+
+        /**
+         * @param delegate the client to send items with while the circuit isn't open
+         */
+        public Builder(@Nonnull HttpItemClient delegate) {
+            Validate.isNotNull(delegate, "delegate");
+            this.delegate = delegate;
+        }
+
+        /**
+         * @param fallback the client to hand items to while the circuit is open. By default, they fail with a {@link
+         *                 CircuitOpenException} instead.
+         * @return this
+         */
+        public Builder fallback(@Nullable HttpItemClient fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * @param listener notified when the state changes
+         * @return this
+         */
+        public Builder listener(@Nullable Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * @param failureRateThreshold the fraction of sends in the window that must fail for the circuit to open,
+         *                             greater than 0 and at most 1. Defaults to 0.5.
+         * @return this
+         */
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            if (!(failureRateThreshold > 0 && failureRateThreshold <= 1)) {
+                throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * @param minimumSends the number of sends the window must contain before the failure rate is considered.
+         *                     Defaults to 20.
+         * @return this
+         */
+        public Builder minimumSends(int minimumSends) {
+            if (minimumSends < 1) {
+                throw new IllegalArgumentException("minimumSends must be positive");
+            }
+            this.minimumSends = minimumSends;
+            return this;
+        }
+
+        /**
+         * @param window  how far back sends are counted. Defaults to 30s.
+         * @param buckets how many buckets the window is split into; the window slides forward one bucket at a time.
+         *                Defaults to 10.
+         * @return this
+         */
+        public Builder window(@Nonnull Duration window, int buckets) {
+            Validate.isNotNull(window, "window");
+            if (buckets < 1) {
+                throw new IllegalArgumentException("buckets must be positive");
+            }
+            this.window = window;
+            this.windowBuckets = buckets;
+            return this;
+        }
+
+        /**
+         * @param openDuration how long the circuit stays open before probing. Defaults to 30s.
+         * @return this
+         */
+        public Builder openDuration(@Nonnull Duration openDuration) {
+            Validate.isNotNull(openDuration, "openDuration");
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * @param probes the number of items sent while half open, all of which must succeed for the circuit to
+         *               close. Defaults to 3.
+         * @return this
+         */
+        public Builder probes(int probes) {
+            if (probes < 1) {
+                throw new IllegalArgumentException("probes must be positive");
+            }
+            this.probes = probes;
+            return this;
+        }
+
+        public CircuitBreakerItemClient build() {
+            return new CircuitBreakerItemClient(this);
+        }
+
+        @Nonnull
+        public HttpItemClient getDelegate() {
+            return delegate;
+        }
+
+        @Nullable
+        public HttpItemClient getFallback() {
+            return fallback;
+        }
+
+        @Nullable
+        public Listener getListener() {
+            return listener;
+        }
+
+        public double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public int getMinimumSends() {
+            return minimumSends;
+        }
+
+        @Nonnull
+        public Duration getWindow() {
+            return window;
+        }
+
+        public int getWindowBuckets() {
+            return windowBuckets;
+        }
+
+        @Nonnull
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public int getProbes() {
+            return probes;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.truevault.rollbar.http;
+
+import java.io.IOException;
+
+/**
+ * The item wasn't sent because a {@link CircuitBreakerItemClient} is open, i.e. sending has been failing recently.
+ */
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+
+    /**
+     * These are thrown for every item while the circuit is open, so they should be cheap, and the stack trace
+     * wouldn't say anything useful anyway.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -4,6 +4,7 @@ package com.truevault.rollbar.http;
  * Represents an unsuccessful response that had an error message provided.
  */
 public class ErrorMessageResponseException extends HttpResponseException {
+    private static final long serialVersionUID = 1L;
 
     private final String errorMessage;
 
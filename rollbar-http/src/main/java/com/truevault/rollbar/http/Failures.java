@@ -0,0 +1,41 @@
+package com.truevault.rollbar.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.Nonnull;
+
+/**
+ * Classifies the failures reported by {@link HttpItemClient}s.
+ */
+public final class Failures {
+
+    private Failures() {
+    }
+
+    /**
+     * A failure is retryable if sending the same item again later could succeed: I/O errors (including connection
+     * failures) and timeouts, and 429 (rate limited) or 5xx responses. Other responses, like a 400 for an invalid item
+     * or a 403 for a bad access token, will fail the same way every time, and so will anything else: a response that
+     * isn't valid JSON, or a bug like a NullPointerException.
+     *
+     * @param t the failure of a send, possibly wrapped in a {@link CompletionException} or {@link
+     *          ExecutionException}
+     * @return true if sending again later could succeed
+     */
+    public static boolean isRetryable(@Nonnull Throwable t) {
+        if ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        if (t instanceof HttpResponseException) {
+            int status = ((HttpResponseException) t).getHttpStatusCode();
+            return status == 429 || status >= 500;
+        }
+        if (t instanceof JsonProcessingException) {
+            return false;
+        }
+        return t instanceof IOException || t instanceof TimeoutException;
+    }
+}
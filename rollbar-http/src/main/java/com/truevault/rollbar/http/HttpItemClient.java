@@ -7,7 +7,7 @@ import java.util.concurrent.CompletableFuture;
  * An abstraction around the underlying HTTP communication involved in sending an Item to Rollbar. See
  * https://rollbar.com/docs/api/items_post/ for what needs to be POSTed.
  */
-public interface HttpItemClient {
+public interface HttpItemClient extends AutoCloseable {
     /**
      * Send an item (exception or log message) to Rollbar.
      *
@@ -24,4 +24,19 @@ public interface HttpItemClient {
      * @return a CompletableFuture of {@link RollbarResponse}.
      */
     CompletableFuture<RollbarResponse> send(Item item);
+
+    /**
+     * Start sending anything the client is holding back, e.g. items waiting to be combined with later ones, without
+     * waiting for the sends to complete. Does nothing by default.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Release the client's resources. Clients that wrap another client close it too. Sends that haven't completed
+     * yet may fail, so {@link #flush()} and wait for them first if they matter. Does nothing by default.
+     */
+    @Override
+    default void close() {
+    }
 }
@@ -4,6 +4,7 @@ package com.truevault.rollbar.http;
  * Represents an unsuccessful HTTP response.
  */
 public class HttpResponseException extends Exception {
+    private static final long serialVersionUID = 1L;
 
     private final int httpStatusCode;
 
@@ -0,0 +1,242 @@
+package com.truevault.rollbar.http;
+
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.Validate;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An HttpItemClient that sends items again when sending fails in a way that may succeed later (see {@link
+ * Failures#isRetryable(Throwable)}). Other failures, and the last failure once all attempts are used up, are reported
+ * as usual.
+ *
+ * The wait before each retry grows exponentially, and is randomized ("full jitter": anywhere from nothing to the full
+ * backoff) so that many clients that failed at the same time don't all retry at the same time too. Retries are
+ * scheduled on a single shared thread, which only hands them to the delegate, so waiting doesn't tie up any threads.
+ *
+ * Items without a {@link com.truevault.rollbar.payload.data.Data#uuid()} get a random one before the first attempt,
+ * and keep it for every attempt, so that Rollbar can tell that a retry of an item that was actually received (but
+ * whose response was lost) is a duplicate. If the delegate is a {@link SerializedItemClient}, the item is serialized
+ * once, and the same bytes are sent on every attempt.
+ */
+@ThreadSafe
+public class RetryingItemClient implements HttpItemClient {
+    @Nonnull
+    private final HttpItemClient delegate;
+    @Nonnull
+    private final ScheduledExecutorService scheduler;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private RetryingItemClient(Builder builder) {
+        this.delegate = builder.delegate;
+        this.scheduler = builder.scheduler == null ? SharedScheduler.INSTANCE : builder.scheduler;
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffNanos = builder.initialBackoff.toNanos();
+        this.maxBackoffNanos = builder.maxBackoff.toNanos();
+    }
+
+    @Override
+    public CompletableFuture<RollbarResponse> send(Item item) {
+        Item stamped = item;
+        if (item.data().uuid() == null) {
+            stamped = new Item(item.accessToken(), item.data().toBuilder().uuid(randomUuid()).build());
+        }
+
+        Supplier<CompletableFuture<RollbarResponse>> attempt;
+        if (delegate instanceof SerializedItemClient) {
+            final byte[] bytes = JsonOutput.toJsonBytes(stamped);
+            SerializedItemClient serialized = (SerializedItemClient) delegate;
+            attempt = () -> serialized.sendSerialized(ByteBuffer.wrap(bytes));
+        } else {
+            Item finalItem = stamped;
+            attempt = () -> delegate.send(finalItem);
+        }
+
+        CompletableFuture<RollbarResponse> result = new CompletableFuture<>();
+        attempt(attempt, 1, result);
+        return result;
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    /**
+     * Close the delegate. Retries that are still waiting will fail when they are attempted.
+     */
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private void attempt(Supplier<CompletableFuture<RollbarResponse>> attempt, int number,
+            CompletableFuture<RollbarResponse> result) {
+        CompletableFuture<RollbarResponse> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+
+        future.whenComplete((response, t) -> {
+            if (t == null) {
+                result.complete(response);
+            } else if (number >= maxAttempts || !Failures.isRetryable(t)) {
+                result.completeExceptionally(t);
+            } else {
+                try {
+                    scheduler.schedule(() -> attempt(attempt, number + 1, result), backoffNanos(number),
+                            TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // the scheduler has been shut down, so there won't be another attempt
+                    result.completeExceptionally(t);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param failures the number of attempts that have failed so far
+     * @return how long to wait before the next attempt
+     */
+    private long backoffNanos(int failures) {
+        long backoff = initialBackoffNanos;
+        for (int i = 1; i < failures && backoff < maxBackoffNanos; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, maxBackoffNanos);
+        return backoff <= 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    /**
+     * A version 4 (random) UUID. Unlike {@link UUID#randomUUID()}, this doesn't use a shared SecureRandom, so it
+     * doesn't block or contend, at the cost of not being suitable for anything secret. That doesn't matter here:
+     * the UUIDs just need to be unique.
+     *
+     * @return a random UUID
+     */
+    static UUID randomUuid() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & ~0xC000000000000000L) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    private static class SharedScheduler {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rollbar-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static class Builder {
+        @Nonnull
+        private final HttpItemClient delegate;
+        private ScheduledExecutorService scheduler;
+        private int maxAttempts = 3;
+        @Nonnull
+        private Duration initialBackoff = Duration.ofMillis(500);
+        @Nonnull
+        private Duration maxBackoff = Duration.ofSeconds(30);
+
+        /**
+         * @param delegate the client to send items with
+         */
+        public Builder(@Nonnull HttpItemClient delegate) {
+            Validate.isNotNull(delegate, "delegate");
+            this.delegate = delegate;
+        }
+
+        /**
+         * @param maxAttempts the maximum number of times to try sending an item, including the first. Defaults to 3.
+         * @return this
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be positive");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param initialBackoff the most to wait before the first retry. Doubles for each following retry, up to the
+         *                       max backoff. Defaults to 500ms.
+         * @return this
+         */
+        public Builder initialBackoff(@Nonnull Duration initialBackoff) {
+            Validate.isNotNull(initialBackoff, "initialBackoff");
+            if (initialBackoff.isNegative()) {
+                throw new IllegalArgumentException("initialBackoff must not be negative");
+            }
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        /**
+         * @param maxBackoff the most to wait before any retry. Defaults to 30s.
+         * @return this
+         */
+        public Builder maxBackoff(@Nonnull Duration maxBackoff) {
+            Validate.isNotNull(maxBackoff, "maxBackoff");
+            if (maxBackoff.isNegative()) {
+                throw new IllegalArgumentException("maxBackoff must not be negative");
+            }
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * @param scheduler the scheduler to wait for retries on. By default, a single daemon thread shared by all
+         *                  RetryingItemClients is used.
+         * @return this
+         */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public RetryingItemClient build() {
+            return new RetryingItemClient(this);
+        }
+
+        @Nonnull
+        public HttpItemClient getDelegate() {
+            return delegate;
+        }
+
+        public ScheduledExecutorService getScheduler() {
+            return scheduler;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        @Nonnull
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        @Nonnull
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+    }
+}
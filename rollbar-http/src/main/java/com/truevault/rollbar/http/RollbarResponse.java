@@ -22,6 +22,18 @@ public class RollbarResponse {
         return new RollbarResponse(null, ResponseType.FILTERED);
     }
 
+    public static RollbarResponse rateLimited() {
+        return new RollbarResponse(null, ResponseType.RATE_LIMITED);
+    }
+
+    public static RollbarResponse dropped() {
+        return new RollbarResponse(null, ResponseType.DROPPED);
+    }
+
+    public static RollbarResponse spooled() {
+        return new RollbarResponse(null, ResponseType.SPOOLED);
+    }
+
     private RollbarResponse(@Nullable UUID uuid, @Nonnull ResponseType responseType) {
         this.uuid = uuid;
         this.responseType = responseType;
@@ -40,7 +52,7 @@ public class RollbarResponse {
         return responseType;
     }
 
-    enum ResponseType {
+    public enum ResponseType {
         /**
          * The request succeeded
          */
@@ -48,6 +60,18 @@ public class RollbarResponse {
         /**
          * The request was not allowed by the configured ItemFilter
          */
-        FILTERED
+        FILTERED,
+        /**
+         * The item was not sent because the reporter's configured rate limit was exceeded
+         */
+        RATE_LIMITED,
+        /**
+         * The item was discarded by the reporter before it was sent, e.g. because the dispatch queue was full
+         */
+        DROPPED,
+        /**
+         * Rollbar couldn't be reached, so the item was saved to disk to be sent later
+         */
+        SPOOLED
     }
 }
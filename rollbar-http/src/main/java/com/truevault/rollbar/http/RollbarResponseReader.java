@@ -0,0 +1,136 @@
+package com.truevault.rollbar.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.UUID;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads Rollbar's responses to posted items, for HttpItemClient implementations.
+ *
+ * The body is read with a streaming parser, straight from its bytes, rather than decoded to a String and parsed into a
+ * tree. A successful response is only read up to {@code result.uuid}, and the UUID is decoded from the parser's own
+ * buffer without making a String of it. The body is only decoded to a String for the message of an exception, when a
+ * response can't be parsed.
+ */
+public final class RollbarResponseReader {
+    // a plain factory rather than Json's ObjectMapper, which takes far longer to create
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private RollbarResponseReader() {
+    }
+
+    /**
+     * @param body       the response body, UTF-8 encoded
+     * @param statusCode the response's HTTP status code
+     * @return the response, if it was successful
+     * @throws ErrorMessageResponseException if Rollbar responded with an error message
+     * @throws HttpResponseException         if the response couldn't be parsed
+     * @throws IOException                   if the body isn't valid JSON
+     */
+    @Nonnull
+    public static RollbarResponse read(@Nonnull byte[] body, int statusCode) throws HttpResponseException,
+            IOException {
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            if (statusCode == 200) {
+                UUID uuid = findUuid(parser);
+                if (uuid != null) {
+                    return RollbarResponse.ok(uuid);
+                }
+
+                throw new HttpResponseException(statusCode,
+                        "Could not parse successful response: <" + new String(body, UTF_8) + ">");
+            }
+
+            String message = findMessage(parser);
+            if (message == null) {
+                throw new HttpResponseException(statusCode,
+                        "Could not parse unsuccessful response: <" + new String(body, UTF_8) + ">");
+            }
+
+            throw new ErrorMessageResponseException(statusCode, message);
+        }
+    }
+
+    /**
+     * @param hex    32 hex digits, most significant first
+     * @param offset where the digits start
+     * @param length the number of characters
+     * @return the UUID, or null if the characters aren't 32 hex digits
+     */
+    @Nullable
+    public static UUID parseUuid(@Nonnull char[] hex, int offset, int length) {
+        if (length != 32) {
+            return null;
+        }
+        long mostSigBits = 0;
+        long leastSigBits = 0;
+        for (int i = 0; i < 32; i++) {
+            int digit = Character.digit(hex[offset + i], 16);
+            if (digit < 0) {
+                return null;
+            }
+            if (i < 16) {
+                mostSigBits = mostSigBits << 4 | digit;
+            } else {
+                leastSigBits = leastSigBits << 4 | digit;
+            }
+        }
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * @return the UUID at {@code /result/uuid}, or null if there isn't one
+     */
+    @Nullable
+    private static UUID findUuid(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            // the parser keeps a table of field names, so this doesn't allocate a String for each
+            boolean isResult = "result".equals(parser.getCurrentName());
+            if (parser.nextToken() == JsonToken.START_OBJECT && isResult) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    boolean isUuid = "uuid".equals(parser.getCurrentName());
+                    JsonToken value = parser.nextToken();
+                    if (isUuid) {
+                        return value == JsonToken.VALUE_STRING
+                                ? parseUuid(parser.getTextCharacters(), parser.getTextOffset(),
+                                parser.getTextLength())
+                                : null;
+                    }
+                    parser.skipChildren();
+                }
+                return null;
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    /**
+     * @return the text of {@code /message}, or null if there isn't one. Like Jackson's {@code JsonNode.asText("")},
+     * this is empty if it's null, an object or an array.
+     */
+    @Nullable
+    private static String findMessage(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            boolean isMessage = "message".equals(parser.getCurrentName());
+            JsonToken value = parser.nextToken();
+            if (isMessage) {
+                return value.isScalarValue() && value != JsonToken.VALUE_NULL ? parser.getText() : "";
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.truevault.rollbar.http;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An HttpItemClient that can also send items that have already been serialized to JSON, e.g. ones that were saved to
+ * disk earlier.
+ */
+public interface SerializedItemClient extends HttpItemClient {
+    /**
+     * Send an already serialized item. Results are reported the same way as for {@link
+     * #send(com.truevault.rollbar.payload.Item)}.
+     *
+     * @param json the item as UTF-8 JSON, from the buffer's position to its limit. The buffer must not be modified
+     *             until the returned future completes.
+     * @return a CompletableFuture of {@link RollbarResponse}.
+     */
+    CompletableFuture<RollbarResponse> sendSerialized(ByteBuffer json);
+}
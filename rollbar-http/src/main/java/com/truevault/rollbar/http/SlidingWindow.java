@@ -0,0 +1,84 @@
+package com.truevault.rollbar.http;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Counts successes and failures over a sliding time window, split into a ring of buckets. Recording is lock-free.
+ *
+ * When a bucket is reused for a new interval, its counts are reset by whichever thread gets there first. A count
+ * recorded by another thread at that same moment may be lost, which is fine for estimating a failure rate.
+ */
+@ThreadSafe
+final class SlidingWindow {
+    private final long bucketNanos;
+    private final int buckets;
+    // the interval (time / bucketNanos) each bucket is currently counting
+    private final AtomicLongArray intervals;
+    private final AtomicLongArray successes;
+    private final AtomicLongArray failures;
+
+    /**
+     * @param windowNanos the length of the window
+     * @param buckets     the number of buckets the window is split into
+     */
+    SlidingWindow(long windowNanos, int buckets) {
+        this.buckets = buckets;
+        this.bucketNanos = Math.max(1, windowNanos / buckets);
+        this.intervals = new AtomicLongArray(buckets);
+        this.successes = new AtomicLongArray(buckets);
+        this.failures = new AtomicLongArray(buckets);
+        reset();
+    }
+
+    void record(boolean failure, long nanoTime) {
+        long interval = Math.floorDiv(nanoTime, bucketNanos);
+        int i = (int) Math.floorMod(interval, (long) buckets);
+        long current = intervals.get(i);
+        if (current != interval && intervals.compareAndSet(i, current, interval)) {
+            successes.set(i, 0);
+            failures.set(i, 0);
+        }
+        (failure ? failures : successes).incrementAndGet(i);
+    }
+
+    /**
+     * @return the successes and failures recorded in the window ending at the given time
+     */
+    Counts counts(long nanoTime) {
+        long interval = Math.floorDiv(nanoTime, bucketNanos);
+        long success = 0;
+        long failure = 0;
+        for (int i = 0; i < buckets; i++) {
+            long bucketInterval = intervals.get(i);
+            if (bucketInterval > interval - buckets && bucketInterval <= interval) {
+                success += successes.get(i);
+                failure += failures.get(i);
+            }
+        }
+        return new Counts(success, failure);
+    }
+
+    void reset() {
+        for (int i = 0; i < buckets; i++) {
+            // an interval that's never inside the window
+            intervals.set(i, Long.MIN_VALUE / 2);
+            successes.set(i, 0);
+            failures.set(i, 0);
+        }
+    }
+
+    static final class Counts {
+        final long successes;
+        final long failures;
+
+        Counts(long successes, long failures) {
+            this.successes = successes;
+            this.failures = failures;
+        }
+
+        long total() {
+            return successes + failures;
+        }
+    }
+}
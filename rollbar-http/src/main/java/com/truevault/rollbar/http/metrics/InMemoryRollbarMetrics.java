@@ -0,0 +1,135 @@
+package com.truevault.rollbar.http.metrics;
+
+import com.truevault.rollbar.payload.data.Level;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Keeps counts and histograms in memory, for exporting to whatever monitoring system is in use. Counters are
+ * LongAdders and histograms are {@link Histogram}s, so many threads can record at once without contending.
+ *
+ * Reports without a level are counted as {@link Level#ERROR}, which is what Rollbar assumes for items without a
+ * level.
+ */
+@ThreadSafe
+public class InMemoryRollbarMetrics implements RollbarMetrics {
+    private static final Level[] LEVELS = Level.values();
+
+    // indexed by Stage ordinal, then Level ordinal
+    private final LongAdder[][] counts = new LongAdder[Stage.values().length][LEVELS.length];
+    private final Histogram callerNanos = new Histogram();
+    private final Histogram serializationNanos = new Histogram();
+    private final Histogram responseNanos = new Histogram();
+    private final Histogram payloadBytes = new Histogram();
+    private final Histogram ioThreadCompletionNanos = new Histogram();
+    private final Histogram executorCompletionNanos = new Histogram();
+
+    public InMemoryRollbarMetrics() {
+        for (LongAdder[] byLevel : counts) {
+            for (int i = 0; i < byLevel.length; i++) {
+                byLevel[i] = new LongAdder();
+            }
+        }
+    }
+
+    @Override
+    public void count(@Nonnull Stage stage, @Nullable Level level) {
+        counts[stage.ordinal()][(level == null ? Level.ERROR : level).ordinal()].increment();
+    }
+
+    @Override
+    public void recordCallerNanos(long nanos) {
+        callerNanos.record(nanos);
+    }
+
+    @Override
+    public void recordSerializationNanos(long nanos) {
+        serializationNanos.record(nanos);
+    }
+
+    @Override
+    public void recordResponseNanos(long nanos) {
+        responseNanos.record(nanos);
+    }
+
+    @Override
+    public void recordPayloadBytes(int bytes) {
+        payloadBytes.record(bytes);
+    }
+
+    @Override
+    public void recordCompletionNanos(long nanos, boolean onIoThread) {
+        (onIoThread ? ioThreadCompletionNanos : executorCompletionNanos).record(nanos);
+    }
+
+    /**
+     * @return the number of reports at the level that reached the stage
+     */
+    public long getCount(@Nonnull Stage stage, @Nonnull Level level) {
+        return counts[stage.ordinal()][level.ordinal()].sum();
+    }
+
+    /**
+     * @return the number of reports at any level that reached the stage
+     */
+    public long getCount(@Nonnull Stage stage) {
+        long count = 0;
+        for (LongAdder adder : counts[stage.ordinal()]) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return the time reporting methods took on the calling thread, in nanoseconds
+     */
+    @Nonnull
+    public Histogram getCallerNanos() {
+        return callerNanos;
+    }
+
+    /**
+     * @return the time serializing items took, in nanoseconds
+     */
+    @Nonnull
+    public Histogram getSerializationNanos() {
+        return serializationNanos;
+    }
+
+    /**
+     * @return the time from reports being made to their responses, in nanoseconds
+     */
+    @Nonnull
+    public Histogram getResponseNanos() {
+        return responseNanos;
+    }
+
+    /**
+     * @return the sizes of serialized items, in bytes
+     */
+    @Nonnull
+    public Histogram getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    /**
+     * @return the time HTTP client I/O threads spent on each response, in nanoseconds: parsing it and completing its
+     * future, or just handing that off to a completion executor. Compare it with and without a completion executor
+     * to see the I/O thread time saved.
+     */
+    @Nonnull
+    public Histogram getIoThreadCompletionNanos() {
+        return ioThreadCompletionNanos;
+    }
+
+    /**
+     * @return the time completion executors spent parsing responses and completing their futures, including the
+     * callbacks that ran, in nanoseconds
+     */
+    @Nonnull
+    public Histogram getExecutorCompletionNanos() {
+        return executorCompletionNanos;
+    }
+}
@@ -0,0 +1,95 @@
+package com.truevault.rollbar.http.metrics;
+
+import com.truevault.rollbar.payload.data.Level;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Receives measurements from the reporting pipeline: how many reports reached each stage, at which level, and how
+ * long the expensive parts took. Every method does nothing by default, so implementations only override what they
+ * need.
+ *
+ * Methods are called from application threads, dispatch threads and I/O threads alike, often concurrently, so they
+ * must be thread-safe and fast, and must not throw.
+ *
+ * Components given {@link #NOOP} don't take any measurements (not even reading the clock), so leaving metrics off
+ * costs nothing. See {@link InMemoryRollbarMetrics} for an implementation that keeps everything in memory.
+ */
+public interface RollbarMetrics {
+    /**
+     * Ignores everything.
+     */
+    RollbarMetrics NOOP = new RollbarMetrics() {
+    };
+
+    enum Stage {
+        /**
+         * An item was built for a report.
+         */
+        BUILT,
+        /**
+         * A report was discarded by the minimum level, the preview filter or the item filter.
+         */
+        FILTERED,
+        /**
+         * An item was changed by the item transformer.
+         */
+        TRANSFORMED,
+        /**
+         * Rollbar accepted an item.
+         */
+        SENT,
+        /**
+         * An item was saved to disk to be sent later.
+         */
+        SPOOLED,
+        /**
+         * Sending an item failed.
+         */
+        FAILED,
+        /**
+         * A report was discarded without being sent: rate limited, dropped from a full queue, or made after the
+         * reporter was closed.
+         */
+        DROPPED
+    }
+
+    /**
+     * @param stage the stage a report reached
+     * @param level the report's level, or null if it has none
+     */
+    default void count(@Nonnull Stage stage, @Nullable Level level) {
+    }
+
+    /**
+     * @param nanos the time a reporting method took on the calling thread
+     */
+    default void recordCallerNanos(long nanos) {
+    }
+
+    /**
+     * @param nanos the time it took to serialize an item
+     */
+    default void recordSerializationNanos(long nanos) {
+    }
+
+    /**
+     * @param nanos the time from a report being made to its response
+     */
+    default void recordResponseNanos(long nanos) {
+    }
+
+    /**
+     * @param bytes the size of a serialized item
+     */
+    default void recordPayloadBytes(int bytes) {
+    }
+
+    /**
+     * @param nanos      the time a thread spent on a response: parsing it and completing its future, including any
+     *                   callbacks that ran when it completed, or just handing that off to a completion executor
+     * @param onIoThread whether the thread was the HTTP client's I/O thread, or the completion executor's
+     */
+    default void recordCompletionNanos(long nanos, boolean onIoThread) {
+    }
+}
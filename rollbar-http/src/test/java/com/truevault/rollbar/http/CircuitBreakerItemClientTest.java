@@ -0,0 +1,181 @@
+package com.truevault.rollbar.http;
+
+import com.truevault.rollbar.http.CircuitBreakerItemClient.State;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.body.Body;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.DROPPED;
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.OK;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakerItemClientTest {
+    private final FakeClient fake = new FakeClient();
+    private final List<State> transitions = new ArrayList<>();
+
+    @Test
+    public void opensOnceFailureRateIsReached() throws Exception {
+        CircuitBreakerItemClient client = builder().build();
+
+        fake.failure = new IOException("down");
+        for (int i = 0; i < 4; i++) {
+            assertEquals(State.CLOSED, client.getState());
+            sendQuietly(client);
+        }
+
+        assertEquals(State.OPEN, client.getState());
+        assertEquals(asList(State.OPEN), transitions);
+    }
+
+    @Test
+    public void failsFastWhileOpen() throws Exception {
+        CircuitBreakerItemClient client = open(builder().openDuration(Duration.ofHours(1)).build());
+        int sent = fake.sends.get();
+
+        try {
+            client.send(item()).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CircuitOpenException);
+        }
+        assertEquals(sent, fake.sends.get());
+    }
+
+    @Test
+    public void divertsToFallbackWhileOpen() throws Exception {
+        HttpItemClient fallback = item -> CompletableFuture.completedFuture(RollbarResponse.dropped());
+        CircuitBreakerItemClient client = open(builder().openDuration(Duration.ofHours(1)).fallback(fallback).build());
+
+        assertEquals(DROPPED, client.send(item()).get().getResponseType());
+    }
+
+    @Test
+    public void successfulProbesClose() throws Exception {
+        CircuitBreakerItemClient client = open(builder().openDuration(Duration.ofMillis(10)).probes(2).build());
+        Thread.sleep(20);
+
+        fake.failure = null;
+        assertEquals(OK, client.send(item()).get().getResponseType());
+        assertEquals(State.HALF_OPEN, client.getState());
+        assertEquals(OK, client.send(item()).get().getResponseType());
+
+        assertEquals(State.CLOSED, client.getState());
+        assertEquals(asList(State.OPEN, State.HALF_OPEN, State.CLOSED), transitions);
+    }
+
+    @Test
+    public void failedProbeReopens() throws Exception {
+        CircuitBreakerItemClient client = open(builder().openDuration(Duration.ofMillis(10)).build());
+        Thread.sleep(20);
+
+        sendQuietly(client);
+
+        assertEquals(State.OPEN, client.getState());
+        assertEquals(asList(State.OPEN, State.HALF_OPEN, State.OPEN), transitions);
+    }
+
+    @Test
+    public void probesThatThrowReopen() throws Exception {
+        CircuitBreakerItemClient client = open(builder().openDuration(Duration.ofMillis(10)).probes(1).build());
+        Thread.sleep(20);
+        fake.thrown = new IllegalStateException("closed");
+
+        CompletableFuture<RollbarResponse> probe = client.send(item());
+
+        assertTrue(probe.isCompletedExceptionally());
+        assertEquals(State.OPEN, client.getState());
+        assertEquals(asList(State.OPEN, State.HALF_OPEN, State.OPEN), transitions);
+    }
+
+    @Test
+    public void probesAreLimited() throws Exception {
+        CircuitBreakerItemClient client = open(builder().openDuration(Duration.ofMillis(10)).probes(1).build());
+        Thread.sleep(20);
+        fake.hold = true;
+        int sent = fake.sends.get();
+
+        client.send(item());
+        CompletableFuture<RollbarResponse> rejected = client.send(item());
+
+        assertEquals(sent + 1, fake.sends.get());
+        assertTrue(rejected.isCompletedExceptionally());
+    }
+
+    @Test
+    public void unretryableFailuresDontCount() throws Exception {
+        CircuitBreakerItemClient client = builder().build();
+
+        fake.failure = new ErrorMessageResponseException(400, "bad item");
+        for (int i = 0; i < 10; i++) {
+            sendQuietly(client);
+        }
+
+        assertEquals(State.CLOSED, client.getState());
+    }
+
+    private CircuitBreakerItemClient.Builder builder() {
+        return new CircuitBreakerItemClient.Builder(fake)
+                .minimumSends(4)
+                .failureRateThreshold(0.5)
+                .listener((from, to) -> transitions.add(to));
+    }
+
+    private CircuitBreakerItemClient open(CircuitBreakerItemClient client) {
+        fake.failure = new IOException("down");
+        while (client.getState() != State.OPEN) {
+            sendQuietly(client);
+        }
+        return client;
+    }
+
+    private static void sendQuietly(HttpItemClient client) {
+        try {
+            client.send(item()).get();
+        } catch (InterruptedException | ExecutionException e) {
+            // expected
+        }
+    }
+
+    private static Item item() {
+        return new Item("token", new Data.Builder(Body.fromString("message"), "test").build());
+    }
+
+    private static class FakeClient implements HttpItemClient {
+        final AtomicInteger sends = new AtomicInteger();
+        volatile Exception failure;
+        // if set, sends never complete
+        volatile boolean hold;
+        // if set, sends throw it instead of returning a future
+        volatile RuntimeException thrown;
+
+        @Override
+        public CompletableFuture<RollbarResponse> send(Item item) {
+            sends.incrementAndGet();
+            if (thrown != null) {
+                throw thrown;
+            }
+            CompletableFuture<RollbarResponse> future = new CompletableFuture<>();
+            if (hold) {
+                return future;
+            }
+            if (failure == null) {
+                future.complete(RollbarResponse.ok(UUID.randomUUID()));
+            } else {
+                future.completeExceptionally(failure);
+            }
+            return future;
+        }
+    }
+}
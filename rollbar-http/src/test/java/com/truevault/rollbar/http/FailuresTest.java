@@ -0,0 +1,50 @@
+package com.truevault.rollbar.http;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FailuresTest {
+
+    @Test
+    public void ioErrorsAndTimeoutsAreRetryable() {
+        assertTrue(Failures.isRetryable(new IOException("reset")));
+        assertTrue(Failures.isRetryable(new ConnectException("refused")));
+        assertTrue(Failures.isRetryable(new TimeoutException()));
+        assertTrue(Failures.isRetryable(new CompletionException(new ConnectException("refused"))));
+        assertTrue(Failures.isRetryable(new ExecutionException(new TimeoutException())));
+    }
+
+    @Test
+    public void rateLimitsAndServerErrorsAreRetryable() {
+        assertTrue(Failures.isRetryable(new HttpResponseException(429, "rate limited")));
+        assertTrue(Failures.isRetryable(new ErrorMessageResponseException(503, "unavailable")));
+        assertFalse(Failures.isRetryable(new ErrorMessageResponseException(400, "invalid")));
+        assertFalse(Failures.isRetryable(new HttpResponseException(403, "bad token")));
+    }
+
+    @Test
+    public void bugsAreNotRetryable() {
+        assertFalse(Failures.isRetryable(new NullPointerException()));
+        assertFalse(Failures.isRetryable(new IllegalArgumentException()));
+        assertFalse(Failures.isRetryable(new CompletionException(new NullPointerException())));
+    }
+
+    @Test
+    public void unparseableResponsesAreNotRetryable() throws HttpResponseException {
+        try {
+            RollbarResponseReader.read("{\"err\": 0, ".getBytes(UTF_8), 200);
+            fail();
+        } catch (IOException e) {
+            assertFalse(e.toString(), Failures.isRetryable(e));
+        }
+    }
+}
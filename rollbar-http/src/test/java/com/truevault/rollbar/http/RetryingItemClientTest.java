@@ -0,0 +1,181 @@
+package com.truevault.rollbar.http;
+
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.body.Body;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class RetryingItemClientTest {
+
+    @Test
+    public void retriesTransientFailures() throws Exception {
+        FakeClient fake = new FakeClient(new IOException("reset"), new HttpResponseException(503, "unavailable"));
+
+        assertEquals(OK, client(fake).send(item(null)).get().getResponseType());
+        assertEquals(3, fake.items.size());
+    }
+
+    @Test
+    public void doesNotRetryPermanentFailures() throws Exception {
+        ErrorMessageResponseException failure = new ErrorMessageResponseException(400, "invalid");
+        FakeClient fake = new FakeClient(failure);
+
+        try {
+            client(fake).send(item(null)).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(1, fake.items.size());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() throws Exception {
+        FakeClient fake = new FakeClient(new IOException("1"), new IOException("2"), new IOException("3"));
+
+        try {
+            client(fake).send(item(null)).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("3", e.getCause().getMessage());
+        }
+        assertEquals(3, fake.items.size());
+    }
+
+    @Test
+    public void everyAttemptHasTheSameAssignedUuid() throws Exception {
+        FakeClient fake = new FakeClient(new IOException("reset"));
+
+        client(fake).send(item(null)).get();
+
+        UUID uuid = fake.items.get(0).data().uuid();
+        assertNotNull(uuid);
+        assertEquals(4, uuid.version());
+        assertEquals(uuid, fake.items.get(1).data().uuid());
+    }
+
+    @Test
+    public void existingUuidIsKept() throws Exception {
+        FakeClient fake = new FakeClient();
+        UUID uuid = UUID.randomUUID();
+
+        client(fake).send(item(uuid)).get();
+
+        assertEquals(uuid, fake.items.get(0).data().uuid());
+    }
+
+    @Test
+    public void serializedClientsGetTheSameBytes() throws Exception {
+        List<ByteBuffer> sent = new ArrayList<>();
+        SerializedItemClient fake = new SerializedItemClient() {
+            @Override
+            public CompletableFuture<RollbarResponse> sendSerialized(ByteBuffer json) {
+                sent.add(json);
+                CompletableFuture<RollbarResponse> future = new CompletableFuture<>();
+                if (sent.size() == 1) {
+                    future.completeExceptionally(new IOException("reset"));
+                } else {
+                    future.complete(RollbarResponse.ok(UUID.randomUUID()));
+                }
+                return future;
+            }
+
+            @Override
+            public CompletableFuture<RollbarResponse> send(Item item) {
+                throw new AssertionError("should send serialized");
+            }
+        };
+
+        client(fake).send(item(null)).get();
+
+        assertEquals(2, sent.size());
+        assertSame(sent.get(0).array(), sent.get(1).array());
+    }
+
+    @Test
+    public void failsWithTheLastFailureIfTheSchedulerIsShutDown() throws Exception {
+        IOException failure = new IOException("reset");
+        FakeClient fake = new FakeClient(failure);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.shutdown();
+        RetryingItemClient client = new RetryingItemClient.Builder(fake).scheduler(scheduler).build();
+
+        try {
+            client.send(item(null)).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(1, fake.items.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeBackoffs() {
+        new RetryingItemClient.Builder(new FakeClient()).initialBackoff(Duration.ofMillis(-1));
+    }
+
+    @Test
+    public void randomUuidsAreVersion4() {
+        Set<UUID> uuids = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = RetryingItemClient.randomUuid();
+            assertEquals(4, uuid.version());
+            assertEquals(2, uuid.variant());
+            uuids.add(uuid);
+        }
+        assertEquals(1000, uuids.size());
+    }
+
+    private static RetryingItemClient client(HttpItemClient delegate) {
+        return new RetryingItemClient.Builder(delegate)
+                .initialBackoff(Duration.ofMillis(1))
+                .build();
+    }
+
+    private static Item item(UUID uuid) {
+        return new Item("token", new Data.Builder(Body.fromString("message"), "test").uuid(uuid).build());
+    }
+
+    /**
+     * Fails with the given failures in order, then succeeds.
+     */
+    private static class FakeClient implements HttpItemClient {
+        final List<Item> items = new ArrayList<>();
+        private final Exception[] failures;
+
+        FakeClient(Exception... failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public synchronized CompletableFuture<RollbarResponse> send(Item item) {
+            items.add(item);
+            CompletableFuture<RollbarResponse> future = new CompletableFuture<>();
+            if (items.size() <= failures.length) {
+                future.completeExceptionally(failures[items.size() - 1]);
+            } else {
+                future.complete(RollbarResponse.ok(UUID.randomUUID()));
+            }
+            return future;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.truevault.rollbar.http;
+
+import java.io.IOException;
+import java.util.UUID;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class RollbarResponseReaderTest {
+
+    @Test
+    public void readsTheUuidWherever() throws IOException, HttpResponseException {
+        RollbarResponse response = read("{\"result\": {\"id\": null, \"nested\": {\"uuid\": \"x\"}, "
+                + "\"uuid\": \"66E675F0b37f4a45ae9696359aa13700\"}, \"err\": 0}", 200);
+
+        assertEquals(UUID.fromString("66e675f0-b37f-4a45-ae96-96359aa13700"), response.getUuid());
+    }
+
+    @Test
+    public void stopsReadingOnceTheUuidIsFound() throws IOException, HttpResponseException {
+        RollbarResponse response = read("{\"result\": {\"uuid\": \"66e675f0b37f4a45ae9696359aa13700\"}, garbage", 200);
+
+        assertEquals(UUID.fromString("66e675f0-b37f-4a45-ae96-96359aa13700"), response.getUuid());
+    }
+
+    @Test
+    public void rejectsInvalidUuids() throws IOException {
+        for (String uuid : new String[]{"\"66e675f0b37f4a45ae9696359aa1370\"", "\"66e675f0b37f4a45ae9696359aa1370g\"",
+                "12", "null", "{}"}) {
+            String body = "{\"result\": {\"uuid\": " + uuid + "}}";
+            try {
+                read(body, 200);
+                fail(uuid);
+            } catch (HttpResponseException e) {
+                assertEquals("Could not parse successful response: <" + body + ">", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void readsErrorMessages() throws IOException, HttpResponseException {
+        assertEquals("invalid access token", errorMessage("{\"err\": 1, \"message\": \"invalid access token\"}"));
+        assertEquals("", errorMessage("{\"err\": {\"message\": \"not this one\"}, \"message\": {\"a\": 1}}"));
+        assertEquals("42", errorMessage("{\"message\": 42}"));
+        assertEquals("", errorMessage("{\"message\": null}"));
+    }
+
+    @Test
+    public void parsesUuids() {
+        char[] hex = "x0123456789abcdefFEDCBA9876543210x".toCharArray();
+
+        assertEquals(new UUID(0x0123456789abcdefL, 0xfedcba9876543210L), RollbarResponseReader.parseUuid(hex, 1, 32));
+        assertNull(RollbarResponseReader.parseUuid(hex, 0, 32));
+        assertNull(RollbarResponseReader.parseUuid(hex, 1, 31));
+    }
+
+    private static String errorMessage(String body) throws IOException, HttpResponseException {
+        try {
+            read(body, 401);
+            fail();
+            return null;
+        } catch (ErrorMessageResponseException e) {
+            assertEquals(401, e.getHttpStatusCode());
+            return e.getErrorMessage();
+        }
+    }
+
+    private static RollbarResponse read(String body, int statusCode) throws IOException, HttpResponseException {
+        return RollbarResponseReader.read(body.getBytes(UTF_8), statusCode);
+    }
+}
@@ -0,0 +1,50 @@
+package com.truevault.rollbar.http.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        assertEquals(0, Histogram.bucketOf(0));
+        assertEquals(7, Histogram.bucketOf(7));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, Histogram.highestValueOf(Histogram.BUCKETS - 1));
+
+        long[] values = {8, 9, 15, 16, 17, 1000, 123456789, 1L << 40, (1L << 40) - 1};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            long highest = Histogram.highestValueOf(bucket);
+            assertTrue(value + " in bucket ending at " + highest, highest >= value);
+            assertTrue(value + " in bucket ending at " + highest, highest - value <= value / 8);
+            assertEquals(bucket + 1, Histogram.bucketOf(highest + 1));
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinABucket() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getSum());
+        assertEquals(1000, histogram.getMax());
+        long median = histogram.valueAtPercentile(50);
+        assertTrue(String.valueOf(median), median >= 500 && median <= 500 * 9 / 8);
+        assertEquals(1000, histogram.valueAtPercentile(100));
+        assertEquals(1, histogram.valueAtPercentile(0));
+    }
+
+    @Test
+    public void emptyHistogramIsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.valueAtPercentile(99));
+        assertEquals(0, new Histogram().valueAtPercentile(99));
+    }
+}
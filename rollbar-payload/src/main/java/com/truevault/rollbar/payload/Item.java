@@ -1,12 +1,22 @@
 package com.truevault.rollbar.payload;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
 import com.truevault.rollbar.payload.data.Data;
 import com.truevault.rollbar.utilities.ArgumentNullException;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
 import com.truevault.rollbar.utilities.Validate;
+import java.io.IOException;
 import javax.annotation.Nonnull;
 
-public final class Item {
+@JsonSerialize(using = Item.Serializer.class)
+@GenerateJsonWriter
+public final class Item implements JsonWritable {
     private final String accessToken;
     private final Data data;
 
@@ -30,4 +40,25 @@ public final class Item {
     public Data data() {
         return data;
     }
+
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        ItemJsonWriter.write(this, out);
+    }
+
+    static class Serializer extends StdSerializer<Item> {
+        private static final long serialVersionUID = 1L;
+
+        Serializer() {
+            super(Item.class);
+        }
+
+        @Override
+        public void serialize(Item value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("access_token", value.accessToken);
+            provider.defaultSerializeField("data", value.data, gen);
+            gen.writeEndObject();
+        }
+    }
 }
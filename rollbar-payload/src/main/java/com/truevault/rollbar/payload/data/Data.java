@@ -1,10 +1,18 @@
 package com.truevault.rollbar.payload.data;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
 import com.truevault.rollbar.payload.data.body.Body;
 import com.truevault.rollbar.utilities.ArgumentNullException;
 import com.truevault.rollbar.utilities.InvalidLengthException;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
 import com.truevault.rollbar.utilities.Validate;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -15,7 +23,9 @@ import javax.annotation.concurrent.NotThreadSafe;
 /**
  * Represents the actual data being posted to Rollbar
  */
-public class Data {
+@JsonSerialize(using = Data.Serializer.class)
+@GenerateJsonWriter
+public class Data implements JsonWritable {
     @Nonnull
     private final String environment;
     @Nonnull
@@ -225,6 +235,64 @@ public class Data {
         return this.notifier;
     }
 
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        DataJsonWriter.write(this, out);
+    }
+
+    /**
+     * Writes the same JSON as the {@link JsonProperty} accessors, in the same order, without copying custom.
+     */
+    static class Serializer extends StdSerializer<Data> {
+        private static final long serialVersionUID = 1L;
+
+        Serializer() {
+            super(Data.class);
+        }
+
+        @Override
+        public void serialize(Data value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("environment", value.environment);
+            provider.defaultSerializeField("body", value.body, gen);
+            if (value.level != null) {
+                gen.writeStringField("level", value.level.asJson());
+            }
+            if (value.timestamp != null) {
+                gen.writeNumberField("timestamp", value.timestamp.getEpochSecond());
+            }
+            writeString(gen, "code_version", value.codeVersion);
+            writeString(gen, "platform", value.platform);
+            writeString(gen, "language", value.language);
+            writeString(gen, "framework", value.framework);
+            writeString(gen, "context", value.context);
+            writeValue(gen, provider, "request", value.request);
+            writeValue(gen, provider, "person", value.person);
+            writeValue(gen, provider, "server", value.server);
+            writeValue(gen, provider, "custom", value.custom);
+            writeString(gen, "fingerprint", value.fingerprint);
+            writeString(gen, "title", value.title);
+            if (value.uuid != null) {
+                gen.writeStringField("uuid", value.uuid.toString());
+            }
+            writeValue(gen, provider, "notifier", value.notifier);
+            gen.writeEndObject();
+        }
+
+        private static void writeString(JsonGenerator gen, String name, String value) throws IOException {
+            if (value != null) {
+                gen.writeStringField(name, value);
+            }
+        }
+
+        private static void writeValue(JsonGenerator gen, SerializerProvider provider, String name, Object value)
+                throws IOException {
+            if (value != null) {
+                provider.defaultSerializeField(name, value, gen);
+            }
+        }
+    }
+
     @NotThreadSafe
     public static class Builder {
         private String environment;
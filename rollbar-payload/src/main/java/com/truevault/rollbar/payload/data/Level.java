@@ -1,11 +1,16 @@
 package com.truevault.rollbar.payload.data;
 
 import com.fasterxml.jackson.annotation.JsonValue;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
+import javax.annotation.Nonnull;
 
 /**
  * The Level of a Rollbar Report.
  */
-public enum Level implements Comparable<Level> {
+@GenerateJsonWriter
+public enum Level implements Comparable<Level>, JsonWritable {
     /**
      * A critical error (must be fixed ASAP).
      */
@@ -56,4 +61,9 @@ public enum Level implements Comparable<Level> {
     public String asJson() {
         return jsonName;
     }
+
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        LevelJsonWriter.write(this, out);
+    }
 }
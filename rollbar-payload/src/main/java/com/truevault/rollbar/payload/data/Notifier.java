@@ -1,11 +1,16 @@
 package com.truevault.rollbar.payload.data;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
+import javax.annotation.Nonnull;
 
 /**
  * Information about this notifier, or one based off of this
  */
-public class Notifier {
+@GenerateJsonWriter
+public class Notifier implements JsonWritable {
     public static final String defaultName = "truevault-rollbar";
     public static final String defaultVersion = Notifier.class.getPackage().getImplementationVersion();
 
@@ -45,4 +50,8 @@ public class Notifier {
         return this.version;
     }
 
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        NotifierJsonWriter.write(this, out);
+    }
 }
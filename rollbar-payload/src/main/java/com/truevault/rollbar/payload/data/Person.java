@@ -1,16 +1,21 @@
 package com.truevault.rollbar.payload.data;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
 import com.truevault.rollbar.utilities.ArgumentNullException;
 import com.truevault.rollbar.utilities.InvalidLengthException;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
 import com.truevault.rollbar.utilities.Validate;
+import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
 /**
  * Represents the user affected by an error
  */
 @Immutable
-public class Person {
+@GenerateJsonWriter
+public class Person implements JsonWritable {
     private final String id;
     private final String username;
     private final String email;
@@ -66,4 +71,9 @@ public class Person {
     public String email() {
         return this.email;
     }
+
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        PersonJsonWriter.write(this, out);
+    }
 }
@@ -1,17 +1,39 @@
 package com.truevault.rollbar.payload.data.body;
 
 import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
 import com.truevault.rollbar.utilities.ArgumentNullException;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
 import com.truevault.rollbar.utilities.StringUtils;
 import com.truevault.rollbar.utilities.Validate;
+import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
  * A container for the actual error(s), message, or crash report that caused this error.
  */
-public class Body {
+@JsonSerialize(using = Body.Serializer.class)
+@GenerateJsonWriter
+public class Body implements JsonWritable {
+    /**
+     * The key for each kind of contents, e.g. trace_chain for {@link TraceChain}.
+     */
+    private static final ClassValue<SerializedString> KEYS = new ClassValue<SerializedString>() {
+        @Override
+        protected SerializedString computeValue(Class<?> type) {
+            return new SerializedString(toSnakeCase(type.getSimpleName()));
+        }
+    };
+
     /**
      * Create a Body from an error. If {@link Throwable#getCause()} isn't null will return a Trace Chain,
      * otherwise returns a Trace
@@ -33,21 +55,38 @@ public class Body {
      * @throws ArgumentNullException if error is null
      */
     public static Body fromThrowable(Throwable error, String description) throws ArgumentNullException {
+        return fromThrowable(error, description, FrameCache.shared());
+    }
+
+    /**
+     * Create a Body from an error with a human readable description. If {@link Throwable#getCause()} isn't null will
+     * return a Trace Chain
+     * @param error       the error to turn into a Body
+     * @param description the human readable description of the top level error in the chain (or the error itself if not
+     *                    a chained error).
+     * @param frameCache  the cache to reuse frames from, or null to convert the stack traces every time
+     * @return the Rollbar Body constructed from the error
+     * @throws ArgumentNullException if error is null
+     */
+    public static Body fromThrowable(Throwable error, String description, @Nullable FrameCache frameCache)
+            throws ArgumentNullException {
         Validate.isNotNull(error, "error");
         if (error.getCause() == null) {
-            return Body.trace(error, description);
+            return Body.trace(error, description, frameCache);
         } else {
-            return Body.traceChain(error, description);
+            return Body.traceChain(error, description, frameCache);
         }
     }
 
-    private static Body traceChain(Throwable error, String description) throws ArgumentNullException {
-        final TraceChain chain = TraceChain.fromThrowable(error, description);
+    private static Body traceChain(Throwable error, String description, @Nullable FrameCache frameCache)
+            throws ArgumentNullException {
+        final TraceChain chain = TraceChain.fromThrowable(error, description, frameCache);
         return new Body(chain);
     }
 
-    private static Body trace(Throwable error, String description) throws ArgumentNullException {
-        final Trace trace = Trace.fromThrowable(error, description);
+    private static Body trace(Throwable error, String description, @Nullable FrameCache frameCache)
+            throws ArgumentNullException {
+        final Trace trace = Trace.fromThrowable(error, description, frameCache);
         return new Body(trace);
     }
 
@@ -164,15 +203,36 @@ public class Body {
     @JsonValue
     public Map<String, Object> asJson() {
         Map<String, Object> obj = new LinkedHashMap<String, Object>();
-        obj.put(key(), contents());
+        obj.put(key().getValue(), contents());
         return obj;
     }
 
-    private String key() {
-        return toSnakeCase(contents.getClass().getSimpleName());
+    private SerializedString key() {
+        return KEYS.get(contents.getClass());
     }
 
     private static String toSnakeCase(String simpleName) {
         return StringUtils.join("_", simpleName.split("(?=\\p{Lu})")).toLowerCase();
     }
+
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        BodyJsonWriter.write(this, out);
+    }
+
+    static class Serializer extends StdSerializer<Body> {
+        private static final long serialVersionUID = 1L;
+
+        Serializer() {
+            super(Body.class);
+        }
+
+        @Override
+        public void serialize(Body value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeFieldName(value.key());
+            provider.defaultSerializeValue(value.contents, gen);
+            gen.writeEndObject();
+        }
+    }
 }
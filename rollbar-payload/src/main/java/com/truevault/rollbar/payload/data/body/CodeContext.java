@@ -1,13 +1,18 @@
 package com.truevault.rollbar.payload.data.body;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
 import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nonnull;
 
 /**
  * Represents the context around the code where the error occurred (lines before, 'pre', and after, 'post')
  */
-public class CodeContext {
+@GenerateJsonWriter
+public class CodeContext implements JsonWritable {
     private final List<String> pre;
     private final List<String> post;
 
@@ -35,4 +40,9 @@ public class CodeContext {
     public List<String> post() {
         return post;
     }
+
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        CodeContextJsonWriter.write(this, out);
+    }
 }
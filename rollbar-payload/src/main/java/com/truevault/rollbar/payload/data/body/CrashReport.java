@@ -1,14 +1,19 @@
 package com.truevault.rollbar.payload.data.body;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
 import com.truevault.rollbar.utilities.ArgumentNullException;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
 import com.truevault.rollbar.utilities.Validate;
+import javax.annotation.Nonnull;
 
 /**
  * Represents a crash report (currently only for iOS, eventually Android, and maybe (if possible) core and memory
  * dumps)
  */
-public class CrashReport implements BodyContents {
+@GenerateJsonWriter
+public class CrashReport implements BodyContents, JsonWritable {
     private final String raw;
 
     /**
@@ -30,4 +35,8 @@ public class CrashReport implements BodyContents {
         return this.raw;
     }
 
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        CrashReportJsonWriter.write(this, out);
+    }
 }
@@ -1,13 +1,18 @@
 package com.truevault.rollbar.payload.data.body;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
 import com.truevault.rollbar.utilities.ArgumentNullException;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
 import com.truevault.rollbar.utilities.Validate;
+import javax.annotation.Nonnull;
 
 /**
  * Represents *non-stacktrace* information about an exception, like class, description, and message.
  */
-public class ExceptionInfo {
+@GenerateJsonWriter
+public class ExceptionInfo implements JsonWritable {
     private final String className;
     private final String message;
     private final String description;
@@ -86,4 +91,9 @@ public class ExceptionInfo {
     public String description() {
         return this.description;
     }
+
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        ExceptionInfoJsonWriter.write(this, out);
+    }
 }
@@ -1,60 +1,107 @@
 package com.truevault.rollbar.payload.data.body;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
 import com.truevault.rollbar.utilities.ArgumentNullException;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
 import com.truevault.rollbar.utilities.Validate;
-import java.util.ArrayList;
+import com.truevault.rollbar.utilities.WeakCache;
+import com.truevault.rollbar.utilities.WeakInterner;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Represents a single frame from a stack trace
  */
-public class Frame {
-    private final String filename;
+@JsonPropertyOrder({"filename", "lineno", "colno", "method", "code", "context", "args", "kwargs"})
+@GenerateJsonWriter
+public class Frame implements JsonWritable {
+    // Frames created from stack traces, and their strings, are interned: the same frames show up in many traces, and
+    // interned strings are only encoded to JSON once.
+    private static final WeakInterner<Frame> FRAMES = new WeakInterner<>();
+    private static final WeakInterner<Object> STRINGS = new WeakInterner<>();
+    // the strings for stack trace elements, by their class and method names (which the JVM interns), so that strings
+    // seen before are found without building a new string to intern
+    private static final WeakCache<String, Object> FILENAMES = new WeakCache<>();
+    private static final WeakCache<String, Object> METHODS = new WeakCache<>();
+
+    // names are SerializedStrings, or Strings when they contain surrogates: Jackson escapes those in strings, but
+    // encodes them as UTF-8 in SerializedStrings
+    private final Object filename;
     private final Integer lineNumber;
     private final Integer columnNumber;
-    private final String method;
+    private final Object method;
     private final String code;
     private final CodeContext context;
     private final List<Object> args;
     private final LinkedHashMap<String, Object> keywordArgs;
 
     /**
-     * Get an array of frames from an error
+     * Get an array of frames from an error. Frames for stack traces that have been seen recently are reused from
+     * {@link FrameCache#shared()}.
      *
      * @param error the error
-     * @return the frames representing the error's stack trace
+     * @return the frames representing the error's stack trace. The list is immutable.
      * @throws ArgumentNullException if error is null
      */
     @Nonnull
     public static List<Frame> fromThrowable(Throwable error) throws ArgumentNullException {
-        Validate.isNotNull(error, "error");
-        StackTraceElement[] elements = error.getStackTrace();
-        ArrayList<Frame> result = new ArrayList<>();
-        for (StackTraceElement element : elements) {
-            result.add(fromStackTraceElement(element));
+        return FrameCache.shared().frames(error);
+    }
+
+    /**
+     * Get an array of frames from an error.
+     *
+     * @param error      the error
+     * @param frameCache the cache to reuse frames from, or null to convert the stack trace every time
+     * @return the frames representing the error's stack trace. The list is immutable.
+     * @throws ArgumentNullException if error is null
+     */
+    @Nonnull
+    public static List<Frame> fromThrowable(Throwable error, @Nullable FrameCache frameCache)
+            throws ArgumentNullException {
+        if (frameCache != null) {
+            return frameCache.frames(error);
         }
-        Collections.reverse(result);
-        return result;
+        Validate.isNotNull(error, "error");
+        return FrameCache.convert(error.getStackTrace());
     }
 
     /**
-     * Get a Frame from a StackTraceElement
+     * Get a Frame from a StackTraceElement. Equal frames are shared, so the result may be an existing instance.
      *
      * @param stackTraceElement the StackTraceElement (a.k.a.: stack frame)
      * @return the Frame representing the StackTraceElement
      * @throws ArgumentNullException if stackTraceElement is null
      */
     public static Frame fromStackTraceElement(StackTraceElement stackTraceElement) throws ArgumentNullException {
-        String filename = stackTraceElement.getClassName() + ".java";
+        Validate.isNotNull(stackTraceElement, "stackTraceElement");
+        Object filename = FILENAMES.computeIfAbsent(stackTraceElement.getClassName(),
+                className -> STRINGS.intern(name(className + ".java")));
         Integer lineNumber = stackTraceElement.getLineNumber();
-        String method = stackTraceElement.getMethodName();
+        String methodName = stackTraceElement.getMethodName();
+        Object method = methodName == null ? null
+                : METHODS.computeIfAbsent(methodName, m -> STRINGS.intern(name(m)));
 
-        return new Frame(filename, lineNumber, null, method, null, null, null, null);
+        return FRAMES.intern(new Frame(filename, lineNumber, method));
+    }
+
+    private static Object name(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isSurrogate(s.charAt(i))) {
+                return s;
+            }
+        }
+        return new SerializedString(s);
     }
 
     /**
@@ -81,21 +128,37 @@ public class Frame {
     public Frame(String filename, Integer lineNumber, Integer columnNumber, String method, String code,
             CodeContext context, List<Object> args, Map<String, Object> keywordArgs) throws ArgumentNullException {
         Validate.isNotNullOrWhitespace(filename, "filename");
-        this.filename = filename;
+        this.filename = name(filename);
         this.lineNumber = lineNumber;
         this.columnNumber = columnNumber;
-        this.method = method;
+        this.method = method == null ? null : name(method);
         this.code = code;
         this.context = context;
         this.args = args == null ? null : Collections.unmodifiableList(args);
         this.keywordArgs = keywordArgs == null ? null : new LinkedHashMap<>(keywordArgs);
     }
 
+    private Frame(Object filename, Integer lineNumber, Object method) {
+        this.filename = filename;
+        this.lineNumber = lineNumber;
+        this.columnNumber = null;
+        this.method = method;
+        this.code = null;
+        this.context = null;
+        this.args = null;
+        this.keywordArgs = null;
+    }
+
     /**
      * @return the name of the file in which the error occurred
      */
-    @JsonProperty("filename")
+    @JsonIgnore
     public String filename() {
+        return filename.toString();
+    }
+
+    @JsonProperty("filename")
+    Object filenameJson() {
         return filename;
     }
 
@@ -118,8 +181,13 @@ public class Frame {
     /**
      * @return the method in which the error occurred
      */
-    @JsonProperty("method")
+    @JsonIgnore
     public String method() {
+        return method == null ? null : method.toString();
+    }
+
+    @JsonProperty("method")
+    Object methodJson() {
         return method;
     }
 
@@ -154,4 +222,33 @@ public class Frame {
     public Map<String, Object> keywordArgs() {
         return keywordArgs;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Frame frame = (Frame) o;
+        return filename.equals(frame.filename)
+                && Objects.equals(lineNumber, frame.lineNumber)
+                && Objects.equals(columnNumber, frame.columnNumber)
+                && Objects.equals(method, frame.method)
+                && Objects.equals(code, frame.code)
+                && Objects.equals(context, frame.context)
+                && Objects.equals(args, frame.args)
+                && Objects.equals(keywordArgs, frame.keywordArgs);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(filename, lineNumber, columnNumber, method, code, context, args, keywordArgs);
+    }
+
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        FrameJsonWriter.write(this, out);
+    }
 }
@@ -0,0 +1,132 @@
+package com.truevault.rollbar.payload.data.body;
+
+import com.truevault.rollbar.utilities.ArgumentNullException;
+import com.truevault.rollbar.utilities.ClockCache;
+import com.truevault.rollbar.utilities.Validate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Caches the frames converted from stack traces, so that the same exception thrown from the same place over and over
+ * doesn't create a new list of new Frames every time.
+ *
+ * Entries are keyed by the name of the throwable's class and its stack trace elements, and the cached lists are
+ * immutable and shared between all the traces created from matching throwables. Once the cache is full, entries that
+ * haven't been used recently are evicted. Neither the keys nor the frames refer to any classes, so caching them
+ * doesn't keep classes, or the class loaders of redeployed applications, from being unloaded.
+ *
+ * Each DefaultRollbarReporter has a cache of its own. The {@link #shared()} one is for the static
+ * factory methods, such as {@link Body#fromThrowable(Throwable)}.
+ */
+@ThreadSafe
+public final class FrameCache {
+    /**
+     * The capacity of the {@link #shared()} cache, and of a reporter's cache unless it's configured otherwise.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final FrameCache SHARED = new FrameCache(DEFAULT_CAPACITY);
+
+    private final ClockCache<Key, List<Frame>> cache;
+
+    /**
+     * @return the cache used by {@link Frame#fromThrowable(Throwable)}
+     */
+    @Nonnull
+    public static FrameCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param capacity the maximum number of stack traces to keep frames for
+     */
+    public FrameCache(int capacity) {
+        this.cache = new ClockCache<>(capacity);
+    }
+
+    /**
+     * @param error the error
+     * @return the frames representing the error's stack trace, outermost first. The list is immutable.
+     * @throws ArgumentNullException if error is null
+     */
+    @Nonnull
+    public List<Frame> frames(Throwable error) throws ArgumentNullException {
+        Validate.isNotNull(error, "error");
+        // getStackTrace() already returns a private copy, so the key can hold on to it
+        Key key = new Key(error.getClass().getName(), error.getStackTrace());
+        return cache.computeIfAbsent(key, k -> convert(k.elements));
+    }
+
+    /**
+     * @return the number of stack traces currently cached
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the maximum number of stack traces cached
+     */
+    public int capacity() {
+        return cache.capacity();
+    }
+
+    /**
+     * @return the number of lookups that reused cached frames
+     */
+    public long hits() {
+        return cache.hits();
+    }
+
+    /**
+     * @return the number of lookups that had to convert the stack trace
+     */
+    public long misses() {
+        return cache.misses();
+    }
+
+    /**
+     * @return the frames for a stack trace, outermost first, without caching them. The list is immutable.
+     */
+    static List<Frame> convert(StackTraceElement[] elements) {
+        Frame[] frames = new Frame[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            frames[elements.length - 1 - i] = Frame.fromStackTraceElement(elements[i]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(frames));
+    }
+
+    private static final class Key {
+        // the name rather than the class itself, which would keep the class and its class loader alive
+        private final String type;
+        private final StackTraceElement[] elements;
+        private final int hash;
+
+        Key(String type, StackTraceElement[] elements) {
+            this.type = type;
+            this.elements = elements;
+            this.hash = 31 * type.hashCode() + Arrays.hashCode(elements);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            // a matching hash is cheap to check, and makes the full comparison almost always succeed
+            return hash == other.hash && type.equals(other.type) && Arrays.equals(elements, other.elements);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
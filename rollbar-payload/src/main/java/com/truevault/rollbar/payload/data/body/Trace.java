@@ -1,16 +1,21 @@
 package com.truevault.rollbar.payload.data.body;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
 import com.truevault.rollbar.utilities.ArgumentNullException;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
 import com.truevault.rollbar.utilities.Validate;
 import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Represent a Stack Trace to send to Rollbar
  */
-public class Trace implements BodyContents {
+@GenerateJsonWriter
+public class Trace implements BodyContents, JsonWritable {
     private final List<Frame> frames;
 
     private final ExceptionInfo exception;
@@ -24,9 +29,23 @@ public class Trace implements BodyContents {
      * @throws ArgumentNullException if error is null
      */
     public static Trace fromThrowable(Throwable error, String description) throws ArgumentNullException {
+        return fromThrowable(error, description, FrameCache.shared());
+    }
+
+    /**
+     * Create a stack trace from a throwable
+     *
+     * @param error       the Throwable to create a stack trace from
+     * @param description human readable description of the error
+     * @param frameCache  the cache to reuse frames from, or null to convert the stack trace every time
+     * @return the Trace representing the Throwable
+     * @throws ArgumentNullException if error is null
+     */
+    public static Trace fromThrowable(Throwable error, String description, @Nullable FrameCache frameCache)
+            throws ArgumentNullException {
         Validate.isNotNull(error, "error");
 
-        List<Frame> frames = Frame.fromThrowable(error);
+        List<Frame> frames = Frame.fromThrowable(error, frameCache);
         ExceptionInfo exceptionInfo = ExceptionInfo.fromThrowable(error, description);
 
         return new Trace(frames, exceptionInfo);
@@ -70,4 +89,9 @@ public class Trace implements BodyContents {
     public ExceptionInfo exception() {
         return this.exception;
     }
+
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        TraceJsonWriter.write(this, out);
+    }
 }
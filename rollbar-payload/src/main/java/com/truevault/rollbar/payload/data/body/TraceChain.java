@@ -1,17 +1,23 @@
 package com.truevault.rollbar.payload.data.body;
 
 import com.fasterxml.jackson.annotation.JsonValue;
+import com.truevault.rollbar.codegen.GenerateJsonWriter;
 import com.truevault.rollbar.utilities.ArgumentNullException;
 import com.truevault.rollbar.utilities.InvalidLengthException;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.JsonWritable;
 import com.truevault.rollbar.utilities.Validate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Represents a chain of errors (typically from Exceptions with {@link Exception#getCause()} returning some value)
  */
-public class TraceChain implements BodyContents {
+@GenerateJsonWriter
+public class TraceChain implements BodyContents, JsonWritable {
     private final List<Trace> traces;
 
     /**
@@ -34,10 +40,24 @@ public class TraceChain implements BodyContents {
      * @throws ArgumentNullException if throwable is null
      */
     public static TraceChain fromThrowable(Throwable throwable, String description) throws ArgumentNullException {
+        return fromThrowable(throwable, description, FrameCache.shared());
+    }
+
+    /**
+     * Generate a TraceChain from a throwable with multiple causes
+     *
+     * @param throwable   the throwable to record
+     * @param description a human readable description of the first throwable in the chain
+     * @param frameCache  the cache to reuse frames from, or null to convert the stack traces every time
+     * @return the trace chain representing the Throwable
+     * @throws ArgumentNullException if throwable is null
+     */
+    public static TraceChain fromThrowable(Throwable throwable, String description, @Nullable FrameCache frameCache)
+            throws ArgumentNullException {
         Validate.isNotNull(throwable, "throwable");
         ArrayList<Trace> chain = new ArrayList<>();
         do {
-            chain.add(Trace.fromThrowable(throwable, description));
+            chain.add(Trace.fromThrowable(throwable, description, frameCache));
             description = null;
             throwable = throwable.getCause();
         } while (throwable != null);
@@ -63,4 +83,9 @@ public class TraceChain implements BodyContents {
     public List<Trace> asJson() {
         return traces();
     }
+
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        TraceChainJsonWriter.write(this, out);
+    }
 }
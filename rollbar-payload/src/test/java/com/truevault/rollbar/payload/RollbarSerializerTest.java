@@ -1,18 +1,39 @@
 package com.truevault.rollbar.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.Level;
 import com.truevault.rollbar.payload.data.Notifier;
+import com.truevault.rollbar.payload.data.Person;
+import com.truevault.rollbar.payload.data.Request;
+import com.truevault.rollbar.payload.data.Server;
 import com.truevault.rollbar.payload.data.body.Body;
 import com.truevault.rollbar.payload.data.body.Message;
+import com.truevault.rollbar.utilities.JsonOutput;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
 import org.junit.Test;
 
 import static com.truevault.rollbar.utilities.Json.getObjectReader;
 import static com.truevault.rollbar.utilities.Json.getObjectWriter;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
 
 public class RollbarSerializerTest {
@@ -87,6 +108,92 @@ public class RollbarSerializerTest {
         assertEquals("value", b);
     }
 
+    @Test
+    public void testStreamingSerializersAndWritersMatchAnnotations() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("b", "1");
+        headers.put("a", null);
+        Map<String, Object> post = new LinkedHashMap<>();
+        post.put("z", null);
+        post.put("y", Arrays.asList(1, null));
+        Map<String, Object> requestMembers = new LinkedHashMap<>();
+        requestMembers.put("zz", null);
+        requestMembers.put("aa", 1);
+        Request request = new Request("http://example.com", "GET", headers, null, null, "q=1", post, null,
+                "127.0.0.1", requestMembers);
+        Map<String, Object> custom = new LinkedHashMap<>();
+        custom.put("k", null);
+        custom.put("b", "v");
+        custom.put("a", Collections.singletonMap("n", null));
+        custom.put("numbers", Arrays.asList(1.5, Double.NaN, 2.5f, 10L, new BigDecimal("1E+400")));
+        custom.put("escaped", "\"quoted\"\\\n\t\u0001\u00e9\u2603");
+        custom.put("entry", new AbstractMap.SimpleEntry<>("key", "value"));
+        custom.put("array", new Object[]{true, null});
+        Map<String, Object> extra = new HashMap<>();
+        extra.put("extra", null);
+        extra.put("a", 2);
+
+        Data message = new Data.Builder(Body.fromString(testMessage, extra), environment)
+                .level(Level.ERROR)
+                .timestamp(Instant.ofEpochSecond(1234567890))
+                .codeVersion("abc123")
+                .platform("jvm")
+                .language("java")
+                .framework("play")
+                .context("Controller")
+                .request(request)
+                .person(new Person("1", null, "user@example.com"))
+                .server(new Server("host", null, "master", null, Collections.singletonMap("s", null)))
+                .custom(custom)
+                .fingerprint("fingerprint")
+                .title("title")
+                .uuid(new UUID(1, 2))
+                .notifier(new Notifier())
+                .build();
+        assertSameJson(new Item(accessToken, message));
+        assertSameJson(new Item(accessToken, new Data.Builder(Body.fromThrowable(getChainedThrowable()), environment)
+                .custom(new HashMap<>())
+                .build()));
+        assertSameJson(new Item(accessToken, new Data.Builder(Body.fromCrashReportString("raw"), environment).build()));
+    }
+
+    @Test
+    public void testNonBmpCharactersMatchJackson() throws IOException {
+        String emoji = "\ud83d\ude00";
+        Request request = new Request("http://example.com/" + emoji, "GET",
+                Collections.singletonMap("x-" + emoji, emoji), null, null, null, null, null, null, null);
+        Map<String, Object> custom = new LinkedHashMap<>();
+        custom.put(emoji, Arrays.asList(emoji, "truncated \ud83d"));
+
+        assertSameJson(new Item(accessToken, new Data.Builder(Body.fromThrowable(new Exception(emoji)), environment)
+                .request(request)
+                .custom(custom)
+                .build()));
+    }
+
+    /**
+     * Compare with what Jackson writes for the {@link com.fasterxml.jackson.annotation.JsonProperty} and
+     * {@link com.fasterxml.jackson.annotation.JsonValue} annotations, without the hand-written serializers, and with
+     * the generated writers.
+     */
+    private static void assertSameJson(Item item) throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.setConfig(mapper.getSerializationConfig().withPropertyInclusion(
+                JsonInclude.Value.construct(JsonInclude.Include.NON_NULL, JsonInclude.Include.USE_DEFAULTS)));
+        mapper.registerModule(new SimpleModule().addSerializer(SerializableString.class, ToStringSerializer.instance));
+        mapper.setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+            @Override
+            public Object findSerializer(Annotated a) {
+                return null;
+            }
+        });
+
+        // as bytes, since Jackson only escapes surrogates when it encodes to UTF-8
+        String expected = new String(mapper.writeValueAsBytes(item), UTF_8);
+        assertEquals(expected, new String(getObjectWriter().writeValueAsBytes(item), UTF_8));
+        assertEquals(expected, new String(JsonOutput.toJsonBytes(item), UTF_8));
+    }
+
     public Throwable getThrowable() {
         try {
             throwException();
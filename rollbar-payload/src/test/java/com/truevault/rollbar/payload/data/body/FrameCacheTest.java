@@ -0,0 +1,78 @@
+package com.truevault.rollbar.payload.data.body;
+
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FrameCacheTest {
+
+    @Test
+    public void sameThrowSiteReusesFrames() {
+        FrameCache cache = new FrameCache(8);
+        List<Frame> first = null;
+        for (int i = 0; i < 3; i++) {
+            List<Frame> frames = cache.frames(new IllegalStateException("message " + i));
+            if (first == null) {
+                first = frames;
+            }
+            assertSame(first, frames);
+        }
+
+        assertEquals(1, cache.misses());
+        assertEquals(2, cache.hits());
+    }
+
+    @Test
+    public void differentThrowSitesDontShareFrames() {
+        FrameCache cache = new FrameCache(8);
+        Exception a = new IllegalStateException();
+        Exception b = new IllegalStateException();
+
+        assertNotSame(cache.frames(a), cache.frames(b));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void differentClassesDontShareFrames() {
+        FrameCache cache = new FrameCache(8);
+        StackTraceElement[] stack = new Exception().getStackTrace();
+        Exception a = new IllegalStateException();
+        a.setStackTrace(stack);
+        Exception b = new IllegalArgumentException();
+        b.setStackTrace(stack);
+
+        assertNotSame(cache.frames(a), cache.frames(b));
+    }
+
+    @Test
+    public void framesAreOutermostFirst() {
+        Exception e = new IllegalStateException();
+        List<Frame> frames = new FrameCache(8).frames(e);
+
+        StackTraceElement top = e.getStackTrace()[0];
+        Frame last = frames.get(frames.size() - 1);
+        assertEquals(e.getStackTrace().length, frames.size());
+        assertEquals(top.getClassName() + ".java", last.filename());
+        assertEquals(top.getMethodName(), last.method());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void framesAreImmutable() {
+        new FrameCache(8).frames(new IllegalStateException()).clear();
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        FrameCache cache = new FrameCache(2);
+        for (int i = 0; i < 10; i++) {
+            Exception e = new IllegalStateException();
+            e.setStackTrace(new StackTraceElement[]{new StackTraceElement("Foo", "bar", "Foo.java", i)});
+            cache.frames(e);
+        }
+
+        assertEquals(2, cache.size());
+    }
+}
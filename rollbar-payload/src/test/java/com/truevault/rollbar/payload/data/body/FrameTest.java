@@ -0,0 +1,50 @@
+package com.truevault.rollbar.payload.data.body;
+
+import com.truevault.rollbar.utilities.JsonOutput;
+import org.junit.Test;
+
+import static com.truevault.rollbar.utilities.Json.getObjectWriter;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FrameTest {
+
+    @Test
+    public void equalStackTraceElementsShareFrames() {
+        Frame first = Frame.fromStackTraceElement(new StackTraceElement("a.Foo", "bar", "Foo.java", 12));
+        Frame second = Frame.fromStackTraceElement(new StackTraceElement("a.Foo", "bar", "Foo.java", 12));
+
+        assertSame(first, second);
+        assertEquals("a.Foo.java", first.filename());
+        assertEquals("bar", first.method());
+    }
+
+    @Test
+    public void framesOnDifferentLinesShareStrings() {
+        Frame first = Frame.fromStackTraceElement(new StackTraceElement("a.Foo", "bar", "Foo.java", 12));
+        Frame second = Frame.fromStackTraceElement(new StackTraceElement("a.Foo", "bar", "Foo.java", 13));
+
+        assertSame(first.filename(), second.filename());
+        assertSame(first.method(), second.method());
+    }
+
+    @Test
+    public void serializesStringsNormally() throws Exception {
+        Frame frame = Frame.fromStackTraceElement(new StackTraceElement("a.Foo", "b\"ar", "Foo.java", 12));
+
+        assertEquals("{\"filename\":\"a.Foo.java\",\"lineno\":12,\"method\":\"b\\\"ar\"}",
+                getObjectWriter().writeValueAsString(frame));
+    }
+
+    @Test
+    public void escapesNonBmpCharactersLikeJackson() throws Exception {
+        Frame frame = Frame.fromStackTraceElement(
+                new StackTraceElement("a.F\ud83d\ude00o", "m\ud83d\ude00", "Foo.java", 12));
+        String expected = "{\"filename\":\"a.F\\uD83D\\uDE00o.java\",\"lineno\":12,\"method\":\"m\\uD83D\\uDE00\"}";
+
+        assertEquals(expected, new String(getObjectWriter().writeValueAsBytes(frame), UTF_8));
+        assertEquals(expected, new String(JsonOutput.toJsonBytes(frame), UTF_8));
+        assertEquals("m\ud83d\ude00", frame.method());
+    }
+}
@@ -0,0 +1,378 @@
+package com.truevault.rollbar.spool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * An append-only log of records, stored in a directory as a sequence of fixed size, memory-mapped segment files.
+ *
+ * Each record is its length (a positive int), the CRC-32 of its contents, and the contents. A length of 0 (the
+ * segment files start out zero-filled) marks the end of a segment's records. A record with a bad checksum, e.g. one
+ * that was only partly written when the process died, is also treated as the end of its segment.
+ *
+ * A checkpoint file records the position of the oldest record that hasn't been consumed yet. Segments are unmapped
+ * and deleted once all of their records have been consumed, and the disk space used is limited by only creating new
+ * segments while the total stays within the quota. Where segments can't be unmapped explicitly (see {@link
+ * Unmapper}), a deleted segment's disk space is only freed once its buffer is garbage collected, so the quota is
+ * approximate.
+ *
+ * Writes only reach the page cache until {@link #commit()} forces them to disk, which lets many appends share the
+ * cost of one fsync.
+ */
+@NotThreadSafe
+final class SpoolLog implements Closeable {
+    static final int HEADER_SIZE = 8;
+    private static final int CHECKPOINT_SIZE = 16;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final FileChannel checkpointChannel;
+    private final ByteBuffer checkpointBuffer = ByteBuffer.allocate(CHECKPOINT_SIZE);
+
+    // sequence numbers of the segments on disk, oldest first; the last one is the writer
+    private final ArrayDeque<Long> sequences = new ArrayDeque<>();
+    private Segment writer;
+    private int writePosition;
+    private boolean writerDirty;
+
+    private Segment reader;
+    private int readPosition;
+    private boolean checkpointDirty;
+
+    private SpoolLog(Path directory, int segmentSize, int maxSegments, FileChannel checkpointChannel) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.checkpointChannel = checkpointChannel;
+    }
+
+    /**
+     * Open the log in a directory, creating it if necessary, and recover the read and write positions from the files
+     * already there.
+     *
+     * @param directory   the directory holding the log's files
+     * @param segmentSize the size of each segment file
+     * @param maxBytes    the maximum total size of the segment files
+     * @return the log
+     * @throws IOException if the files can't be read or created
+     */
+    static SpoolLog open(Path directory, int segmentSize, long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel checkpoint = FileChannel.open(directory.resolve("checkpoint"), READ, WRITE, CREATE);
+        SpoolLog log = new SpoolLog(directory, segmentSize, (int) Math.min(Integer.MAX_VALUE, maxBytes / segmentSize),
+                checkpoint);
+        try {
+            log.recover();
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * @return the largest record that can be appended
+     */
+    int maxRecordSize() {
+        return segmentSize - HEADER_SIZE;
+    }
+
+    /**
+     * @return true if all records have been consumed
+     */
+    boolean isEmpty() {
+        return reader == writer && readPosition >= writePosition;
+    }
+
+    /**
+     * @return the number of bytes of segment files on disk, not counting deleted segments that are still mapped if
+     * they can't be unmapped explicitly
+     */
+    long diskBytes() {
+        return (long) sequences.size() * segmentSize;
+    }
+
+    /**
+     * @param record the record's contents, from position to limit
+     * @return false if the record is too large, or adding the segment it needs would exceed the disk quota
+     * @throws IOException if a new segment is needed and can't be created
+     */
+    boolean append(ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        if (length == 0 || length > maxRecordSize()) {
+            return false;
+        }
+
+        if (writePosition + HEADER_SIZE + length > segmentSize) {
+            boolean empty = isEmpty();
+            // if everything has been consumed, the full segment is about to be deleted, so it doesn't count
+            if (sequences.size() >= maxSegments && !empty) {
+                return false;
+            }
+            roll();
+            if (empty) {
+                nextReadSegment();
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+
+        ByteBuffer buffer = writer.buffer.duplicate();
+        buffer.position(writePosition + HEADER_SIZE);
+        buffer.put(record.duplicate());
+        buffer.putInt(writePosition + 4, (int) crc.getValue());
+        // the length goes in last, so a reader never sees a length for contents that aren't there yet
+        buffer.putInt(writePosition, length);
+
+        writePosition += HEADER_SIZE + length;
+        writerDirty = true;
+        return true;
+    }
+
+    /**
+     * @return the contents of the oldest record that hasn't been consumed, or null if there is none. The buffer is a
+     * view of the mapped segment, and stays valid until the record is consumed.
+     * @throws IOException if the next segment can't be opened
+     */
+    @Nullable
+    ByteBuffer peek() throws IOException {
+        while (true) {
+            if (reader == writer && readPosition >= writePosition) {
+                return null;
+            }
+
+            ByteBuffer record = readAt(reader.buffer, readPosition);
+            if (record != null) {
+                return record;
+            }
+            if (reader == writer) {
+                // only possible if the checkpoint doesn't point at a record boundary; skip what can't be read
+                readPosition = writePosition;
+                checkpointDirty = true;
+                return null;
+            }
+            nextReadSegment();
+        }
+    }
+
+    /**
+     * Consume the record last returned by {@link #peek()}.
+     *
+     * @throws IOException if an exhausted segment can't be deleted
+     */
+    void consume() throws IOException {
+        int length = reader.buffer.getInt(readPosition);
+        readPosition += HEADER_SIZE + length;
+        checkpointDirty = true;
+
+        if (reader != writer && readAt(reader.buffer, readPosition) == null) {
+            nextReadSegment();
+        }
+    }
+
+    /**
+     * Force appended records and the checkpoint to disk.
+     *
+     * @throws IOException if writing fails
+     */
+    void commit() throws IOException {
+        if (writerDirty) {
+            writer.buffer.force();
+            writerDirty = false;
+        }
+        if (checkpointDirty) {
+            checkpointBuffer.clear();
+            checkpointBuffer.putLong(reader.sequence).putInt(readPosition);
+            CRC32 crc = new CRC32();
+            crc.update(checkpointBuffer.array(), 0, 12);
+            checkpointBuffer.putInt((int) crc.getValue());
+            checkpointBuffer.flip();
+            while (checkpointBuffer.hasRemaining()) {
+                checkpointChannel.write(checkpointBuffer, checkpointBuffer.position());
+            }
+            checkpointChannel.force(false);
+            checkpointDirty = false;
+        }
+    }
+
+    /**
+     * Close the checkpoint file and unmap the segments. Buffers returned by {@link #peek()} must not be used
+     * afterwards, and neither must the log.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            checkpointChannel.close();
+        } finally {
+            if (reader != null && reader != writer) {
+                Unmapper.unmap(reader.buffer);
+            }
+            if (writer != null) {
+                Unmapper.unmap(writer.buffer);
+            }
+            reader = null;
+            writer = null;
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Long> found = new ArrayList<>();
+        String glob = SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    found.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(found);
+
+        long checkpointSequence = -1;
+        int checkpointPosition = 0;
+        if (checkpointChannel.size() >= CHECKPOINT_SIZE) {
+            checkpointBuffer.clear();
+            while (checkpointBuffer.hasRemaining() && checkpointChannel.read(checkpointBuffer,
+                    checkpointBuffer.position()) > 0) {
+                // keep reading
+            }
+            CRC32 crc = new CRC32();
+            crc.update(checkpointBuffer.array(), 0, 12);
+            if (checkpointBuffer.getInt(12) == (int) crc.getValue()) {
+                checkpointSequence = checkpointBuffer.getLong(0);
+                checkpointPosition = checkpointBuffer.getInt(8);
+            }
+        }
+
+        for (long sequence : found) {
+            if (sequence < checkpointSequence) {
+                // fully consumed, but deleting it failed last time
+                Files.deleteIfExists(segmentPath(sequence));
+            } else {
+                sequences.add(sequence);
+            }
+        }
+
+        if (sequences.isEmpty()) {
+            sequences.add(Math.max(0, checkpointSequence));
+        }
+
+        writer = map(sequences.getLast());
+        writePosition = 0;
+        ByteBuffer record;
+        while ((record = readAt(writer.buffer, writePosition)) != null) {
+            writePosition += HEADER_SIZE + record.remaining();
+        }
+        if (writePosition + HEADER_SIZE <= segmentSize && writer.buffer.getInt(writePosition) != 0) {
+            // clear whatever a torn write left behind, so it can't be mistaken for records later
+            for (int i = writePosition; i < segmentSize; i++) {
+                writer.buffer.put(i, (byte) 0);
+            }
+        }
+
+        reader = sequences.size() == 1 ? writer : map(sequences.getFirst());
+        readPosition = sequences.getFirst() == checkpointSequence && found.contains(checkpointSequence)
+                ? checkpointPosition : 0;
+        if (reader == writer) {
+            readPosition = Math.min(readPosition, writePosition);
+        }
+    }
+
+    /**
+     * @return the contents of the record at the position, or null if there is no valid record there
+     */
+    @Nullable
+    private ByteBuffer readAt(MappedByteBuffer buffer, int position) {
+        if (position + HEADER_SIZE > segmentSize) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || length > segmentSize - position - HEADER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer record = buffer.duplicate();
+        record.position(position + HEADER_SIZE).limit(position + HEADER_SIZE + length);
+        record = record.slice();
+
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        return buffer.getInt(position + 4) == (int) crc.getValue() ? record : null;
+    }
+
+    private void roll() throws IOException {
+        if (writerDirty) {
+            writer.buffer.force();
+            writerDirty = false;
+        }
+        if (writer != reader) {
+            // the reader maps it again when it gets there
+            Unmapper.unmap(writer.buffer);
+        }
+        long sequence = sequences.getLast() + 1;
+        sequences.add(sequence);
+        writer = map(sequence);
+        writePosition = 0;
+    }
+
+    private void nextReadSegment() throws IOException {
+        Segment exhausted = reader;
+        sequences.removeFirst();
+        reader = sequences.size() == 1 ? writer : map(sequences.getFirst());
+        readPosition = 0;
+        checkpointDirty = true;
+        // consume() has been called for all of its records, so nothing refers to its buffer any more
+        Unmapper.unmap(exhausted.buffer);
+        // on platforms that don't allow deleting mapped files this fails, and the checkpoint makes recovery finish it
+        try {
+            Files.deleteIfExists(segmentPath(exhausted.sequence));
+        } catch (IOException e) {
+            // ignored, see above
+        }
+    }
+
+    private Segment map(long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(sequence), READ, WRITE, CREATE)) {
+            // the mapping stays valid after the channel is closed
+            return new Segment(sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private static final class Segment {
+        final long sequence;
+        final MappedByteBuffer buffer;
+
+        Segment(long sequence, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.buffer = buffer;
+        }
+    }
+}
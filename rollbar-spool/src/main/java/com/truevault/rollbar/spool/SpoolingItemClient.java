@@ -0,0 +1,429 @@
+package com.truevault.rollbar.spool;
+
+import com.truevault.rollbar.http.Failures;
+import com.truevault.rollbar.http.HttpItemClient;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.http.SerializedItemClient;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.utilities.JsonOutput;
+import com.truevault.rollbar.utilities.Validate;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An HttpItemClient that saves items to disk when Rollbar can't be reached, and sends them once it can be again.
+ *
+ * Items are sent directly as long as nothing is spooled. If a send fails in a way that may succeed later (an I/O
+ * error, a 429 or a 5xx response), the item is appended to a log of memory-mapped segment files in the spool
+ * directory, and its future completes with a SPOOLED response once the append has been forced to disk. Appends are
+ * forced in groups, at most once per commit interval. Other failures, like a 4xx response for a malformed item, are
+ * passed through as usual.
+ *
+ * While anything is spooled, new items are appended to the log as well, so that they reach Rollbar in order. A
+ * background thread replays the log one item at a time, handing the delegate views of the mapped files rather than
+ * copies, and paced by the replay interval so that a backlog doesn't flood Rollbar (or the rate limits of the
+ * project's access token) when it comes back. After a failed replay it waits for the retry interval before trying
+ * again.
+ *
+ * The log is limited to a maximum amount of disk space. Items that don't fit, or can't be written to the spool,
+ * complete with a DROPPED response. Spooled items survive restarts: a new client using the same directory picks up
+ * where the old one left off.
+ */
+@ThreadSafe
+public class SpoolingItemClient implements HttpItemClient {
+    private static final CompletableFuture<RollbarResponse> DROPPED =
+            CompletableFuture.completedFuture(RollbarResponse.dropped());
+
+    @Nonnull
+    private final SerializedItemClient delegate;
+    private final long commitIntervalNanos;
+    private final long replayIntervalNanos;
+    private final long retryIntervalNanos;
+    private final ScheduledExecutorService executor;
+
+    @GuardedBy("this")
+    private final SpoolLog log;
+    @GuardedBy("this")
+    private List<CompletableFuture<RollbarResponse>> uncommitted = new ArrayList<>();
+    @GuardedBy("this")
+    private boolean replayScheduled;
+    // completes once the delegate is done with the record being replayed, which is a view of a mapped segment
+    @GuardedBy("this")
+    private CompletableFuture<Void> replayed = CompletableFuture.completedFuture(null);
+    @GuardedBy("this")
+    private boolean closed;
+
+    private SpoolingItemClient(@Nonnull SerializedItemClient delegate, @Nonnull SpoolLog log,
+            @Nonnull Duration commitInterval, @Nonnull Duration replayInterval, @Nonnull Duration retryInterval) {
+        this.delegate = delegate;
+        this.log = log;
+        this.commitIntervalNanos = commitInterval.toNanos();
+        this.replayIntervalNanos = replayInterval.toNanos();
+        this.retryIntervalNanos = retryInterval.toNanos();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rollbar-spool");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.scheduleWithFixedDelay(this::commit, commitIntervalNanos, commitIntervalNanos,
+                TimeUnit.NANOSECONDS);
+        synchronized (this) {
+            if (!log.isEmpty()) {
+                // left over from a previous run
+                scheduleReplay(0);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<RollbarResponse> send(Item item) {
+        final byte[] bytes = JsonOutput.toJsonBytes(item);
+
+        synchronized (this) {
+            if (!log.isEmpty()) {
+                return spool(bytes);
+            }
+        }
+
+        return delegate.sendSerialized(ByteBuffer.wrap(bytes))
+                .handle((response, t) -> {
+                    if (t == null) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    if (Failures.isRetryable(t)) {
+                        synchronized (this) {
+                            return spool(bytes);
+                        }
+                    }
+                    CompletableFuture<RollbarResponse> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(t);
+                    return failed;
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * @return the number of bytes of disk space the spool is using
+     */
+    public synchronized long getDiskBytes() {
+        return log.diskBytes();
+    }
+
+    /**
+     * @return true if there are spooled items that haven't been replayed yet
+     */
+    public synchronized boolean isSpooling() {
+        return !log.isEmpty();
+    }
+
+    /**
+     * Force anything spooled so far to disk.
+     */
+    @Override
+    public void flush() {
+        commit();
+        delegate.flush();
+    }
+
+    /**
+     * Stop replaying, force anything spooled so far to disk, and close the delegate. Items that haven't been replayed
+     * yet will be sent by the next client using the same spool directory. If an item is being replayed, the spool is
+     * closed once its send completes.
+     *
+     * @throws UncheckedIOException if the spool can't be closed
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            commit();
+            closed = true;
+            try {
+                if (replayed.isDone()) {
+                    log.close();
+                } else {
+                    // unmapping the segment while the delegate may still read from it could crash the JVM
+                    replayed.whenComplete((v, t) -> closeLog());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                delegate.close();
+            }
+        }
+    }
+
+    private synchronized void closeLog() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            // nothing to report it to; the next client recovers the spool from what's on disk
+        }
+    }
+
+    @GuardedBy("this")
+    private CompletableFuture<RollbarResponse> spool(byte[] bytes) {
+        if (closed) {
+            return DROPPED;
+        }
+        try {
+            if (!log.append(ByteBuffer.wrap(bytes))) {
+                return DROPPED;
+            }
+        } catch (IOException e) {
+            // the send failed in a way that could be retried, so treat it like an item that doesn't fit
+            return DROPPED;
+        }
+
+        CompletableFuture<RollbarResponse> future = new CompletableFuture<>();
+        uncommitted.add(future);
+        scheduleReplay(retryIntervalNanos);
+        return future;
+    }
+
+    private void commit() {
+        List<CompletableFuture<RollbarResponse>> committed;
+        IOException failure = null;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            committed = uncommitted;
+            uncommitted = new ArrayList<>();
+            try {
+                log.commit();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        // outside the lock, since dependent stages run right away
+        for (CompletableFuture<RollbarResponse> future : committed) {
+            if (failure == null) {
+                future.complete(RollbarResponse.spooled());
+            } else {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void scheduleReplay(long delayNanos) {
+        if (replayScheduled || closed) {
+            return;
+        }
+        replayScheduled = true;
+        executor.schedule(this::replay, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void replay() {
+        ByteBuffer record;
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        synchronized (this) {
+            replayScheduled = false;
+            if (closed) {
+                return;
+            }
+            ByteBuffer mapped;
+            try {
+                mapped = log.peek();
+            } catch (IOException e) {
+                scheduleReplay(retryIntervalNanos);
+                return;
+            }
+            if (mapped == null) {
+                return;
+            }
+            // a view of the mapped segment, which isn't unmapped until the send completes: consume() only happens
+            // then, and close() waits for it
+            record = mapped.slice();
+            replayed = done;
+            // no other replay can be scheduled until this one completes
+            replayScheduled = true;
+        }
+
+        CompletableFuture<RollbarResponse> future;
+        try {
+            future = delegate.sendSerialized(record);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+
+        future.whenComplete((response, t) -> {
+            try {
+                replayCompleted(t);
+            } finally {
+                done.complete(null);
+            }
+        });
+    }
+
+    private synchronized void replayCompleted(Throwable t) {
+        replayScheduled = false;
+        if (closed) {
+            return;
+        }
+        if (t != null && Failures.isRetryable(t)) {
+            scheduleReplay(retryIntervalNanos);
+            return;
+        }
+        // sent, or rejected in a way that retrying won't fix
+        try {
+            log.consume();
+        } catch (IOException e) {
+            scheduleReplay(retryIntervalNanos);
+            return;
+        }
+        if (!log.isEmpty()) {
+            scheduleReplay(replayIntervalNanos);
+        }
+    }
+
+    public static class Builder {
+        @Nonnull
+        private final SerializedItemClient delegate;
+        @Nonnull
+        private final Path directory;
+        private int segmentSize = 4 * 1024 * 1024;
+        private long maxDiskBytes = 64L * 1024 * 1024;
+        @Nonnull
+        private Duration commitInterval = Duration.ofMillis(100);
+        @Nonnull
+        private Duration replayInterval = Duration.ofMillis(20);
+        @Nonnull
+        private Duration retryInterval = Duration.ofSeconds(10);
+
+        /**
+         * @param delegate  the client to send items with
+         * @param directory the directory to keep spooled items in. It's created if necessary, and must not be used
+         *                  by anything else.
+         */
+        public Builder(@Nonnull SerializedItemClient delegate, @Nonnull Path directory) {
+            Validate.isNotNull(delegate, "delegate");
+            Validate.isNotNull(directory, "directory");
+            this.delegate = delegate;
+            this.directory = directory;
+        }
+
+        /**
+         * @param segmentSize the size of each segment file. Items larger than this can't be spooled. Defaults to 4
+         *                    MiB.
+         * @return this
+         */
+        public Builder segmentSize(int segmentSize) {
+            if (segmentSize <= SpoolLog.HEADER_SIZE) {
+                throw new IllegalArgumentException("segmentSize is too small");
+            }
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * @param maxDiskBytes the most disk space to use for spooled items. Must be at least the segment size.
+         *                     Defaults to 64 MiB.
+         * @return this
+         */
+        public Builder maxDiskBytes(long maxDiskBytes) {
+            this.maxDiskBytes = maxDiskBytes;
+            return this;
+        }
+
+        /**
+         * @param commitInterval how often spooled items are forced to disk. Defaults to 100ms.
+         * @return this
+         */
+        public Builder commitInterval(@Nonnull Duration commitInterval) {
+            Validate.isNotNull(commitInterval, "commitInterval");
+            if (commitInterval.isZero() || commitInterval.isNegative()) {
+                throw new IllegalArgumentException("commitInterval must be positive");
+            }
+            this.commitInterval = commitInterval;
+            return this;
+        }
+
+        /**
+         * @param replayInterval how long to wait between sending spooled items. Defaults to 20ms, i.e. at most 50
+         *                       items per second.
+         * @return this
+         */
+        public Builder replayInterval(@Nonnull Duration replayInterval) {
+            Validate.isNotNull(replayInterval, "replayInterval");
+            this.replayInterval = replayInterval;
+            return this;
+        }
+
+        /**
+         * @param retryInterval how long to wait after a failed send before trying to send spooled items again.
+         *                      Defaults to 10s.
+         * @return this
+         */
+        public Builder retryInterval(@Nonnull Duration retryInterval) {
+            Validate.isNotNull(retryInterval, "retryInterval");
+            this.retryInterval = retryInterval;
+            return this;
+        }
+
+        /**
+         * @return a new client, which starts replaying any items left in the spool directory
+         * @throws IOException if the spool directory can't be read or written
+         */
+        public SpoolingItemClient build() throws IOException {
+            if (maxDiskBytes < segmentSize) {
+                throw new IllegalStateException("maxDiskBytes must be at least segmentSize");
+            }
+            SpoolLog log = SpoolLog.open(directory, segmentSize, maxDiskBytes);
+            return new SpoolingItemClient(delegate, log, commitInterval, replayInterval, retryInterval);
+        }
+
+        @Nonnull
+        public SerializedItemClient getDelegate() {
+            return delegate;
+        }
+
+        @Nonnull
+        public Path getDirectory() {
+            return directory;
+        }
+
+        public int getSegmentSize() {
+            return segmentSize;
+        }
+
+        public long getMaxDiskBytes() {
+            return maxDiskBytes;
+        }
+
+        @Nonnull
+        public Duration getCommitInterval() {
+            return commitInterval;
+        }
+
+        @Nonnull
+        public Duration getReplayInterval() {
+            return replayInterval;
+        }
+
+        @Nonnull
+        public Duration getRetryInterval() {
+            return retryInterval;
+        }
+    }
+}
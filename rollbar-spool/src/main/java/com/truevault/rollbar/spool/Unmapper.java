@@ -0,0 +1,74 @@
+package com.truevault.rollbar.spool;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import javax.annotation.Nullable;
+
+/**
+ * Releases the memory mapping behind a {@link MappedByteBuffer} right away, rather than whenever the buffer is garbage
+ * collected. Until then a deleted segment file still takes up disk space, and the mapping still takes up address
+ * space.
+ *
+ * Java has no supported way to do this, so it uses sun.misc.Unsafe.invokeCleaner on Java 9 and later, and the
+ * buffer's Cleaner on Java 8. If neither is available, unmapping does nothing and the mapping is released by the
+ * garbage collector as usual.
+ *
+ * Accessing a buffer (or any view of it) after it is unmapped crashes the JVM, so only unmap buffers that nothing
+ * refers to any more.
+ */
+final class Unmapper {
+    // (ByteBuffer)void, or null if unmapping isn't possible
+    @Nullable
+    private static final MethodHandle UNMAP = unmap();
+
+    private Unmapper() {
+    }
+
+    /**
+     * @return true if {@link #unmap(MappedByteBuffer)} releases mappings right away
+     */
+    static boolean isSupported() {
+        return UNMAP != null;
+    }
+
+    static void unmap(MappedByteBuffer buffer) {
+        if (UNMAP == null) {
+            return;
+        }
+        try {
+            UNMAP.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable t) {
+            // the garbage collector will release it instead
+        }
+    }
+
+    @Nullable
+    private static MethodHandle unmap() {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            MethodHandle invokeCleaner = lookup.findVirtual(unsafeClass, "invokeCleaner",
+                    MethodType.methodType(void.class, ByteBuffer.class));
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return invokeCleaner.bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // try Java 8's way
+        }
+        try {
+            Class<?> directBuffer = Class.forName("sun.nio.ch.DirectBuffer");
+            Class<?> cleanerClass = Class.forName("sun.misc.Cleaner");
+            MethodHandle cleaner = lookup.findVirtual(directBuffer, "cleaner", MethodType.methodType(cleanerClass));
+            MethodHandle clean = lookup.findVirtual(cleanerClass, "clean", MethodType.methodType(void.class));
+            return MethodHandles.filterReturnValue(cleaner, clean)
+                    .asType(MethodType.methodType(void.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.truevault.rollbar.spool;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class SpoolLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsRecordsInOrderAcrossSegments() throws IOException {
+        try (SpoolLog log = SpoolLog.open(folder.getRoot().toPath(), 64, 1024)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(log.append(record("record " + i)));
+            }
+            assertTrue(log.diskBytes() > 64);
+
+            for (int i = 0; i < 10; i++) {
+                assertEquals("record " + i, string(log.peek()));
+                log.consume();
+            }
+            assertTrue(log.isEmpty());
+            assertNull(log.peek());
+            assertEquals(1, segmentFiles());
+        }
+    }
+
+    @Test
+    public void recoversAfterReopening() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (SpoolLog log = SpoolLog.open(dir, 64, 1024)) {
+            for (int i = 0; i < 5; i++) {
+                log.append(record("record " + i));
+            }
+            log.peek();
+            log.consume();
+            log.commit();
+        }
+
+        try (SpoolLog log = SpoolLog.open(dir, 64, 1024)) {
+            for (int i = 1; i < 5; i++) {
+                assertEquals("record " + i, string(log.peek()));
+                log.consume();
+            }
+            assertNull(log.peek());
+
+            log.append(record("after"));
+            assertEquals("after", string(log.peek()));
+        }
+    }
+
+    @Test
+    public void tornRecordIsIgnored() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (SpoolLog log = SpoolLog.open(dir, 1024, 1024)) {
+            log.append(record("complete"));
+            log.append(record("torn"));
+            log.commit();
+        }
+        // corrupt the contents of the second record
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile().toFile(), "rw")) {
+            file.seek(2 * SpoolLog.HEADER_SIZE + "complete".length());
+            file.write('x');
+        }
+
+        try (SpoolLog log = SpoolLog.open(dir, 1024, 1024)) {
+            assertEquals("complete", string(log.peek()));
+            log.consume();
+            assertTrue(log.isEmpty());
+
+            log.append(record("next"));
+            assertEquals("next", string(log.peek()));
+        }
+    }
+
+    @Test
+    public void quotaLimitsSegments() throws IOException {
+        try (SpoolLog log = SpoolLog.open(folder.getRoot().toPath(), 64, 128)) {
+            int appended = 0;
+            while (log.append(record("0123456789"))) {
+                appended++;
+            }
+            assertEquals(6, appended);
+            assertEquals(128, log.diskBytes());
+
+            assertFalse(log.append(ByteBuffer.allocate(64)));
+        }
+    }
+
+    @Test
+    public void fullSegmentIsReplacedOnceConsumed() throws IOException {
+        try (SpoolLog log = SpoolLog.open(folder.getRoot().toPath(), 64, 64)) {
+            for (int i = 0; i < 20; i++) {
+                assertTrue(log.append(record("0123456789")));
+                log.peek();
+                log.consume();
+            }
+            assertEquals(1, segmentFiles());
+        }
+    }
+
+    @Test
+    public void consumedSegmentsAreUnmapped() throws IOException {
+        Path maps = Paths.get("/proc/self/maps");
+        assumeTrue(Unmapper.isSupported() && Files.isReadable(maps));
+        Path directory = folder.getRoot().toPath();
+
+        try (SpoolLog log = SpoolLog.open(directory, 64, 1024)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(log.append(record("record " + i)));
+            }
+            assertTrue(mappedSegments(maps, directory) > 1);
+            while (log.peek() != null) {
+                log.consume();
+            }
+            assertEquals(1, mappedSegments(maps, directory));
+        }
+        assertEquals(0, mappedSegments(maps, directory));
+    }
+
+    private static long mappedSegments(Path maps, Path directory) throws IOException {
+        String prefix = directory.toRealPath().resolve("segment-").toString();
+        return Files.readAllLines(maps).stream()
+                .filter(line -> line.contains(prefix))
+                .map(line -> line.substring(line.indexOf(prefix)))
+                .distinct()
+                .count();
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.filter(p -> p.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+
+    private Path segmentFile() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.filter(p -> p.getFileName().toString().startsWith("segment-")).findFirst().get();
+        }
+    }
+
+    private static ByteBuffer record(String s) {
+        return ByteBuffer.wrap(s.getBytes(UTF_8));
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
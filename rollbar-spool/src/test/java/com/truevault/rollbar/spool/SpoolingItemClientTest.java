@@ -0,0 +1,186 @@
+package com.truevault.rollbar.spool;
+
+import com.truevault.rollbar.http.ErrorMessageResponseException;
+import com.truevault.rollbar.http.HttpResponseException;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.http.SerializedItemClient;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.body.Body;
+import com.truevault.rollbar.utilities.Json;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.DROPPED;
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.OK;
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.SPOOLED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SpoolingItemClientTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FakeClient fake = new FakeClient();
+
+    @Test
+    public void sendsDirectlyWhenReachable() throws Exception {
+        try (SpoolingItemClient client = builder().build()) {
+            assertEquals(OK, client.send(item("one")).get().getResponseType());
+            assertFalse(client.isSpooling());
+            assertEquals(1, fake.sent.size());
+        }
+    }
+
+    @Test
+    public void spoolsWhileUnreachableAndReplaysInOrder() throws Exception {
+        fake.failure = new ConnectException("down");
+        try (SpoolingItemClient client = builder().build()) {
+            assertEquals(SPOOLED, client.send(item("one")).get().getResponseType());
+            assertEquals(SPOOLED, client.send(item("two")).get().getResponseType());
+            assertEquals(SPOOLED, client.send(item("three")).get().getResponseType());
+            assertTrue(client.isSpooling());
+
+            fake.failure = null;
+            waitUntilDrained(client);
+
+            assertEquals(3, fake.sent.size());
+            assertTrue(fake.sent.get(0).contains("\"one\""));
+            assertTrue(fake.sent.get(1).contains("\"two\""));
+            assertTrue(fake.sent.get(2).contains("\"three\""));
+        }
+    }
+
+    @Test
+    public void unretryableFailuresAreNotSpooled() throws Exception {
+        fake.failure = new ErrorMessageResponseException(400, "bad item");
+        try (SpoolingItemClient client = builder().build()) {
+            try {
+                client.send(item("one")).get();
+                fail();
+            } catch (ExecutionException e) {
+                assertEquals(fake.failure, e.getCause());
+            }
+            assertFalse(client.isSpooling());
+        }
+    }
+
+    @Test
+    public void spoolSurvivesRestart() throws Exception {
+        fake.failure = new HttpResponseException(503, "unavailable");
+        try (SpoolingItemClient client = builder().build()) {
+            client.send(item("one")).get();
+            client.send(item("two")).get();
+        }
+
+        fake.failure = null;
+        fake.sent.clear();
+        try (SpoolingItemClient client = builder().build()) {
+            waitUntilDrained(client);
+            assertEquals(2, fake.sent.size());
+            assertTrue(fake.sent.get(0).contains("\"one\""));
+            assertTrue(fake.sent.get(1).contains("\"two\""));
+        }
+    }
+
+    @Test
+    public void itemsOverQuotaAreDropped() throws Exception {
+        fake.failure = new ConnectException("down");
+        try (SpoolingItemClient client = builder().segmentSize(1024).maxDiskBytes(1024).build()) {
+            RollbarResponse.ResponseType last = SPOOLED;
+            for (int i = 0; i < 100 && last == SPOOLED; i++) {
+                last = client.send(item("item " + i)).get().getResponseType();
+            }
+            assertEquals(DROPPED, last);
+            assertEquals(1024, client.getDiskBytes());
+        }
+    }
+
+    @Test
+    public void segmentsStayMappedUntilTheReplayCompletes() throws Exception {
+        fake.failure = new ConnectException("down");
+        SpoolingItemClient client = builder().build();
+        assertEquals(SPOOLED, client.send(item("one")).get().getResponseType());
+        fake.held = new CompletableFuture<>();
+        fake.failure = null;
+        for (int i = 0; i < 500 && fake.heldJson == null; i++) {
+            Thread.sleep(10);
+        }
+
+        client.close();
+        // the record is a view of the mapped segment, which would crash the JVM if it had been unmapped
+        byte[] bytes = new byte[fake.heldJson.remaining()];
+        fake.heldJson.duplicate().get(bytes);
+        assertTrue(new String(bytes, UTF_8).contains("\"one\""));
+        fake.held.complete(RollbarResponse.ok(UUID.randomUUID()));
+    }
+
+    private SpoolingItemClient.Builder builder() {
+        Path dir = folder.getRoot().toPath().resolve("spool");
+        return new SpoolingItemClient.Builder(fake, dir)
+                .commitInterval(Duration.ofMillis(5))
+                .replayInterval(Duration.ofMillis(1))
+                .retryInterval(Duration.ofMillis(20));
+    }
+
+    private static void waitUntilDrained(SpoolingItemClient client) throws InterruptedException {
+        for (int i = 0; i < 500 && client.isSpooling(); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(client.isSpooling());
+    }
+
+    private static Item item(String message) {
+        return new Item("token", new Data.Builder(Body.fromString(message), "test").build());
+    }
+
+    private static class FakeClient implements SerializedItemClient {
+        // only successfully sent items
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        volatile Exception failure;
+        // if set, the future for the next send, whose item isn't counted as sent
+        volatile CompletableFuture<RollbarResponse> held;
+        volatile ByteBuffer heldJson;
+
+        @Override
+        public CompletableFuture<RollbarResponse> send(Item item) {
+            try {
+                return sendSerialized(ByteBuffer.wrap(Json.getObjectWriter().writeValueAsBytes(item)));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public CompletableFuture<RollbarResponse> sendSerialized(ByteBuffer json) {
+            CompletableFuture<RollbarResponse> future = new CompletableFuture<>();
+            Exception failure = this.failure;
+            if (failure == null && held != null) {
+                heldJson = json;
+                return held;
+            } else if (failure == null) {
+                byte[] bytes = new byte[json.remaining()];
+                json.duplicate().get(bytes);
+                sent.add(new String(bytes, UTF_8));
+                future.complete(RollbarResponse.ok(UUID.randomUUID()));
+            } else {
+                future.completeExceptionally(failure);
+            }
+            return future;
+        }
+    }
+}
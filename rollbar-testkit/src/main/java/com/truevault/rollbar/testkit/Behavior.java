@@ -0,0 +1,166 @@
+package com.truevault.rollbar.testkit;
+
+import com.truevault.rollbar.utilities.Validate;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * How a {@link FakeRollbarServer} treats requests: how long it takes to respond, and how often it fails and how.
+ *
+ * Each request fails in at most one way. The rates of the failures are checked in the order reset, rate limit, server
+ * error, so e.g. a reset rate of 0.1 and a server error rate of 0.2 means 10% of requests are reset, 20% get a 5xx,
+ * and the other 70% succeed.
+ */
+@Immutable
+public final class Behavior {
+    private static final Behavior OK = new Builder().build();
+
+    @Nonnull
+    private final Latency latency;
+    private final double resetRate;
+    private final double rateLimitRate;
+    private final double serverErrorRate;
+    private final long slowReadBytesPerSecond;
+    private final int maxPayloadBytes;
+
+    private Behavior(Builder builder) {
+        this.latency = builder.latency;
+        this.resetRate = builder.resetRate;
+        this.rateLimitRate = builder.rateLimitRate;
+        this.serverErrorRate = builder.serverErrorRate;
+        this.slowReadBytesPerSecond = builder.slowReadBytesPerSecond;
+        this.maxPayloadBytes = builder.maxPayloadBytes;
+    }
+
+    /**
+     * @return accept every item right away
+     */
+    @Nonnull
+    public static Behavior ok() {
+        return OK;
+    }
+
+    @Nonnull
+    public Latency latency() {
+        return latency;
+    }
+
+    public double resetRate() {
+        return resetRate;
+    }
+
+    public double rateLimitRate() {
+        return rateLimitRate;
+    }
+
+    public double serverErrorRate() {
+        return serverErrorRate;
+    }
+
+    public long slowReadBytesPerSecond() {
+        return slowReadBytesPerSecond;
+    }
+
+    public int maxPayloadBytes() {
+        return maxPayloadBytes;
+    }
+
+    @Nonnull
+    public Builder toBuilder() {
+        return new Builder()
+                .latency(latency)
+                .resetRate(resetRate)
+                .rateLimitRate(rateLimitRate)
+                .serverErrorRate(serverErrorRate)
+                .slowReadBytesPerSecond(slowReadBytesPerSecond)
+                .maxPayloadBytes(maxPayloadBytes);
+    }
+
+    public static class Builder {
+        @Nonnull
+        private Latency latency = Latency.none();
+        private double resetRate;
+        private double rateLimitRate;
+        private double serverErrorRate;
+        private long slowReadBytesPerSecond;
+        private int maxPayloadBytes;
+
+        /**
+         * @param latency how long to wait after reading a request before responding. Defaults to no wait.
+         * @return this
+         */
+        public Builder latency(@Nonnull Latency latency) {
+            Validate.isNotNull(latency, "latency");
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * @param resetRate the fraction of requests whose connection is reset (closed with an RST) instead of getting
+         *                  a response
+         * @return this
+         */
+        public Builder resetRate(double resetRate) {
+            this.resetRate = checkRate(resetRate, "resetRate");
+            return this;
+        }
+
+        /**
+         * @param rateLimitRate the fraction of requests that get a 429 response
+         * @return this
+         */
+        public Builder rateLimitRate(double rateLimitRate) {
+            this.rateLimitRate = checkRate(rateLimitRate, "rateLimitRate");
+            return this;
+        }
+
+        /**
+         * @param serverErrorRate the fraction of requests that get a 500 or 503 response
+         * @return this
+         */
+        public Builder serverErrorRate(double serverErrorRate) {
+            this.serverErrorRate = checkRate(serverErrorRate, "serverErrorRate");
+            return this;
+        }
+
+        /**
+         * @param slowReadBytesPerSecond read request bodies at most this fast, like an overloaded server, to see how
+         *                               clients cope with slow uploads. 0 (the default) reads as fast as possible.
+         * @return this
+         */
+        public Builder slowReadBytesPerSecond(long slowReadBytesPerSecond) {
+            if (slowReadBytesPerSecond < 0) {
+                throw new IllegalArgumentException("slowReadBytesPerSecond must not be negative");
+            }
+            this.slowReadBytesPerSecond = slowReadBytesPerSecond;
+            return this;
+        }
+
+        /**
+         * @param maxPayloadBytes reject request bodies larger than this with a 413 response. 0 (the default) accepts
+         *                        any size.
+         * @return this
+         */
+        public Builder maxPayloadBytes(int maxPayloadBytes) {
+            if (maxPayloadBytes < 0) {
+                throw new IllegalArgumentException("maxPayloadBytes must not be negative");
+            }
+            this.maxPayloadBytes = maxPayloadBytes;
+            return this;
+        }
+
+        public Behavior build() {
+            if (resetRate + rateLimitRate + serverErrorRate > 1) {
+                throw new IllegalStateException("failure rates must not add up to more than 1");
+            }
+            return new Behavior(this);
+        }
+
+        private static double checkRate(double rate, String name) {
+            if (!(rate >= 0 && rate <= 1)) {
+                throw new IllegalArgumentException(name + " must be in [0, 1]");
+            }
+            return rate;
+        }
+    }
+}
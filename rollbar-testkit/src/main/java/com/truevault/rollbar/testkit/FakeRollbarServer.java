@@ -0,0 +1,517 @@
+package com.truevault.rollbar.testkit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.truevault.rollbar.utilities.Json;
+import com.truevault.rollbar.utilities.Validate;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An HTTP server on the loopback interface that speaks Rollbar's item API, for testing clients without network access.
+ *
+ * POSTs to {@link #url()} get what Rollbar would answer: a 200 with {@code result.uuid} for a JSON body, and an error
+ * status with a {@code message} otherwise. Accepted items are recorded for assertions. The server's {@link Behavior}
+ * can add latency and inject failures (429s, 5xxs, connection resets, slow reads and payload limits), and can be
+ * changed at any time, e.g. to take the "service" down and bring it back up in the middle of a test.
+ *
+ * The server is written directly on sockets, one thread per connection, with keep-alive, so that faults like resets
+ * can be injected at the TCP level. It can also {@link #setHttp2(boolean) let clients upgrade to HTTP/2}, to test
+ * that they multiplex concurrent requests over one connection.
+ */
+@ThreadSafe
+public final class FakeRollbarServer implements AutoCloseable {
+    /**
+     * The path items are posted to, as in Rollbar's API.
+     */
+    public static final String ITEM_PATH = "/api/1/item/";
+
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final AtomicInteger serverCount = new AtomicInteger();
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private volatile Behavior behavior;
+    private volatile boolean recordItems = true;
+    private volatile boolean http2;
+
+    @GuardedBy("this")
+    private final List<JsonNode> items = new ArrayList<>();
+    @GuardedBy("this")
+    private int itemCount;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong acceptedConnections = new AtomicLong();
+
+    private FakeRollbarServer(@Nonnull Behavior behavior) throws IOException {
+        this.behavior = behavior;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+
+        int id = serverCount.incrementAndGet();
+        AtomicInteger connectionCount = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "fake-rollbar-" + id + "-" + connectionCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread acceptor = new Thread(this::accept, "fake-rollbar-" + id + "-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return a running server that accepts every item right away
+     * @throws IOException if the server socket can't be opened
+     */
+    @Nonnull
+    public static FakeRollbarServer start() throws IOException {
+        return start(Behavior.ok());
+    }
+
+    /**
+     * @param behavior how to treat requests
+     * @return a running server
+     * @throws IOException if the server socket can't be opened
+     */
+    @Nonnull
+    public static FakeRollbarServer start(@Nonnull Behavior behavior) throws IOException {
+        Validate.isNotNull(behavior, "behavior");
+        return new FakeRollbarServer(behavior);
+    }
+
+    /**
+     * @return the URL to post items to
+     */
+    @Nonnull
+    public String url() {
+        return "http://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort()
+                + ITEM_PATH;
+    }
+
+    /**
+     * @param behavior how to treat requests from now on. Requests already being handled keep the old behavior.
+     */
+    public void setBehavior(@Nonnull Behavior behavior) {
+        Validate.isNotNull(behavior, "behavior");
+        this.behavior = behavior;
+    }
+
+    @Nonnull
+    public Behavior getBehavior() {
+        return behavior;
+    }
+
+    /**
+     * @param recordItems whether to keep accepted items for {@link #getItems()}. Turn it off for long runs, such as
+     *                    benchmarks and soak tests, that only need the counts.
+     */
+    public void setRecordItems(boolean recordItems) {
+        this.recordItems = recordItems;
+    }
+
+    /**
+     * @param http2 whether to let clients upgrade connections to HTTP/2 over cleartext (h2c), as
+     *              java.net.http.HttpClient asks to, so that concurrent requests share a connection. Off by default,
+     *              so that each connection carries one request at a time.
+     */
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    /**
+     * @return the items accepted so far, in the order they were received
+     */
+    @Nonnull
+    public synchronized List<JsonNode> getItems() {
+        return new ArrayList<>(items);
+    }
+
+    /**
+     * @return the number of items accepted so far, whether or not they were recorded
+     */
+    public synchronized int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * @return the number of requests received so far, including failed ones
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of requests that got an injected failure (reset, 429, 5xx or 413) so far
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * @return the number of connections accepted so far, including closed ones
+     */
+    public long getConnectionCount() {
+        return acceptedConnections.get();
+    }
+
+    /**
+     * Wait until at least some number of items have been accepted.
+     *
+     * @param count   the number of items
+     * @param timeout the most to wait
+     * @return true if that many items were accepted before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean awaitItems(int count, @Nonnull Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (itemCount < count) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Forget the items accepted so far, e.g. between phases of a long test.
+     */
+    public synchronized void clearItems() {
+        items.clear();
+        itemCount = 0;
+    }
+
+    /**
+     * Stop accepting connections and close the open ones.
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // nothing more to do
+        }
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // closed
+                return;
+            }
+            acceptedConnections.incrementAndGet();
+            sockets.add(socket);
+            try {
+                connections.execute(() -> serve(socket));
+            } catch (RuntimeException e) {
+                // rejected because the server is closing
+                sockets.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (handle(socket, in, out)) {
+                // keep the connection alive for the next request
+            }
+        } catch (EOFException | SocketException e) {
+            // the client went away, or the server is closing
+        } catch (IOException | InterruptedException e) {
+            // give up on this connection
+        } finally {
+            sockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * @return true if the connection can be used for another request
+     */
+    private boolean handle(Socket socket, InputStream in, OutputStream out) throws IOException, InterruptedException {
+        String requestLine = readLine(in);
+        if (requestLine == null) {
+            return false;
+        }
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        if (line == null) {
+            return false;
+        }
+
+        Behavior behavior = this.behavior;
+        boolean keepAlive = !"close".equalsIgnoreCase(headers.get("connection"));
+        if ("100-continue".equalsIgnoreCase(headers.get("expect"))) {
+            out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(ISO_8859_1));
+            out.flush();
+        }
+        byte[] body = readBody(in, headers, behavior.slowReadBytesPerSecond());
+
+        String[] parts = requestLine.split(" ");
+        String method = parts[0];
+        String path = parts.length < 2 ? "" : parts[1];
+        if (http2 && isUpgradeToH2c(headers)) {
+            new Http2Connection(this, in, out, connections).serve(method, path, body);
+            return false;
+        }
+        Response response = respond(method, path, body, behavior);
+        if (response == Response.RESET) {
+            // closing with a zero linger time sends an RST instead of a FIN
+            socket.setSoLinger(true, 0);
+            socket.close();
+            return false;
+        }
+        return write(out, response, keepAlive && !response.close);
+    }
+
+    /**
+     * Answer a request that has been read completely, over either HTTP/1.1 or HTTP/2.
+     *
+     * @return the response, or {@link Response#RESET} to reset the connection (or, over HTTP/2, the stream)
+     */
+    Response respond(String method, String path, byte[] body, Behavior behavior) throws InterruptedException {
+        requests.incrementAndGet();
+        long latency = behavior.latency().sampleNanos(ThreadLocalRandom.current());
+        if (latency > 0) {
+            TimeUnit.NANOSECONDS.sleep(latency);
+        }
+
+        if (!method.equals("POST") || !path.equals(ITEM_PATH)) {
+            return new Response(404, "Not Found", error("Not found"), false);
+        }
+        if (behavior.maxPayloadBytes() > 0 && body.length > behavior.maxPayloadBytes()) {
+            failures.incrementAndGet();
+            return new Response(413, "Payload Too Large", error("Payload too large"), true);
+        }
+
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < behavior.resetRate()) {
+            failures.incrementAndGet();
+            return Response.RESET;
+        }
+        roll -= behavior.resetRate();
+        if (roll < behavior.rateLimitRate()) {
+            failures.incrementAndGet();
+            return new Response(429, "Too Many Requests", error("Rate limit exceeded"), false);
+        }
+        roll -= behavior.rateLimitRate();
+        if (roll < behavior.serverErrorRate()) {
+            failures.incrementAndGet();
+            boolean unavailable = ThreadLocalRandom.current().nextBoolean();
+            return new Response(unavailable ? 503 : 500, unavailable ? "Service Unavailable" : "Internal Server Error",
+                    error(unavailable ? "Service unavailable" : "Internal server error"), false);
+        }
+
+        JsonNode item;
+        try {
+            item = Json.getObjectReader().readTree(new String(body, UTF_8));
+        } catch (IOException e) {
+            return new Response(400, "Bad Request", error("Invalid JSON"), false);
+        }
+        if (item == null || !item.isObject()) {
+            return new Response(400, "Bad Request", error("Invalid JSON"), false);
+        }
+        synchronized (this) {
+            if (recordItems) {
+                items.add(item);
+            }
+            itemCount++;
+            notifyAll();
+        }
+        return new Response(200, "OK", "{\"err\":0,\"result\":{\"id\":null,\"uuid\":\"" + uuid() + "\"}}", false);
+    }
+
+    /**
+     * @return whether the request asks to upgrade the connection to HTTP/2 over cleartext, as in RFC 7540 section 3.2
+     */
+    private static boolean isUpgradeToH2c(Map<String, String> headers) {
+        String upgrade = headers.get("upgrade");
+        if (upgrade == null || !headers.containsKey("http2-settings")) {
+            return false;
+        }
+        for (String protocol : upgrade.split(",")) {
+            if (protocol.trim().equalsIgnoreCase("h2c")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] readBody(InputStream in, Map<String, String> headers, long bytesPerSecond)
+            throws IOException, InterruptedException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            while (true) {
+                String size = readLine(in);
+                if (size == null) {
+                    throw new EOFException();
+                }
+                int semicolon = size.indexOf(';');
+                int length = Integer.parseInt((semicolon < 0 ? size : size.substring(0, semicolon)).trim(), 16);
+                if (length == 0) {
+                    // trailers, up to the blank line
+                    String trailer;
+                    while ((trailer = readLine(in)) != null && !trailer.isEmpty()) {
+                        // ignored
+                    }
+                    return body.toByteArray();
+                }
+                copy(in, body, length, bytesPerSecond);
+                readLine(in);
+            }
+        }
+
+        String contentLength = headers.get("content-length");
+        if (contentLength != null) {
+            copy(in, body, Integer.parseInt(contentLength), bytesPerSecond);
+        }
+        return body.toByteArray();
+    }
+
+    private static void copy(InputStream in, ByteArrayOutputStream out, int length, long bytesPerSecond)
+            throws IOException, InterruptedException {
+        // read a tenth of a second's worth at a time when reading slowly
+        int chunk = bytesPerSecond > 0 ? (int) Math.max(1, Math.min(8192, bytesPerSecond / 10)) : 8192;
+        byte[] buffer = new byte[chunk];
+        int remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException();
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+            if (bytesPerSecond > 0) {
+                TimeUnit.NANOSECONDS.sleep(TimeUnit.SECONDS.toNanos(read) / bytesPerSecond);
+            }
+        }
+    }
+
+    private static boolean write(OutputStream out, Response response, boolean keepAlive) throws IOException {
+        String head = "HTTP/1.1 " + response.status + " " + response.reason + "\r\n"
+                + "Content-Type: " + Response.CONTENT_TYPE + "\r\n"
+                + "Content-Length: " + response.body.length + "\r\n"
+                + "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n"
+                + "\r\n";
+        byte[] headBytes = head.getBytes(ISO_8859_1);
+        // one write, so the response goes out in as few packets as possible
+        byte[] bytes = new byte[headBytes.length + response.body.length];
+        System.arraycopy(headBytes, 0, bytes, 0, headBytes.length);
+        System.arraycopy(response.body, 0, bytes, headBytes.length, response.body.length);
+        out.write(bytes);
+        out.flush();
+        return keepAlive;
+    }
+
+    /**
+     * @return the line without its line terminator, or null at the end of the stream
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                byte[] bytes = line.toByteArray();
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, ISO_8859_1);
+            }
+            if (line.size() >= MAX_HEADER_BYTES) {
+                throw new IOException("Header line too long");
+            }
+            line.write(b);
+        }
+        if (line.size() > 0) {
+            throw new EOFException();
+        }
+        return null;
+    }
+
+    private static String error(String message) {
+        return "{\"err\":1,\"message\":\"" + message + "\"}";
+    }
+
+    private static String uuid() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return String.format("%016x%016x", random.nextLong(), random.nextLong());
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing more to do
+        }
+    }
+
+    /**
+     * A response to a request, independent of the version of HTTP it's sent with.
+     */
+    static final class Response {
+        static final String CONTENT_TYPE = "application/json; charset=utf-8";
+        /**
+         * Reset the connection, or over HTTP/2 the stream, instead of responding.
+         */
+        static final Response RESET = new Response(0, "", "", true);
+
+        final int status;
+        final String reason;
+        final byte[] body;
+        // whether to close an HTTP/1.1 connection afterwards
+        final boolean close;
+
+        Response(int status, String reason, String body, boolean close) {
+            this.status = status;
+            this.reason = reason;
+            this.body = body.getBytes(UTF_8);
+            this.close = close;
+        }
+    }
+}
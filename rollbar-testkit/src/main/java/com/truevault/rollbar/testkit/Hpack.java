@@ -0,0 +1,252 @@
+package com.truevault.rollbar.testkit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * Decodes HTTP/2 header blocks, compressed with HPACK (RFC 7541), and encodes the few header fields that the server
+ * responds with.
+ *
+ * Responses are encoded as literals that aren't added to the client's dynamic table, so only decoding keeps any state:
+ * the dynamic table built up by the requests on one connection.
+ */
+@NotThreadSafe
+final class Hpack {
+    // the largest dynamic table a client may ask for: the default SETTINGS_HEADER_TABLE_SIZE, which the server keeps
+    static final int MAX_TABLE_SIZE = 4096;
+
+    // indexes of names in the static table
+    static final int STATUS = 8;
+    static final int CONTENT_LENGTH = 28;
+    static final int CONTENT_TYPE = 31;
+
+    private static final String[][] STATIC_TABLE = {
+            {":authority", ""}, {":method", "GET"}, {":method", "POST"}, {":path", "/"}, {":path", "/index.html"},
+            {":scheme", "http"}, {":scheme", "https"}, {":status", "200"}, {":status", "204"}, {":status", "206"},
+            {":status", "304"}, {":status", "400"}, {":status", "404"}, {":status", "500"}, {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"}, {"accept-language", ""}, {"accept-ranges", ""}, {"accept", ""},
+            {"access-control-allow-origin", ""}, {"age", ""}, {"allow", ""}, {"authorization", ""},
+            {"cache-control", ""}, {"content-disposition", ""}, {"content-encoding", ""}, {"content-language", ""},
+            {"content-length", ""}, {"content-location", ""}, {"content-range", ""}, {"content-type", ""},
+            {"cookie", ""}, {"date", ""}, {"etag", ""}, {"expect", ""}, {"expires", ""}, {"from", ""}, {"host", ""},
+            {"if-match", ""}, {"if-modified-since", ""}, {"if-none-match", ""}, {"if-range", ""},
+            {"if-unmodified-since", ""}, {"last-modified", ""}, {"link", ""}, {"location", ""}, {"max-forwards", ""},
+            {"proxy-authenticate", ""}, {"proxy-authorization", ""}, {"range", ""}, {"referer", ""}, {"refresh", ""},
+            {"retry-after", ""}, {"server", ""}, {"set-cookie", ""}, {"strict-transport-security", ""},
+            {"transfer-encoding", ""}, {"user-agent", ""}, {"vary", ""}, {"via", ""}, {"www-authenticate", ""}
+    };
+
+    private static final int EOS = 256;
+    // the length of the Huffman code for each symbol from 0 to EOS, from 'a' for 5 bits to 'z' for 30 bits. The code is
+    // canonical, so the codes themselves follow from their lengths.
+    private static final String HUFFMAN_CODE_LENGTHS =
+            "isxxxxxxxtzxxzxxxxxxxxzxxxxxxxxxbffhibdgffdgdbbbaaabbbbbbbcdkbhf"
+                    + "ibccccccccccccccccccccccdcdioijbkabababbbaccbbbabcbaabccccckgjix"
+                    + "prpprrrsrssssststtrstssssqrsrsstrqprrssqsrrtqrssqqrqsrssprrrsrrs"
+                    + "vvporsruvvvwwvtuoqvwwvwtqqvvxwwwptpqrqqsrruuttvsvwvvwwwwwxwwwwwv"
+                    + "z";
+    // the children of node n are at 2n (for a 0 bit) and 2n + 1 (for a 1 bit), and are either another node or the
+    // complement of a symbol. The root is node 0.
+    private static final int[] HUFFMAN_TREE = huffmanTree();
+
+    // newest last
+    private final List<String[]> dynamicTable = new ArrayList<>();
+    private int tableSize;
+    private int maxTableSize = MAX_TABLE_SIZE;
+
+    /**
+     * @param block a complete header block
+     * @return the header fields, by name. Of fields with the same name, the last one wins.
+     * @throws IOException if the block can't be decoded
+     */
+    Map<String, String> decode(byte[] block) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        ByteBuffer in = ByteBuffer.wrap(block);
+        while (in.hasRemaining()) {
+            int first = in.get() & 0xff;
+            if ((first & 0x80) != 0) {
+                // indexed
+                String[] field = entry(readInteger(in, first, 7));
+                fields.put(field[0], field[1]);
+            } else if ((first & 0x40) != 0) {
+                // literal with incremental indexing
+                String[] field = readLiteral(in, first, 6);
+                add(field);
+                fields.put(field[0], field[1]);
+            } else if ((first & 0x20) != 0) {
+                int size = readInteger(in, first, 5);
+                if (size > MAX_TABLE_SIZE) {
+                    throw new IOException("Dynamic table size too large: " + size);
+                }
+                maxTableSize = size;
+                evict();
+            } else {
+                // literal without indexing, or never indexed
+                String[] field = readLiteral(in, first, 4);
+                fields.put(field[0], field[1]);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Write a literal header field without indexing.
+     *
+     * @param nameIndex the index of the name in the static table
+     */
+    static void writeLiteral(ByteArrayOutputStream out, int nameIndex, String value) {
+        byte[] bytes = value.getBytes(ISO_8859_1);
+        writeInteger(out, 0, 4, nameIndex);
+        writeInteger(out, 0, 7, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private String[] readLiteral(ByteBuffer in, int first, int prefixBits) throws IOException {
+        int nameIndex = readInteger(in, first, prefixBits);
+        String name = nameIndex == 0 ? readString(in) : entry(nameIndex)[0];
+        return new String[]{name, readString(in)};
+    }
+
+    private String[] entry(int index) throws IOException {
+        if (index >= 1 && index <= STATIC_TABLE.length) {
+            return STATIC_TABLE[index - 1];
+        }
+        int dynamicIndex = index - STATIC_TABLE.length - 1;
+        if (index < 1 || dynamicIndex >= dynamicTable.size()) {
+            throw new IOException("Invalid index: " + index);
+        }
+        return dynamicTable.get(dynamicTable.size() - 1 - dynamicIndex);
+    }
+
+    private void add(String[] field) {
+        dynamicTable.add(field);
+        tableSize += entrySize(field);
+        // a field larger than the whole table empties it, and isn't added either
+        evict();
+    }
+
+    private void evict() {
+        while (tableSize > maxTableSize) {
+            tableSize -= entrySize(dynamicTable.remove(0));
+        }
+    }
+
+    private static int entrySize(String[] field) {
+        return field[0].length() + field[1].length() + 32;
+    }
+
+    private static int readInteger(ByteBuffer in, int first, int prefixBits) throws IOException {
+        int max = (1 << prefixBits) - 1;
+        int value = first & max;
+        if (value < max) {
+            return value;
+        }
+        for (int shift = 0; shift <= 21; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new IOException("Truncated integer");
+            }
+            int b = in.get() & 0xff;
+            value += (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Integer too large");
+    }
+
+    private static void writeInteger(ByteArrayOutputStream out, int flags, int prefixBits, int value) {
+        int max = (1 << prefixBits) - 1;
+        if (value < max) {
+            out.write(flags | value);
+            return;
+        }
+        out.write(flags | max);
+        value -= max;
+        while (value >= 0x80) {
+            out.write(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        if (!in.hasRemaining()) {
+            throw new IOException("Truncated string");
+        }
+        int first = in.get() & 0xff;
+        int length = readInteger(in, first, 7);
+        if (length > in.remaining()) {
+            throw new IOException("Truncated string");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return (first & 0x80) != 0 ? decodeHuffman(bytes) : new String(bytes, ISO_8859_1);
+    }
+
+    private static String decodeHuffman(byte[] bytes) throws IOException {
+        StringBuilder decoded = new StringBuilder(bytes.length * 8 / 5);
+        int node = 0;
+        // the bits since the last symbol, which at the end must be padding: fewer than 8 bits, all ones
+        int pending = 0;
+        boolean onesOnly = true;
+        for (byte b : bytes) {
+            for (int shift = 7; shift >= 0; shift--) {
+                int bit = b >>> shift & 1;
+                int next = HUFFMAN_TREE[2 * node + bit];
+                if (next < 0) {
+                    if (~next == EOS) {
+                        throw new IOException("EOS in a Huffman-encoded string");
+                    }
+                    decoded.append((char) ~next);
+                    node = 0;
+                    pending = 0;
+                    onesOnly = true;
+                } else {
+                    node = next;
+                    pending++;
+                    onesOnly &= bit == 1;
+                }
+            }
+        }
+        if (pending > 7 || !onesOnly) {
+            throw new IOException("Invalid Huffman padding");
+        }
+        return decoded.toString();
+    }
+
+    private static int[] huffmanTree() {
+        // a complete code for 257 symbols has 256 nodes besides its leaves
+        int[] tree = new int[2 * 256];
+        int nodes = 1;
+        int code = -1;
+        int previousLength = 0;
+        // canonical codes are assigned in order of length, and then of symbol
+        for (int length = 5; length <= 30; length++) {
+            for (int symbol = 0; symbol <= EOS; symbol++) {
+                if (HUFFMAN_CODE_LENGTHS.charAt(symbol) - 'a' + 5 != length) {
+                    continue;
+                }
+                code = (code + 1) << (length - previousLength);
+                previousLength = length;
+                int node = 0;
+                for (int shift = length - 1; shift > 0; shift--) {
+                    int child = 2 * node + (code >>> shift & 1);
+                    if (tree[child] == 0) {
+                        tree[child] = nodes++;
+                    }
+                    node = tree[child];
+                }
+                tree[2 * node + (code & 1)] = ~symbol;
+            }
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,305 @@
+package com.truevault.rollbar.testkit;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * The server side of a connection that a client has upgraded from HTTP/1.1 to HTTP/2 over cleartext ("h2c", as in RFC
+ * 7540 section 3.2).
+ *
+ * The connection's thread reads frames, and each request is answered on a thread of its own once all of it has
+ * arrived, so that the requests on a connection are answered concurrently, as Rollbar would. The server's settings are
+ * all the defaults. Responses are far smaller than the flow control windows the client starts with, so only the
+ * windows for request bodies are managed.
+ */
+@ThreadSafe
+final class Http2Connection {
+    private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(ISO_8859_1);
+    private static final byte[] SWITCHING_PROTOCOLS =
+            "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n".getBytes(ISO_8859_1);
+    // the default SETTINGS_MAX_FRAME_SIZE
+    private static final int MAX_FRAME_BYTES = 16384;
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+    private static final int CONTINUATION = 0x9;
+
+    private static final int END_STREAM = 0x1;
+    private static final int ACK = 0x1;
+    private static final int END_HEADERS = 0x4;
+    private static final int PADDED = 0x8;
+    private static final int PRIORITY = 0x20;
+
+    private static final int INTERNAL_ERROR = 0x2;
+
+    private final FakeRollbarServer server;
+    private final InputStream in;
+    @GuardedBy("this")
+    private final OutputStream out;
+    private final Executor executor;
+    // only used by the connection's thread
+    private final Hpack hpack = new Hpack();
+    // requests whose bodies are still arriving, by stream. Only used by the connection's thread.
+    private final Map<Integer, Request> requests = new HashMap<>();
+
+    /**
+     * @param in       the connection's input, just after the request that asked for the upgrade
+     * @param executor runs the threads that answer requests
+     */
+    Http2Connection(FakeRollbarServer server, InputStream in, OutputStream out, Executor executor) {
+        this.server = server;
+        this.in = in;
+        this.out = new BufferedOutputStream(out);
+        this.executor = executor;
+    }
+
+    /**
+     * Upgrade the connection, answer the request that asked for it on stream 1, and then serve requests until the
+     * client goes away.
+     */
+    void serve(String method, String path, byte[] body) throws IOException, InterruptedException {
+        synchronized (this) {
+            out.write(SWITCHING_PROTOCOLS);
+            // the server's connection preface: its settings, which are all the defaults
+            writeFrame(SETTINGS, 0, 0, EMPTY);
+            out.flush();
+        }
+        byte[] preface = new byte[PREFACE.length];
+        readFully(preface);
+        if (!Arrays.equals(preface, PREFACE)) {
+            throw new IOException("Invalid connection preface");
+        }
+        answer(1, new Request(method, path), body);
+
+        Frame frame;
+        while ((frame = readFrame()) != null) {
+            switch (frame.type) {
+                case DATA:
+                    data(frame);
+                    break;
+                case HEADERS:
+                    headers(frame);
+                    break;
+                case RST_STREAM:
+                    requests.remove(frame.streamId);
+                    break;
+                case SETTINGS:
+                    if ((frame.flags & ACK) == 0) {
+                        write(SETTINGS, ACK, 0, EMPTY);
+                    }
+                    break;
+                case PING:
+                    if ((frame.flags & ACK) == 0) {
+                        write(PING, ACK, 0, frame.payload);
+                    }
+                    break;
+                case GOAWAY:
+                    return;
+                default:
+                    // PRIORITY, WINDOW_UPDATE and unknown frames don't change how the server answers
+            }
+        }
+    }
+
+    private void headers(Frame frame) throws IOException {
+        int start = 0;
+        int end = frame.payload.length;
+        if ((frame.flags & PADDED) != 0) {
+            end -= frame.payload.length > 0 ? (frame.payload[0] & 0xff) : 0;
+            start++;
+        }
+        if ((frame.flags & PRIORITY) != 0) {
+            start += 5;
+        }
+        if (start > end) {
+            throw new IOException("Invalid HEADERS frame");
+        }
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        block.write(frame.payload, start, end - start);
+        for (int flags = frame.flags; (flags & END_HEADERS) == 0; ) {
+            Frame continuation = readFrame();
+            if (continuation == null || continuation.type != CONTINUATION
+                    || continuation.streamId != frame.streamId) {
+                throw new IOException("Expected a CONTINUATION frame for stream " + frame.streamId);
+            }
+            block.write(continuation.payload, 0, continuation.payload.length);
+            flags = continuation.flags;
+        }
+        Map<String, String> fields = hpack.decode(block.toByteArray());
+
+        // a second block on a stream is trailers, which are decoded only to keep the dynamic table up to date
+        Request request = requests.get(frame.streamId);
+        if (request == null) {
+            String method = fields.get(":method");
+            String path = fields.get(":path");
+            request = new Request(method == null ? "" : method, path == null ? "" : path);
+            requests.put(frame.streamId, request);
+        }
+        if ((frame.flags & END_STREAM) != 0) {
+            requests.remove(frame.streamId);
+            answer(frame.streamId, request, request.body.toByteArray());
+        }
+    }
+
+    private void data(Frame frame) throws IOException, InterruptedException {
+        int start = 0;
+        int end = frame.payload.length;
+        if ((frame.flags & PADDED) != 0) {
+            end -= frame.payload.length > 0 ? (frame.payload[0] & 0xff) : 0;
+            start++;
+        }
+        if (start > end) {
+            throw new IOException("Invalid DATA frame");
+        }
+        long bytesPerSecond = server.getBehavior().slowReadBytesPerSecond();
+        if (bytesPerSecond > 0) {
+            TimeUnit.NANOSECONDS.sleep(TimeUnit.SECONDS.toNanos(frame.payload.length) / bytesPerSecond);
+        }
+
+        Request request = requests.get(frame.streamId);
+        if (request != null) {
+            request.body.write(frame.payload, start, end - start);
+        }
+        boolean endStream = (frame.flags & END_STREAM) != 0;
+        if (frame.payload.length > 0) {
+            // let the client send as much again, on the connection and, if it has more to send, on the stream
+            synchronized (this) {
+                writeFrame(WINDOW_UPDATE, 0, 0, int32(frame.payload.length));
+                if (request != null && !endStream) {
+                    writeFrame(WINDOW_UPDATE, 0, frame.streamId, int32(frame.payload.length));
+                }
+                out.flush();
+            }
+        }
+        if (request != null && endStream) {
+            requests.remove(frame.streamId);
+            answer(frame.streamId, request, request.body.toByteArray());
+        }
+    }
+
+    private void answer(int streamId, Request request, byte[] body) {
+        try {
+            executor.execute(() -> {
+                try {
+                    respond(streamId, server.respond(request.method, request.path, body, server.getBehavior()));
+                } catch (IOException | InterruptedException e) {
+                    // the connection is closed, or the server is closing
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the server is closing
+        }
+    }
+
+    private synchronized void respond(int streamId, FakeRollbarServer.Response response) throws IOException {
+        if (response == FakeRollbarServer.Response.RESET) {
+            writeFrame(RST_STREAM, 0, streamId, int32(INTERNAL_ERROR));
+        } else {
+            ByteArrayOutputStream headers = new ByteArrayOutputStream();
+            Hpack.writeLiteral(headers, Hpack.STATUS, String.valueOf(response.status));
+            Hpack.writeLiteral(headers, Hpack.CONTENT_TYPE, FakeRollbarServer.Response.CONTENT_TYPE);
+            Hpack.writeLiteral(headers, Hpack.CONTENT_LENGTH, String.valueOf(response.body.length));
+            writeFrame(HEADERS, END_HEADERS, streamId, headers.toByteArray());
+            writeFrame(DATA, END_STREAM, streamId, response.body);
+        }
+        out.flush();
+    }
+
+    private synchronized void write(int type, int flags, int streamId, byte[] payload) throws IOException {
+        writeFrame(type, flags, streamId, payload);
+        out.flush();
+    }
+
+    @GuardedBy("this")
+    private void writeFrame(int type, int flags, int streamId, byte[] payload) throws IOException {
+        int length = payload.length;
+        out.write(new byte[]{(byte) (length >>> 16), (byte) (length >>> 8), (byte) length, (byte) type, (byte) flags});
+        out.write(int32(streamId));
+        out.write(payload);
+    }
+
+    /**
+     * @return the next frame, or null if the client closed the connection
+     */
+    private Frame readFrame() throws IOException {
+        byte[] header = new byte[9];
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        header[0] = (byte) first;
+        readFully(header, 1);
+        int length = (header[0] & 0xff) << 16 | (header[1] & 0xff) << 8 | header[2] & 0xff;
+        if (length > MAX_FRAME_BYTES) {
+            throw new IOException("Frame too large: " + length + " bytes");
+        }
+        int streamId = (header[5] & 0x7f) << 24 | (header[6] & 0xff) << 16 | (header[7] & 0xff) << 8
+                | header[8] & 0xff;
+        byte[] payload = new byte[length];
+        readFully(payload);
+        return new Frame(header[3] & 0xff, header[4] & 0xff, streamId, payload);
+    }
+
+    private void readFully(byte[] bytes) throws IOException {
+        readFully(bytes, 0);
+    }
+
+    private void readFully(byte[] bytes, int offset) throws IOException {
+        while (offset < bytes.length) {
+            int read = in.read(bytes, offset, bytes.length - offset);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+    }
+
+    private static byte[] int32(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    private static final class Frame {
+        final int type;
+        final int flags;
+        final int streamId;
+        final byte[] payload;
+
+        Frame(int type, int flags, int streamId, byte[] payload) {
+            this.type = type;
+            this.flags = flags;
+            this.streamId = streamId;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Request {
+        final String method;
+        final String path;
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        Request(String method, String path) {
+            this.method = method;
+            this.path = path;
+        }
+    }
+}
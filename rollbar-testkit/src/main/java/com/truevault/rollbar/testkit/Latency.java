@@ -0,0 +1,79 @@
+package com.truevault.rollbar.testkit;
+
+import com.truevault.rollbar.utilities.Validate;
+import java.time.Duration;
+import java.util.Random;
+import javax.annotation.Nonnull;
+
+/**
+ * A distribution of response times for {@link FakeRollbarServer}.
+ */
+@FunctionalInterface
+public interface Latency {
+    /**
+     * @param random the source of randomness to use
+     * @return how long to wait before responding, in nanoseconds
+     */
+    long sampleNanos(@Nonnull Random random);
+
+    /**
+     * @return no added latency
+     */
+    @Nonnull
+    static Latency none() {
+        return random -> 0;
+    }
+
+    /**
+     * @param latency the latency
+     * @return the same latency every time
+     */
+    @Nonnull
+    static Latency fixed(@Nonnull Duration latency) {
+        Validate.isNotNull(latency, "latency");
+        long nanos = latency.toNanos();
+        return random -> nanos;
+    }
+
+    /**
+     * @param min the lowest latency
+     * @param max the highest latency
+     * @return latencies spread evenly between min and max
+     */
+    @Nonnull
+    static Latency uniform(@Nonnull Duration min, @Nonnull Duration max) {
+        Validate.isNotNull(min, "min");
+        Validate.isNotNull(max, "max");
+        long minNanos = min.toNanos();
+        long spread = max.toNanos() - minNanos;
+        if (spread < 0) {
+            throw new IllegalArgumentException("max must not be less than min");
+        }
+        return random -> minNanos + (long) (random.nextDouble() * spread);
+    }
+
+    /**
+     * @param mean the mean latency
+     * @return exponentially distributed latencies: mostly short, with a long tail
+     */
+    @Nonnull
+    static Latency exponential(@Nonnull Duration mean) {
+        Validate.isNotNull(mean, "mean");
+        long meanNanos = mean.toNanos();
+        return random -> (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+    }
+
+    /**
+     * @param tailRate the fraction of responses that take the tail latency, from 0 to 1
+     * @param tail     the latency of those responses
+     * @return this latency most of the time, and the tail latency for the given fraction of responses
+     */
+    @Nonnull
+    default Latency withTail(double tailRate, @Nonnull Latency tail) {
+        Validate.isNotNull(tail, "tail");
+        if (!(tailRate >= 0 && tailRate <= 1)) {
+            throw new IllegalArgumentException("tailRate must be in [0, 1]");
+        }
+        return random -> random.nextDouble() < tailRate ? tail.sampleNanos(random) : sampleNanos(random);
+    }
+}
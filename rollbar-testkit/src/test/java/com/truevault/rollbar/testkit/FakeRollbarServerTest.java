@@ -0,0 +1,153 @@
+package com.truevault.rollbar.testkit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.truevault.rollbar.utilities.Json;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import org.junit.After;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FakeRollbarServerTest {
+    private FakeRollbarServer server;
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void acceptsAndRecordsItems() throws IOException, InterruptedException {
+        server = FakeRollbarServer.start();
+
+        Response response = post(server.url(), "{\"access_token\":\"abc\",\"data\":{\"environment\":\"test\"}}");
+
+        assertEquals(200, response.status);
+        JsonNode body = Json.getObjectReader().readTree(response.body);
+        assertEquals(0, body.get("err").asInt());
+        assertEquals(32, body.at("/result/uuid").asText().length());
+        assertTrue(server.awaitItems(1, Duration.ofSeconds(1)));
+        assertEquals("test", server.getItems().get(0).at("/data/environment").asText());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void rejectsInvalidJson() throws IOException {
+        server = FakeRollbarServer.start();
+
+        Response response = post(server.url(), "not json");
+
+        assertEquals(400, response.status);
+        assertEquals(0, server.getItemCount());
+    }
+
+    @Test
+    public void injectsFailures() throws IOException {
+        server = FakeRollbarServer.start(new Behavior.Builder().rateLimitRate(1).build());
+        Response response = post(server.url(), "{}");
+        assertEquals(429, response.status);
+        assertEquals(1, Json.getObjectReader().readTree(response.body).get("err").asInt());
+
+        server.setBehavior(new Behavior.Builder().serverErrorRate(1).build());
+        int status = post(server.url(), "{}").status;
+        assertTrue(String.valueOf(status), status == 500 || status == 503);
+
+        server.setBehavior(new Behavior.Builder().maxPayloadBytes(10).build());
+        assertEquals(413, post(server.url(), "{\"too\":\"long\"}").status);
+
+        server.setBehavior(Behavior.ok());
+        assertEquals(200, post(server.url(), "{}").status);
+        assertEquals(3, server.getFailureCount());
+        assertEquals(1, server.getItemCount());
+    }
+
+    @Test
+    public void resetsConnections() throws IOException {
+        server = FakeRollbarServer.start(new Behavior.Builder().resetRate(1).build());
+
+        try {
+            post(server.url(), "{}");
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(0, server.getItemCount());
+    }
+
+    @Test
+    public void addsLatency() throws IOException {
+        server = FakeRollbarServer.start(new Behavior.Builder().latency(Latency.fixed(Duration.ofMillis(100))).build());
+
+        long start = System.nanoTime();
+        post(server.url(), "{}");
+
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(100).toNanos());
+    }
+
+    @Test
+    public void timesOutWaitingForItems() throws IOException, InterruptedException {
+        server = FakeRollbarServer.start();
+
+        assertFalse(server.awaitItems(1, Duration.ofMillis(10)));
+    }
+
+    @Test
+    public void keepsConnectionsAlive() throws IOException {
+        server = FakeRollbarServer.start();
+
+        post(server.url(), "{}");
+        post(server.url(), "{}");
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void onlyServesTheItemEndpoint() throws IOException {
+        server = FakeRollbarServer.start();
+
+        assertEquals(404, post(server.url().replace("/item/", "/deploy/"), "{}").status);
+    }
+
+    private static Response post(String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(UTF_8));
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        in.close();
+        return new Response(status, new String(bytes.toByteArray(), UTF_8));
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.truevault.rollbar.testkit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Decodes the examples from RFC 7541 appendix C.
+ */
+public class HpackTest {
+    @Test
+    public void decodesLiterals() throws IOException {
+        Map<String, String> fields = new Hpack().decode(hex("828684410f7777772e6578616d706c652e636f6d"));
+
+        assertEquals("GET", fields.get(":method"));
+        assertEquals("http", fields.get(":scheme"));
+        assertEquals("/", fields.get(":path"));
+        assertEquals("www.example.com", fields.get(":authority"));
+    }
+
+    @Test
+    public void decodesHuffmanCodedRequestsWithTheDynamicTable() throws IOException {
+        Hpack hpack = new Hpack();
+
+        Map<String, String> first = hpack.decode(hex("828684418cf1e3c2e5f23a6ba0ab90f4ff"));
+        assertEquals("www.example.com", first.get(":authority"));
+
+        Map<String, String> second = hpack.decode(hex("828684be5886a8eb10649cbf"));
+        assertEquals("www.example.com", second.get(":authority"));
+        assertEquals("no-cache", second.get("cache-control"));
+
+        Map<String, String> third = hpack.decode(hex("828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"));
+        assertEquals("https", third.get(":scheme"));
+        assertEquals("/index.html", third.get(":path"));
+        assertEquals("www.example.com", third.get(":authority"));
+        assertEquals("custom-value", third.get("custom-key"));
+    }
+
+    @Test
+    public void decodesWhatItEncodes() throws IOException {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longValue.append((char) ('a' + i % 26));
+        }
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        Hpack.writeLiteral(block, Hpack.STATUS, "200");
+        Hpack.writeLiteral(block, Hpack.CONTENT_TYPE, longValue.toString());
+
+        Map<String, String> fields = new Hpack().decode(block.toByteArray());
+
+        assertEquals("200", fields.get(":status"));
+        assertEquals(longValue.toString(), fields.get("content-type"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnknownIndexes() throws IOException {
+        new Hpack().decode(hex("be"));
+    }
+
+    private static byte[] hex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -4,6 +4,8 @@ package com.truevault.rollbar.utilities;
  * Indicates a null argument was passed when it shouldn't have been.
  */
 public class ArgumentNullException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Constructor
      * @param parameter the null parameter
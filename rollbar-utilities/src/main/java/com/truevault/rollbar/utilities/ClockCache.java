@@ -0,0 +1,181 @@
+package com.truevault.rollbar.utilities;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A concurrent map with a fixed maximum size that evicts entries with the CLOCK algorithm (an approximation of LRU).
+ *
+ * Lookups are lock-free: a hit only sets the entry's reference bit. Inserting a new key takes a lock, and when the
+ * cache is full sweeps a "hand" around the entries, clearing reference bits until it finds an entry that hasn't been
+ * used since the last sweep, which it evicts. This makes it a good fit for caches where hits vastly outnumber inserts.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+@ThreadSafe
+public final class ClockCache<K, V> {
+    private final int capacity;
+    private final ConcurrentHashMap<K, Node<K, V>> map;
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final Node<K, V>[] ring;
+    private int used;
+    private int hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the maximum number of entries
+     */
+    @SuppressWarnings("unchecked")
+    public ClockCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.map = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+        this.ring = (Node<K, V>[]) new Node<?, ?>[capacity];
+    }
+
+    /**
+     * @param key the key
+     * @return the value, or null if not present
+     */
+    @Nullable
+    public V get(@Nonnull K key) {
+        Node<K, V> node = map.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        node.referenced = true;
+        return node.value;
+    }
+
+    /**
+     * Get the value for a key, creating it if necessary. The function may be called (outside of any lock) by more
+     * than one thread for the same key, but only one of the results will be kept and returned to all of them.
+     *
+     * @param key      the key
+     * @param function creates the value for a key that isn't present
+     * @return the existing or new value
+     */
+    @Nonnull
+    public V computeIfAbsent(@Nonnull K key, @Nonnull Function<? super K, ? extends V> function) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        return insert(key, function.apply(key), false);
+    }
+
+    /**
+     * Set the value for a key, replacing any existing value.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(@Nonnull K key, @Nonnull V value) {
+        insert(key, value, true);
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * @return the maximum number of entries
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of lookups that found a value
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that didn't find a value
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    private V insert(K key, V value, boolean replace) {
+        Validate.isNotNull(value, "value");
+        lock.lock();
+        try {
+            Node<K, V> existing = map.get(key);
+            if (existing != null) {
+                if (!replace) {
+                    existing.referenced = true;
+                    return existing.value;
+                }
+                Node<K, V> replacement = new Node<>(key, value);
+                ring[existing.slot] = replacement;
+                replacement.slot = existing.slot;
+                map.put(key, replacement);
+                return value;
+            }
+
+            Node<K, V> node = new Node<>(key, value);
+            node.slot = nextSlot();
+            ring[node.slot] = node;
+            map.put(key, node);
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must hold lock.
+     *
+     * @return a free slot in the ring, evicting an entry if necessary
+     */
+    private int nextSlot() {
+        if (used < capacity) {
+            return used++;
+        }
+
+        while (true) {
+            Node<K, V> candidate = ring[hand];
+            int slot = hand;
+            hand = (hand + 1) % capacity;
+            if (candidate.referenced) {
+                candidate.referenced = false;
+            } else {
+                map.remove(candidate.key, candidate);
+                return slot;
+            }
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        // set on every hit, cleared by the clock hand
+        volatile boolean referenced;
+        // guarded by the cache lock
+        int slot;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
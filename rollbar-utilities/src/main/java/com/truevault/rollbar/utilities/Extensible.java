@@ -1,11 +1,17 @@
 package com.truevault.rollbar.utilities;
 
 import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
@@ -16,7 +22,8 @@ import javax.annotation.concurrent.NotThreadSafe;
  * @param <T> The extensible type itself.
  */
 @NotThreadSafe
-public abstract class Extensible<T extends Extensible<T>> {
+@JsonSerialize(using = Extensible.Serializer.class)
+public abstract class Extensible<T extends Extensible<T>> implements JsonWritable {
     private Set<String> knownMembers;
 
     private final TreeMap<String, Object> members;
@@ -113,6 +120,9 @@ public abstract class Extensible<T extends Extensible<T>> {
         return new TreeMap<>(members);
     }
 
+    /**
+     * @return the members as they're serialized: known members that aren't null, followed by the rest in key order
+     */
     @JsonValue
     public Map<String, Object> asJson() {
         LinkedHashMap<String, Object> json = new LinkedHashMap<String, Object>();
@@ -128,4 +138,56 @@ public abstract class Extensible<T extends Extensible<T>> {
         }
         return json;
     }
+
+    @Override
+    public void writeJson(@Nonnull JsonOutput out) {
+        Set<String> known = knownMembers();
+        out.beginObject();
+        for (String key : known) {
+            Object member = members.get(key);
+            if (member != null) {
+                out.name(key);
+                out.value(member);
+            }
+        }
+        for (Map.Entry<String, Object> entry : members.entrySet()) {
+            if (entry.getValue() == null || !known.contains(entry.getKey())) {
+                out.name(entry.getKey());
+                out.value(entry.getValue());
+            }
+        }
+        out.endObject();
+    }
+
+    /**
+     * Writes the same JSON as {@link #asJson()}, straight from the members instead of through a copy of them.
+     */
+    static class Serializer extends StdSerializer<Extensible<?>> {
+        private static final long serialVersionUID = 1L;
+
+        Serializer() {
+            super(Extensible.class, false);
+        }
+
+        @Override
+        public void serialize(Extensible<?> value, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            Set<String> known = value.knownMembers();
+            gen.writeStartObject();
+            for (String key : known) {
+                Object member = value.members.get(key);
+                if (member != null) {
+                    gen.writeFieldName(key);
+                    provider.defaultSerializeValue(member, gen);
+                }
+            }
+            for (Map.Entry<String, Object> entry : value.members.entrySet()) {
+                if (entry.getValue() == null || !known.contains(entry.getKey())) {
+                    gen.writeFieldName(entry.getKey());
+                    provider.defaultSerializeValue(entry.getValue(), gen);
+                }
+            }
+            gen.writeEndObject();
+        }
+    }
 }
@@ -4,6 +4,8 @@ package com.truevault.rollbar.utilities;
  * An IllegalArgumentException indicating an argument that's too long or too short.
  */
 public class InvalidLengthException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Static Factory making an exception indicating an argument was passed that was too long.
      * @param parameter the parameter that was too long
@@ -1,10 +1,16 @@
 package com.truevault.rollbar.utilities;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
 
@@ -30,9 +36,27 @@ public class Json {
                             JsonInclude.Include.USE_DEFAULTS));
 
             mapper.setConfig(config);
+            mapper.registerModule(new SimpleModule().addSerializer(new SerializableStringSerializer()));
 
             WRITER = mapper.writer();
             READER = mapper.reader();
         }
     }
+
+    /**
+     * Writes SerializableStrings as plain strings, reusing their already encoded bytes.
+     */
+    private static class SerializableStringSerializer extends StdSerializer<SerializableString> {
+        private static final long serialVersionUID = 1L;
+
+        SerializableStringSerializer() {
+            super(SerializableString.class);
+        }
+
+        @Override
+        public void serialize(SerializableString value, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeString(value);
+        }
+    }
 }
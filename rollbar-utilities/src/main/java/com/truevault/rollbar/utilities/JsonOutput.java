@@ -0,0 +1,429 @@
+package com.truevault.rollbar.utilities;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes UTF-8 encoded JSON without Jackson's ObjectMapper, for {@link JsonWritable}s. The output is the same as what
+ * {@link Json#getObjectWriter()} writes, so that the first item doesn't have to wait for Jackson to start up and
+ * introspect the payload classes.
+ *
+ * Strings, numbers, booleans, UUIDs, maps with string keys, collections, arrays and JsonWritables are written
+ * directly. Anything else (e.g. an arbitrary object in custom data) is handed to Jackson.
+ *
+ * Surrogates in strings are escaped one by one, as Jackson does: both halves of a pair (e.g. an emoji), and half of a
+ * pair without its other half (e.g. from a message truncated in the middle of an emoji), which can't be encoded in
+ * UTF-8 at all. Like Jackson, a {@link SerializableString} is written as it encodes itself, pairs included, except
+ * that half a pair is escaped rather than refused with an IllegalArgumentException.
+ */
+@NotThreadSafe
+public final class JsonOutput {
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(UTF_8);
+    private static final byte[] NULL = "null".getBytes(UTF_8);
+    private static final byte[] TRUE = "true".getBytes(UTF_8);
+    private static final byte[] FALSE = "false".getBytes(UTF_8);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(UTF_8);
+
+    private byte[] json;
+    private int length;
+    // whether the next name or value follows another one, and needs a comma before it
+    private boolean comma;
+
+    public JsonOutput() {
+        this(8192);
+    }
+
+    /**
+     * @param capacity the initial size of the buffer, in bytes. It grows as needed.
+     */
+    public JsonOutput(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.json = new byte[capacity];
+    }
+
+    /**
+     * @param value what to write
+     * @return the value as JSON
+     */
+    @Nonnull
+    public static String toJson(@Nonnull JsonWritable value) {
+        JsonOutput out = new JsonOutput();
+        value.writeJson(out);
+        return out.toString();
+    }
+
+    /**
+     * @param value what to write
+     * @return the value as UTF-8 encoded JSON
+     */
+    @Nonnull
+    public static byte[] toJsonBytes(@Nonnull JsonWritable value) {
+        JsonOutput out = new JsonOutput();
+        value.writeJson(out);
+        return out.toByteArray();
+    }
+
+    public void beginObject() {
+        separate();
+        append((byte) '{');
+        comma = false;
+    }
+
+    public void endObject() {
+        append((byte) '}');
+        comma = true;
+    }
+
+    public void beginArray() {
+        separate();
+        append((byte) '[');
+        comma = false;
+    }
+
+    public void endArray() {
+        append((byte) ']');
+        comma = true;
+    }
+
+    /**
+     * @param name the name of the next field of the current object
+     */
+    public void name(@Nonnull String name) {
+        separate();
+        quote(name);
+        append((byte) ':');
+        comma = false;
+    }
+
+    public void nullValue() {
+        separate();
+        append(NULL);
+        comma = true;
+    }
+
+    public void value(@Nullable String value) {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        separate();
+        quote(value);
+        comma = true;
+    }
+
+    public void value(long value) {
+        separate();
+        appendLong(value);
+        comma = true;
+    }
+
+    public void value(double value) {
+        separate();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // like Jackson, which quotes them by default
+            quote(Double.toString(value));
+        } else {
+            appendAscii(Double.toString(value));
+        }
+        comma = true;
+    }
+
+    public void value(boolean value) {
+        separate();
+        append(value ? TRUE : FALSE);
+        comma = true;
+    }
+
+    public void value(@Nullable JsonWritable value) {
+        if (value == null) {
+            nullValue();
+        } else {
+            value.writeJson(this);
+        }
+    }
+
+    /**
+     * @param value any value, written the way Jackson would
+     */
+    public void value(@Nullable Object value) {
+        if (value == null) {
+            nullValue();
+        } else if (value instanceof String) {
+            value((String) value);
+        } else if (value instanceof JsonWritable) {
+            ((JsonWritable) value).writeJson(this);
+        } else if (value instanceof SerializableString) {
+            byte[] quoted;
+            try {
+                quoted = ((SerializableString) value).asQuotedUTF8();
+            } catch (IllegalArgumentException e) {
+                // half of a surrogate pair, which Jackson can't encode on its own
+                value(((SerializableString) value).getValue());
+                return;
+            }
+            separate();
+            append((byte) '"');
+            append(quoted);
+            append((byte) '"');
+            comma = true;
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+            value(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            value(((Double) value).doubleValue());
+        } else if (value instanceof Float) {
+            float f = (Float) value;
+            separate();
+            if (Float.isNaN(f) || Float.isInfinite(f)) {
+                quote(Float.toString(f));
+            } else {
+                appendAscii(Float.toString(f));
+            }
+            comma = true;
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            separate();
+            appendAscii(value.toString());
+            comma = true;
+        } else if (value instanceof Boolean) {
+            value(((Boolean) value).booleanValue());
+        } else if (value instanceof UUID) {
+            value(value.toString());
+        } else if (value instanceof Map && hasStringKeys((Map<?, ?>) value)) {
+            beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                name((String) entry.getKey());
+                value(entry.getValue());
+            }
+            endObject();
+        } else if (value instanceof Collection) {
+            beginArray();
+            for (Object element : (Collection<?>) value) {
+                value(element);
+            }
+            endArray();
+        } else if (value instanceof Object[]) {
+            beginArray();
+            for (Object element : (Object[]) value) {
+                value(element);
+            }
+            endArray();
+        } else {
+            jackson(value);
+        }
+    }
+
+    /**
+     * @return the JSON written so far, UTF-8 encoded
+     */
+    @Nonnull
+    public byte[] toByteArray() {
+        return Arrays.copyOf(json, length);
+    }
+
+    /**
+     * @return the JSON written so far, as a view of the buffer rather than a copy. It's only valid until this is
+     * written to or {@link #reset() reset}.
+     */
+    @Nonnull
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(json, 0, length);
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Discards what was written, keeping the buffer for the next value.
+     */
+    public void reset() {
+        length = 0;
+        comma = false;
+    }
+
+    /**
+     * @return the JSON written so far
+     */
+    @Override
+    public String toString() {
+        return new String(json, 0, length, UTF_8);
+    }
+
+    int capacity() {
+        return json.length;
+    }
+
+    /**
+     * Replaces the buffer with an empty one of the given size, discarding what was written.
+     */
+    void reallocate(int capacity) {
+        json = new byte[capacity];
+        reset();
+    }
+
+    private void jackson(Object value) {
+        byte[] written;
+        try {
+            written = Json.getObjectWriter().writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        separate();
+        append(written);
+        comma = true;
+    }
+
+    private static boolean hasStringKeys(Map<?, ?> map) {
+        for (Object key : map.keySet()) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void separate() {
+        if (comma) {
+            append((byte) ',');
+        }
+    }
+
+    private void ensure(int more) {
+        if (length + more > json.length) {
+            json = Arrays.copyOf(json, Math.max(json.length * 2, length + more));
+        }
+    }
+
+    private void append(byte b) {
+        ensure(1);
+        json[length++] = b;
+    }
+
+    private void append(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, json, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void appendAscii(String ascii) {
+        int n = ascii.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            json[length++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            append(MIN_LONG);
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            json[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            json[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    /**
+     * Escapes the same characters as Jackson (quotes, backslashes, control characters and surrogates), and encodes the
+     * rest as UTF-8.
+     */
+    private void quote(String value) {
+        int n = value.length();
+        // enough for every character to take 3 bytes, the most a char (or half a surrogate pair) takes in UTF-8
+        ensure(n * 3 + 2);
+        byte[] json = this.json;
+        int length = this.length;
+        json[length++] = '"';
+        for (int i = 0; i < n; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    json[length++] = (byte) c;
+                    continue;
+                }
+                // escapes take up to 6 bytes
+                this.length = length;
+                ensure(6 + (n - i) * 3 + 1);
+                json = this.json;
+                json[length++] = '\\';
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        json[length++] = (byte) c;
+                        break;
+                    case '\b':
+                        json[length++] = 'b';
+                        break;
+                    case '\t':
+                        json[length++] = 't';
+                        break;
+                    case '\n':
+                        json[length++] = 'n';
+                        break;
+                    case '\f':
+                        json[length++] = 'f';
+                        break;
+                    case '\r':
+                        json[length++] = 'r';
+                        break;
+                    default:
+                        json[length++] = 'u';
+                        json[length++] = '0';
+                        json[length++] = '0';
+                        json[length++] = HEX[c >> 4];
+                        json[length++] = HEX[c & 0xF];
+                }
+            } else if (c < 0x800) {
+                json[length++] = (byte) (0xC0 | c >> 6);
+                json[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // Jackson escapes each half of a surrogate pair rather than encoding the pair as 4 bytes, and half a
+                // pair without its other half can't be encoded in UTF-8 at all
+                this.length = length;
+                ensure(6 + (n - i) * 3 + 1);
+                json = this.json;
+                json[length++] = '\\';
+                json[length++] = 'u';
+                json[length++] = HEX[c >> 12];
+                json[length++] = HEX[c >> 8 & 0xF];
+                json[length++] = HEX[c >> 4 & 0xF];
+                json[length++] = HEX[c & 0xF];
+            } else {
+                json[length++] = (byte) (0xE0 | c >> 12);
+                json[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                json[length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        json[length++] = '"';
+        this.length = length;
+    }
+}
@@ -0,0 +1,112 @@
+package com.truevault.rollbar.utilities;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded pool of {@link JsonOutput}s, so that serializing an item reuses a buffer instead of allocating and growing
+ * a new one (and then copying the result out of it) every time.
+ *
+ * New buffers start out a quarter larger than the recent average size of what was written, so most values fit without
+ * growing the buffer. A buffer that grew far beyond that average, e.g. for one unusually large item, isn't kept when
+ * it's released, and neither is one released while the pool is full.
+ *
+ * Taking and returning buffers is lock-free and doesn't allocate.
+ */
+@ThreadSafe
+public final class JsonOutputPool {
+    private static final int MIN_CAPACITY = 1024;
+    // buffers more than this many times the size new ones start at are dropped rather than pooled
+    private static final int MAX_GROWTH = 4;
+
+    private final AtomicReferenceArray<JsonOutput> idle;
+    // an exponentially weighted moving average of the sizes written, with a weight of 1/8 for each new size. Updates
+    // may race and lose one, which is fine for a sizing hint.
+    private volatile int averageSize;
+
+    /**
+     * Keeps up to 16 idle buffers.
+     */
+    public JsonOutputPool() {
+        this(16);
+    }
+
+    /**
+     * @param maxIdle the most buffers to keep for reuse
+     */
+    public JsonOutputPool(int maxIdle) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException("maxIdle must be positive");
+        }
+        this.idle = new AtomicReferenceArray<>(maxIdle);
+    }
+
+    /**
+     * @return an empty JsonOutput, which should be {@link #release(JsonOutput) released} once its contents are no
+     * longer needed
+     */
+    @Nonnull
+    public JsonOutput acquire() {
+        int n = idle.length();
+        int start = slot();
+        for (int i = 0; i < n; i++) {
+            int index = (start + i) % n;
+            JsonOutput out = idle.get(index);
+            if (out != null && idle.compareAndSet(index, out, null)) {
+                return out;
+            }
+        }
+        return new JsonOutput(getInitialCapacity());
+    }
+
+    /**
+     * Returns a buffer to the pool. It must not be used afterwards, nor may any {@link JsonOutput#toByteBuffer() view}
+     * of it.
+     *
+     * @param out a JsonOutput from {@link #acquire()}
+     */
+    public void release(@Nonnull JsonOutput out) {
+        int average = averageSize;
+        averageSize = average == 0 ? out.size() : average + (out.size() - average) / 8;
+
+        if (out.capacity() > (long) getInitialCapacity() * MAX_GROWTH) {
+            return;
+        }
+        out.reset();
+        int n = idle.length();
+        int start = slot();
+        for (int i = 0; i < n; i++) {
+            int index = (start + i) % n;
+            if (idle.get(index) == null && idle.compareAndSet(index, null, out)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the size, in bytes, that new buffers start at
+     */
+    public int getInitialCapacity() {
+        int average = averageSize;
+        return Math.max(MIN_CAPACITY, average + average / 4);
+    }
+
+    /**
+     * @return the number of buffers waiting to be reused
+     */
+    public int getIdleCount() {
+        int count = 0;
+        for (int i = 0; i < idle.length(); i++) {
+            if (idle.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // start looking at a different slot in each thread, so that threads don't all contend for the first one
+    private int slot() {
+        return (int) (Thread.currentThread().getId() % idle.length());
+    }
+}
@@ -0,0 +1,14 @@
+package com.truevault.rollbar.utilities;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Something that can write itself as JSON without Jackson's reflection, e.g. with a writer generated at compile time
+ * by rollbar-codegen. The JSON must be the same as what Jackson writes for the object.
+ */
+public interface JsonWritable {
+    /**
+     * @param out where to write this, as one JSON value
+     */
+    void writeJson(@Nonnull JsonOutput out);
+}
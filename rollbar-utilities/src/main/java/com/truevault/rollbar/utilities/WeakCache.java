@@ -0,0 +1,93 @@
+package com.truevault.rollbar.utilities;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Maps keys to values computed from them, without keeping either alive: an entry disappears once no one else
+ * references its key, and once no one else references its value. Values may refer to their keys.
+ *
+ * The cache is split into independently locked segments by hash, so that concurrent callers rarely contend.
+ *
+ * @param <K> the type of the keys. Must implement {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ * @param <V> the type of the values
+ */
+@ThreadSafe
+public final class WeakCache<K, V> {
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    public WeakCache() {
+        segments = (Segment<K, V>[]) new Segment<?, ?>[SEGMENTS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    /**
+     * @param key     the key
+     * @param compute computes the value for the key if the cache doesn't have it. It's called without holding any
+     *                lock, so concurrent callers may compute a value for the same key; only the first one is kept.
+     * @return the cached value for the key, or the value computed for it, which is cached
+     */
+    @Nonnull
+    public V computeIfAbsent(@Nonnull K key, @Nonnull Function<? super K, ? extends V> compute) {
+        Validate.isNotNull(key, "key");
+        Segment<K, V> segment = segment(key);
+        V value = segment.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = compute.apply(key);
+        Validate.isNotNull(value, "value");
+        return segment.putIfAbsent(key, value);
+    }
+
+    /**
+     * @return the number of entries that haven't been collected yet
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment<K, V> segment(K key) {
+        int h = key.hashCode();
+        // spread the high bits, since WeakHashMap uses the low ones too
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static final class Segment<K, V> {
+        // the values are only weakly referenced, so that values referring to their keys don't keep the entries alive
+        private final Map<K, WeakReference<V>> map = new WeakHashMap<>();
+
+        @Nullable
+        synchronized V get(K key) {
+            WeakReference<V> ref = map.get(key);
+            return ref == null ? null : ref.get();
+        }
+
+        synchronized V putIfAbsent(K key, V value) {
+            V existing = get(key);
+            if (existing != null) {
+                return existing;
+            }
+            map.put(key, new WeakReference<>(value));
+            return value;
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.truevault.rollbar.utilities;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Canonicalizes equal instances, like {@link String#intern()} does for strings, without keeping them alive: once no
+ * one else references the canonical instance, it can be garbage collected and its entry disappears.
+ *
+ * The pool is split into independently locked segments by hash, so that concurrent callers rarely contend.
+ *
+ * @param <T> the type of the values. Must implement {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ */
+@ThreadSafe
+public final class WeakInterner<T> {
+    private final WeakCache<T, T> pool = new WeakCache<>();
+
+    /**
+     * @param value the value
+     * @return the canonical instance equal to the value: either an equal instance interned earlier, or the value
+     * itself, which becomes the canonical instance
+     */
+    @Nonnull
+    public T intern(@Nonnull T value) {
+        Validate.isNotNull(value, "value");
+        return pool.computeIfAbsent(value, v -> v);
+    }
+
+    /**
+     * @return the number of interned instances that haven't been collected yet
+     */
+    public int size() {
+        return pool.size();
+    }
+}
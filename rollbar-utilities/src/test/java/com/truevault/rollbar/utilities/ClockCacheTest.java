@@ -0,0 +1,57 @@
+package com.truevault.rollbar.utilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ClockCacheTest {
+
+    @Test
+    public void evictsUnreferencedEntriesFirst() {
+        ClockCache<String, String> cache = new ClockCache<>(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+
+        // the hit on "a" gives it a second chance, so "b" is evicted instead
+        assertEquals("A", cache.get("a"));
+        cache.put("c", "C");
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void neverExceedsCapacity() {
+        ClockCache<Integer, Integer> cache = new ClockCache<>(16);
+        for (int i = 0; i < 1000; i++) {
+            cache.computeIfAbsent(i, k -> k);
+            cache.get(i / 2);
+        }
+
+        assertEquals(16, cache.size());
+    }
+
+    @Test
+    public void computeIfAbsentKeepsExistingValue() {
+        ClockCache<String, String> cache = new ClockCache<>(4);
+        cache.put("a", "first");
+
+        assertEquals("first", cache.computeIfAbsent("a", k -> "second"));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        ClockCache<String, String> cache = new ClockCache<>(4);
+        assertNull(cache.get("a"));
+        cache.put("a", "A");
+        cache.get("a");
+        cache.get("a");
+
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+}
@@ -0,0 +1,83 @@
+package com.truevault.rollbar.utilities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class JsonOutputPoolTest {
+
+    @Test
+    public void reusesReleasedBuffers() {
+        JsonOutputPool pool = new JsonOutputPool();
+        JsonOutput out = pool.acquire();
+        out.value("x");
+        pool.release(out);
+
+        assertEquals(1, pool.getIdleCount());
+        JsonOutput again = pool.acquire();
+        assertSame(out, again);
+        assertEquals(0, again.size());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void keepsAtMostMaxIdle() {
+        JsonOutputPool pool = new JsonOutputPool(2);
+        JsonOutput a = pool.acquire();
+        JsonOutput b = pool.acquire();
+        JsonOutput c = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    public void newBuffersFollowRecentSizes() {
+        JsonOutputPool pool = new JsonOutputPool();
+        assertEquals(1024, pool.getInitialCapacity());
+
+        for (int i = 0; i < 3; i++) {
+            JsonOutput out = pool.acquire();
+            out.value(repeat('x', 9998));
+            pool.release(out);
+        }
+
+        // a quarter more than the 10000 bytes written each time
+        assertEquals(12500, pool.getInitialCapacity());
+    }
+
+    @Test
+    public void dropsBuffersThatGrewFarPastTheAverage() {
+        JsonOutputPool pool = new JsonOutputPool();
+        for (int i = 0; i < 10; i++) {
+            JsonOutput out = pool.acquire();
+            out.value("small");
+            pool.release(out);
+        }
+        JsonOutput small = pool.acquire();
+        JsonOutput large = pool.acquire();
+        large.value(repeat('x', 100000));
+        pool.release(large);
+
+        assertEquals(0, pool.getIdleCount());
+        pool.release(small);
+        assertNotSame(large, pool.acquire());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveMaxIdle() {
+        new JsonOutputPool(0);
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package com.truevault.rollbar.utilities;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+public class JsonOutputTest {
+
+    @Test
+    public void escapesLikeJackson() throws IOException {
+        StringBuilder everyChar = new StringBuilder();
+        for (char c = 0; c < 0x80; c++) {
+            everyChar.append(c);
+        }
+        everyChar.append("\u00e9 \u2603 \ud83d\ude00");
+
+        assertSameAsJackson(everyChar.toString());
+        assertSameAsJackson(new SerializedString(everyChar.toString()));
+        assertSameAsJackson(Collections.singletonMap(everyChar.toString(), 1));
+    }
+
+    @Test
+    public void escapesSurrogatePairsLikeJackson() throws IOException {
+        String emoji = "m\ud83d\ude00";
+        JsonOutput out = new JsonOutput();
+        out.value(emoji);
+
+        assertEquals("\"m\\uD83D\\uDE00\"", out.toString());
+        assertSameAsJackson(emoji);
+        assertSameAsJackson(Collections.singletonMap(emoji, emoji));
+    }
+
+    @Test
+    public void escapesLoneSurrogatesLikeJackson() throws IOException {
+        String lone = "a\ud83d b\ude00 c\ude00\ud83d";
+        JsonOutput out = new JsonOutput();
+        out.value(lone);
+        JsonOutput serialized = new JsonOutput();
+        serialized.value(new SerializedString(lone));
+
+        assertEquals("\"a\\uD83D b\\uDE00 c\\uDE00\\uD83D\"", out.toString());
+        assertEquals(new String(Json.getObjectWriter().writeValueAsBytes(lone), UTF_8), out.toString());
+        assertEquals(out.toString(), serialized.toString());
+    }
+
+    @Test
+    public void writesValuesLikeJackson() throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("null", null);
+        map.put("int", 1);
+        map.put("long", Long.MIN_VALUE);
+        map.put("double", 0.1);
+        map.put("small", 1e-10);
+        map.put("nan", Double.NaN);
+        map.put("infinity", Float.NEGATIVE_INFINITY);
+        map.put("float", 0.1f);
+        map.put("big", BigInteger.TEN.pow(30));
+        map.put("boolean", true);
+        map.put("uuid", new UUID(1, 2));
+        map.put("list", Arrays.asList(1, "two", null, Collections.emptyMap()));
+        map.put("array", new String[]{"a", "b"});
+        map.put("empty", new TreeMap<>());
+
+        assertSameAsJackson(map);
+    }
+
+    @Test
+    public void handsOtherValuesToJackson() throws IOException {
+        Map<Object, Object> intKeys = new LinkedHashMap<>();
+        intKeys.put(1, "one");
+
+        assertSameAsJackson(intKeys);
+        assertSameAsJackson(new int[]{1, 2});
+        assertSameAsJackson(Arrays.asList('c', Thread.State.NEW));
+    }
+
+    @Test
+    public void separatesValues() {
+        JsonOutput out = new JsonOutput();
+        out.beginObject();
+        out.name("a");
+        out.beginArray();
+        out.value(1);
+        out.beginObject();
+        out.endObject();
+        out.value("x");
+        out.endArray();
+        out.name("b");
+        out.nullValue();
+        out.endObject();
+
+        assertEquals("{\"a\":[1,{},\"x\"],\"b\":null}", out.toString());
+    }
+
+    @Test
+    public void resetReusesTheBuffer() {
+        JsonOutput out = new JsonOutput(4);
+        out.value("a long enough string to grow the buffer");
+        out.reset();
+        out.beginArray();
+        out.value(1);
+        out.endArray();
+
+        ByteBuffer json = out.toByteBuffer();
+        assertEquals(3, out.size());
+        assertEquals("[1]", UTF_8.decode(json).toString());
+    }
+
+    private static void assertSameAsJackson(Object value) throws IOException {
+        JsonOutput out = new JsonOutput();
+        out.value(value);
+
+        assertEquals(new String(Json.getObjectWriter().writeValueAsBytes(value), UTF_8), out.toString());
+    }
+}
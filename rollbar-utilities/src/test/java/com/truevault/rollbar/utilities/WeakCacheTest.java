@@ -0,0 +1,59 @@
+package com.truevault.rollbar.utilities;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+
+public class WeakCacheTest {
+
+    @Test
+    public void computesEachValueOnce() {
+        WeakCache<String, StringBuilder> cache = new WeakCache<>();
+        AtomicInteger computed = new AtomicInteger();
+        String key = "key";
+
+        StringBuilder first = cache.computeIfAbsent(key, k -> {
+            computed.incrementAndGet();
+            return new StringBuilder(k);
+        });
+        StringBuilder second = cache.computeIfAbsent(key, k -> {
+            computed.incrementAndGet();
+            return new StringBuilder(k);
+        });
+
+        assertSame(first, second);
+        assertEquals(1, computed.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void valuesReferringToTheirKeysDontKeepThemAlive() throws InterruptedException {
+        WeakCache<Object, Object[]> cache = new WeakCache<>();
+        WeakReference<Object> key = cached(cache);
+        // an object that nothing ever references, to tell when the collector has run
+        ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        WeakReference<Object> control = new WeakReference<>(new Object(), queue);
+
+        // the collector doesn't have to honor System.gc(), so give up rather than fail if it never does
+        boolean collected = false;
+        for (int i = 0; i < 50 && !collected; i++) {
+            System.gc();
+            collected = queue.remove(100) == control;
+        }
+        assumeTrue("the collector never ran", collected);
+
+        assertNull(key.get());
+    }
+
+    private static WeakReference<Object> cached(WeakCache<Object, Object[]> cache) {
+        Object key = new Object();
+        cache.computeIfAbsent(key, k -> new Object[]{k});
+        return new WeakReference<>(key);
+    }
+}
@@ -0,0 +1,41 @@
+package com.truevault.rollbar.utilities;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+
+public class WeakInternerTest {
+
+    @Test
+    public void returnsFirstEqualInstance() {
+        WeakInterner<String> interner = new WeakInterner<>();
+        String first = new String("value");
+        String second = new String("value");
+
+        assertSame(first, interner.intern(first));
+        assertSame(first, interner.intern(second));
+        assertEquals(1, interner.size());
+    }
+
+    @Test
+    public void unreferencedInstancesAreCollected() throws InterruptedException {
+        WeakInterner<String> interner = new WeakInterner<>();
+        ReferenceQueue<String> queue = new ReferenceQueue<>();
+        WeakReference<String> canonical = new WeakReference<>(interner.intern(new String("value")), queue);
+
+        // the collector doesn't have to honor System.gc(), so give up rather than fail if it never does
+        boolean collected = false;
+        for (int i = 0; i < 50 && !collected; i++) {
+            System.gc();
+            collected = queue.remove(100) == canonical;
+        }
+        assumeTrue("the canonical instance was never collected", collected);
+
+        String second = new String("value");
+        assertSame(second, interner.intern(second));
+    }
+}
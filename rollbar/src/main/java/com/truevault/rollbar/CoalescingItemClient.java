@@ -0,0 +1,212 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.http.HttpItemClient;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.utilities.Validate;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An HttpItemClient that merges identical items (as determined by {@link Fingerprints}) that arrive within a short
+ * window into a single item.
+ *
+ * The first item with a given fingerprint opens a window. Every item with the same fingerprint that arrives before
+ * the window closes is counted and shares the first item's future. When the window closes, the first item is sent with
+ * the number of occurrences and the first and last occurrence timestamps (epoch seconds) added to its custom data. If
+ * there was only one occurrence, the item is sent unchanged.
+ *
+ * This trades a delay of up to one window on every item for sending one request per distinct problem per window, no
+ * matter how many times it occurs.
+ */
+@ThreadSafe
+public class CoalescingItemClient implements HttpItemClient {
+    /**
+     * The custom data key holding the number of occurrences that were coalesced.
+     */
+    public static final String OCCURRENCES_KEY = "occurrences";
+    /**
+     * The custom data key holding the time of the first coalesced occurrence.
+     */
+    public static final String FIRST_OCCURRENCE_KEY = "first_occurrence";
+    /**
+     * The custom data key holding the time of the last coalesced occurrence.
+     */
+    public static final String LAST_OCCURRENCE_KEY = "last_occurrence";
+
+    @Nonnull
+    private final HttpItemClient delegate;
+    private final long windowNanos;
+    private final int frames;
+    @Nonnull
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * @param delegate the client to send coalesced items with
+     * @param window   how long to wait for more occurrences after the first one
+     */
+    public CoalescingItemClient(@Nonnull HttpItemClient delegate, @Nonnull Duration window) {
+        this(delegate, window, Fingerprints.DEFAULT_FRAMES);
+    }
+
+    /**
+     * @param delegate the client to send coalesced items with
+     * @param window   how long to wait for more occurrences after the first one
+     * @param frames   how many frames from the top of each stack are considered when comparing items
+     */
+    public CoalescingItemClient(@Nonnull HttpItemClient delegate, @Nonnull Duration window, int frames) {
+        Validate.isNotNull(delegate, "delegate");
+        Validate.isNotNull(window, "window");
+        this.delegate = delegate;
+        this.windowNanos = window.toNanos();
+        this.frames = frames;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rollbar-coalesce");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<RollbarResponse> send(Item item) {
+        if (closed) {
+            // there's no one left to close the window, so the delegate gets to fail it
+            return delegate.send(item);
+        }
+        String fingerprint = Fingerprints.of(item, frames);
+        long timestamp = timestampOf(item);
+
+        while (true) {
+            Window window = windows.get(fingerprint);
+            if (window == null) {
+                Window created = new Window(item, timestamp);
+                window = windows.putIfAbsent(fingerprint, created);
+                if (window == null) {
+                    try {
+                        scheduler.schedule(() -> emit(fingerprint, created), windowNanos, TimeUnit.NANOSECONDS);
+                    } catch (RejectedExecutionException e) {
+                        // closed since the check above
+                        emit(fingerprint, created);
+                    }
+                    return created.result;
+                }
+            }
+
+            if (window.add(timestamp)) {
+                return window.result;
+            }
+            // the window closed while we were looking at it, so start over with a new one
+        }
+    }
+
+    /**
+     * Send the items of all open windows now, without waiting for the windows to end.
+     */
+    @Override
+    public void flush() {
+        windows.forEach(this::emit);
+        delegate.flush();
+    }
+
+    /**
+     * Send the items of all open windows, and close the delegate. Items sent afterwards are passed straight to the
+     * delegate.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        windows.forEach(this::emit);
+        delegate.close();
+    }
+
+    private void emit(String fingerprint, Window window) {
+        long occurrences = window.close();
+        if (occurrences < 0) {
+            // already sent by a flush
+            return;
+        }
+        windows.remove(fingerprint, window);
+
+        Item item = window.first;
+        if (occurrences > 1) {
+            Data data = item.data();
+            Map<String, Object> custom = data.custom();
+            if (custom == null) {
+                custom = new LinkedHashMap<>();
+            }
+            custom.put(OCCURRENCES_KEY, occurrences);
+            custom.put(FIRST_OCCURRENCE_KEY, window.firstTimestamp);
+            custom.put(LAST_OCCURRENCE_KEY, window.lastTimestamp.get());
+            item = new Item(item.accessToken(), data.toBuilder().custom(custom).build());
+        }
+
+        try {
+            delegate.send(item).whenComplete((r, t) -> {
+                if (t != null) {
+                    window.result.completeExceptionally(t);
+                } else {
+                    window.result.complete(r);
+                }
+            });
+        } catch (RuntimeException e) {
+            window.result.completeExceptionally(e);
+        }
+    }
+
+    private static long timestampOf(Item item) {
+        Long timestamp = item.data().timestamp();
+        return timestamp == null ? TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) : timestamp;
+    }
+
+    private static final class Window {
+        final Item first;
+        final long firstTimestamp;
+        final AtomicLong lastTimestamp;
+        // negative once the window has closed
+        final AtomicLong occurrences = new AtomicLong(1);
+        final CompletableFuture<RollbarResponse> result = new CompletableFuture<>();
+
+        Window(Item first, long timestamp) {
+            this.first = first;
+            this.firstTimestamp = timestamp;
+            this.lastTimestamp = new AtomicLong(timestamp);
+        }
+
+        /**
+         * @return false if the window had already closed, in which case the occurrence was not counted
+         */
+        boolean add(long timestamp) {
+            // update before counting, so that close() sees the timestamp of every occurrence it counts
+            lastTimestamp.accumulateAndGet(timestamp, Math::max);
+            long count;
+            do {
+                count = occurrences.get();
+                if (count < 0) {
+                    return false;
+                }
+            } while (!occurrences.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        /**
+         * @return the number of occurrences counted, or -1 if the window was already closed
+         */
+        long close() {
+            return occurrences.getAndSet(-1);
+        }
+    }
+}
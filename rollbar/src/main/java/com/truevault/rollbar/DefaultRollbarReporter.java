@@ -2,14 +2,26 @@ package com.truevault.rollbar;
 
 import com.truevault.rollbar.http.HttpItemClient;
 import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.http.metrics.RollbarMetrics;
 import com.truevault.rollbar.payload.Item;
 import com.truevault.rollbar.payload.data.Data;
 import com.truevault.rollbar.payload.data.Level;
 import com.truevault.rollbar.payload.data.body.Body;
+import com.truevault.rollbar.payload.data.body.FrameCache;
 import com.truevault.rollbar.utilities.ArgumentNullException;
+import com.truevault.rollbar.utilities.Validate;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import javax.annotation.Nonnull;
@@ -20,6 +32,25 @@ import javax.annotation.Nullable;
  * want to use. See {@link DefaultRollbarReporter.Builder} to make new instances.
  */
 public class DefaultRollbarReporter implements RollbarReporter {
+    /**
+     * Shared by every report below the minimum level or rejected by the preview filter, so that rejecting a report
+     * allocates nothing.
+     */
+    private static final CompletableFuture<RollbarResponse> FILTERED =
+            CompletableFuture.completedFuture(RollbarResponse.filtered());
+    /**
+     * Shared by every rate limited report, so that rejecting a report allocates nothing.
+     */
+    private static final CompletableFuture<RollbarResponse> RATE_LIMITED =
+            CompletableFuture.completedFuture(RollbarResponse.rateLimited());
+    /**
+     * Shared by every report made after the reporter was closed.
+     */
+    private static final CompletableFuture<RollbarResponse> DROPPED =
+            CompletableFuture.completedFuture(RollbarResponse.dropped());
+
+    @Nullable
+    private final ItemPreviewFilter previewFilter;
     @Nullable
     private final ItemFilter filter;
     @Nullable
@@ -34,11 +65,33 @@ public class DefaultRollbarReporter implements RollbarReporter {
     private final Function<Throwable, Level> levelPolicy;
     @Nonnull
     private final String environment;
+    @Nullable
+    private final Dispatcher dispatcher;
+    private final boolean deferItemConstruction;
+    // null if frames aren't cached
+    @Nullable
+    private final FrameCache frameCache;
+    @Nullable
+    private final RateLimiter rateLimiter;
+    @Nullable
+    private volatile Level minimumLevel;
+    // null rather than NOOP, so that nothing is measured at all
+    @Nullable
+    private final RollbarMetrics metrics;
+    // reports that haven't completed yet, so that flush and close can wait for them
+    private final Set<CompletableFuture<RollbarResponse>> outstanding = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    @Nullable
+    private volatile Thread shutdownHook;
 
-    private DefaultRollbarReporter(@Nullable ItemFilter filter, @Nullable ItemTransformer transform,
+    private DefaultRollbarReporter(@Nullable ItemPreviewFilter previewFilter, @Nullable ItemFilter filter,
+            @Nullable ItemTransformer transform,
             @Nonnull HttpItemClient sender,
             @Nonnull Supplier<Data.Builder> initialDataSupplier, @Nonnull String accessToken,
-            @Nonnull Function<Throwable, Level> levelPolicy, @Nonnull String environment) {
+            @Nonnull Function<Throwable, Level> levelPolicy, @Nonnull String environment,
+            @Nullable Dispatcher dispatcher, boolean deferItemConstruction, @Nullable FrameCache frameCache,
+            @Nullable RateLimiter rateLimiter, @Nullable Level minimumLevel, @Nonnull RollbarMetrics metrics) {
+        this.previewFilter = previewFilter;
         this.filter = filter;
         this.transform = transform;
         this.sender = sender;
@@ -46,6 +99,94 @@ public class DefaultRollbarReporter implements RollbarReporter {
         this.accessToken = accessToken;
         this.levelPolicy = levelPolicy;
         this.environment = environment;
+        this.dispatcher = dispatcher;
+        this.deferItemConstruction = deferItemConstruction;
+        this.frameCache = frameCache;
+        this.rateLimiter = rateLimiter;
+        this.minimumLevel = minimumLevel;
+        this.metrics = metrics == RollbarMetrics.NOOP ? null : metrics;
+    }
+
+    @Override
+    public boolean isEnabled(@Nonnull Level level) {
+        Level minimum = minimumLevel;
+        return minimum == null || level.level() >= minimum.level();
+    }
+
+    /**
+     * Change the minimum level at runtime. Reports below it complete right away with a FILTERED response, without
+     * building an item.
+     *
+     * @param minimumLevel the lowest level that is reported, or null to report all levels
+     */
+    public void setMinimumLevel(@Nullable Level minimumLevel) {
+        this.minimumLevel = minimumLevel;
+    }
+
+    /**
+     * @return the lowest level that is reported, or null if all levels are reported
+     */
+    @Nullable
+    public Level getMinimumLevel() {
+        return minimumLevel;
+    }
+
+    /**
+     * @return the cache of frames converted from stack traces, e.g. to watch its hit rate, or null if frames aren't
+     * cached
+     */
+    @Nullable
+    public FrameCache getFrameCache() {
+        return frameCache;
+    }
+
+    /**
+     * Wait for the reports made so far to finish, up to a deadline: first for the dispatch queue (if any) to empty,
+     * then for the {@link HttpItemClient} to send whatever it's holding back (see {@link HttpItemClient#flush()}),
+     * and then for the sends to complete.
+     *
+     * @param timeout the most to wait
+     * @return what happened to the reports that were outstanding
+     */
+    @Nonnull
+    @Override
+    public FlushResult flush(@Nonnull Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<CompletableFuture<RollbarResponse>> reports = new ArrayList<>(outstanding);
+        await(reports, deadline);
+        return tally(reports);
+    }
+
+    /**
+     * Stop accepting reports, flush, and close the {@link HttpItemClient}. The dispatch queue is drained highest
+     * level first, so if the deadline passes before it's empty, the reports left over are the least important ones;
+     * they complete with a DROPPED response. Sends that are still in progress are left to the HttpItemClient, which
+     * will usually fail them when it's closed.
+     *
+     * Closing again does nothing.
+     *
+     * @param timeout the most to wait for outstanding reports
+     * @return what happened to the reports that were outstanding
+     */
+    @Nonnull
+    @Override
+    public FlushResult close(@Nonnull Duration timeout) {
+        if (!closed.compareAndSet(false, true)) {
+            return FlushResult.EMPTY;
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<CompletableFuture<RollbarResponse>> reports = new ArrayList<>(outstanding);
+        await(reports, deadline);
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        try {
+            sender.close();
+        } finally {
+            removeShutdownHook();
+        }
+        return tally(reports);
     }
 
     @Override
@@ -256,15 +397,54 @@ public class DefaultRollbarReporter implements RollbarReporter {
 
     @Override
     public CompletableFuture<RollbarResponse> log(Data data, @Nullable Throwable t, @Nullable String description) {
-        return sendItem(t, description, new Item(accessToken, data));
+        if (metrics == null) {
+            return report(data, t, description);
+        }
+        long start = System.nanoTime();
+        return measure(start, data.level(), report(data, t, description));
     }
 
     @Override
     public CompletableFuture<RollbarResponse> log(Data.Builder builder, @Nullable Throwable t,
             @Nullable String description) {
+        if (metrics == null) {
+            return report(builder, t, description);
+        }
+        long start = System.nanoTime();
+        return measure(start, builder.getLevel(), report(builder, t, description));
+    }
+
+    private CompletableFuture<RollbarResponse> report(Data data, @Nullable Throwable t, @Nullable String description) {
+        if (closed.get()) {
+            return DROPPED;
+        }
+        if (!isEnabled(data.level() == null ? Level.ERROR : data.level())) {
+            return FILTERED;
+        }
+        if (rateLimiter != null && !rateLimiter.tryAcquire(data.level())) {
+            return RATE_LIMITED;
+        }
+
+        count(RollbarMetrics.Stage.BUILT, data.level());
+        return sendItem(t, description, new Item(accessToken, data));
+    }
+
+    private CompletableFuture<RollbarResponse> report(Data.Builder builder, @Nullable Throwable t,
+            @Nullable String description) {
+        if (closed.get()) {
+            return DROPPED;
+        }
+        if (!isEnabled(builder.getLevel() == null ? Level.ERROR : builder.getLevel())) {
+            return FILTERED;
+        }
+        if (rateLimiter != null && !rateLimiter.tryAcquire(builder.getLevel())) {
+            return RATE_LIMITED;
+        }
+
         Data data = builder.environment(environment)
                 .timestamp(Instant.now())
                 .build();
+        count(RollbarMetrics.Stage.BUILT, data.level());
         return sendItem(t, description, new Item(accessToken, data));
     }
 
@@ -281,12 +461,125 @@ public class DefaultRollbarReporter implements RollbarReporter {
      */
     private CompletableFuture<RollbarResponse> log(@Nullable Throwable t, @Nullable Map<String, Object> custom,
             @Nullable String description, @Nonnull Level level) {
-        return sendItem(t, description, buildItem(t, custom, description, level));
+        if (metrics == null) {
+            return report(t, custom, description, level);
+        }
+        long start = System.nanoTime();
+        return measure(start, level, report(t, custom, description, level));
+    }
+
+    private CompletableFuture<RollbarResponse> report(@Nullable Throwable t, @Nullable Map<String, Object> custom,
+            @Nullable String description, @Nonnull Level level) {
+        if (closed.get()) {
+            return DROPPED;
+        }
+        if (!isEnabled(level)) {
+            return FILTERED;
+        }
+        if (previewFilter != null && !previewFilter.shouldSend(new ItemPreview(level, t, description))) {
+            return FILTERED;
+        }
+        if (rateLimiter != null && !rateLimiter.tryAcquire(level)) {
+            return RATE_LIMITED;
+        }
+
+        if (deferItemConstruction && dispatcher != null) {
+            if (t == null && description == null) {
+                throw new ArgumentNullException("error | description");
+            }
+            // only capture what can't be recovered later; everything else happens on a dispatch thread
+            long timestampMillis = System.currentTimeMillis();
+            return track(dispatcher.submit(level, () -> transformAndSend(t, description,
+                    buildItem(t, custom, description, level, Instant.ofEpochMilli(timestampMillis)))));
+        }
+
+        return sendItem(t, description, buildItem(t, custom, description, level, Instant.now()));
+    }
+
+    private CompletableFuture<RollbarResponse> sendItem(@Nullable Throwable t, @Nullable String description,
+            Item item) {
+        if (dispatcher != null) {
+            return track(dispatcher.submit(item.data().level(), () -> transformAndSend(t, description, item)));
+        }
+
+        return track(transformAndSend(t, description, item));
+    }
+
+    private CompletableFuture<RollbarResponse> track(CompletableFuture<RollbarResponse> report) {
+        if (!report.isDone()) {
+            outstanding.add(report);
+            // runs right away if it completed in the meantime
+            report.whenComplete((r, t) -> outstanding.remove(report));
+        }
+        return report;
+    }
+
+    private void await(List<CompletableFuture<RollbarResponse>> reports, long deadline) {
+        try {
+            if (dispatcher != null) {
+                dispatcher.awaitQueueEmpty(deadline - System.nanoTime());
+            }
+            sender.flush();
+            CompletableFuture.allOf(reports.toArray(new CompletableFuture<?>[0]))
+                    .get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // failed and unfinished reports are counted by tally
+        }
+    }
+
+    @Nonnull
+    private static FlushResult tally(List<CompletableFuture<RollbarResponse>> reports) {
+        int sent = 0;
+        int spooled = 0;
+        int dropped = 0;
+        int failed = 0;
+        int pending = 0;
+        for (CompletableFuture<RollbarResponse> report : reports) {
+            if (!report.isDone()) {
+                pending++;
+            } else if (report.isCompletedExceptionally()) {
+                failed++;
+            } else {
+                switch (report.join().getResponseType()) {
+                    case OK:
+                        sent++;
+                        break;
+                    case SPOOLED:
+                        spooled++;
+                        break;
+                    default:
+                        dropped++;
+                }
+            }
+        }
+        return new FlushResult(sent, spooled, dropped, failed, pending);
     }
 
-    private CompletableFuture<RollbarResponse> sendItem(@Nullable Throwable t, @Nullable String description, Item item) {
+    private void addShutdownHook(@Nonnull Duration timeout) {
+        Thread hook = new Thread(() -> close(timeout), "rollbar-shutdown");
+        shutdownHook = hook;
+        Runtime.getRuntime().addShutdownHook(hook);
+    }
+
+    private void removeShutdownHook() {
+        Thread hook = shutdownHook;
+        if (hook == null || hook == Thread.currentThread()) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // the JVM is already shutting down
+        }
+    }
+
+    private CompletableFuture<RollbarResponse> transformAndSend(@Nullable Throwable t, @Nullable String description,
+            Item item) {
         if (transform != null) {
             item = transform.transform(item, t, description);
+            count(RollbarMetrics.Stage.TRANSFORMED, item.data().level());
         }
 
         if (filter == null || filter.shouldSend(item, t, description)) {
@@ -296,10 +589,11 @@ public class DefaultRollbarReporter implements RollbarReporter {
         return CompletableFuture.completedFuture(RollbarResponse.filtered());
     }
 
-    private Item buildItem(Throwable t, Map<String, Object> custom, String description, @Nonnull Level level) {
+    private Item buildItem(Throwable t, Map<String, Object> custom, String description, @Nonnull Level level,
+            @Nonnull Instant timestamp) {
         Body body;
         if (t != null) {
-            body = Body.fromThrowable(t, description);
+            body = Body.fromThrowable(t, description, frameCache);
         } else if (description != null) {
             body = Body.fromString(description, custom);
             custom = null;
@@ -310,14 +604,54 @@ public class DefaultRollbarReporter implements RollbarReporter {
         Data data = initialDataSupplier.get()
                 .body(body)
                 .level(level)
-                .timestamp(Instant.now())
+                .timestamp(timestamp)
                 .custom(custom)
                 .environment(environment)
                 .build();
 
+        count(RollbarMetrics.Stage.BUILT, level);
         return new Item(accessToken, data);
     }
 
+    /**
+     * Must only be called with metrics. Records the caller's time, and the outcome and response time once the report
+     * completes.
+     */
+    private CompletableFuture<RollbarResponse> measure(long start, @Nullable Level level,
+            CompletableFuture<RollbarResponse> report) {
+        RollbarMetrics metrics = this.metrics;
+        metrics.recordCallerNanos(System.nanoTime() - start);
+        report.whenComplete((response, t) -> {
+            if (t != null) {
+                metrics.recordResponseNanos(System.nanoTime() - start);
+                metrics.count(RollbarMetrics.Stage.FAILED, level);
+                return;
+            }
+            switch (response.getResponseType()) {
+                case OK:
+                    metrics.recordResponseNanos(System.nanoTime() - start);
+                    metrics.count(RollbarMetrics.Stage.SENT, level);
+                    break;
+                case SPOOLED:
+                    metrics.recordResponseNanos(System.nanoTime() - start);
+                    metrics.count(RollbarMetrics.Stage.SPOOLED, level);
+                    break;
+                case FILTERED:
+                    metrics.count(RollbarMetrics.Stage.FILTERED, level);
+                    break;
+                default:
+                    metrics.count(RollbarMetrics.Stage.DROPPED, level);
+            }
+        });
+        return report;
+    }
+
+    private void count(RollbarMetrics.Stage stage, @Nullable Level level) {
+        if (metrics != null) {
+            metrics.count(stage, level);
+        }
+    }
+
     /**
      * @param t the throwable
      * @return the level calculated by the level policy
@@ -330,6 +664,7 @@ public class DefaultRollbarReporter implements RollbarReporter {
     public static class Builder {
         @Nonnull
         private final String environment;
+        private ItemPreviewFilter previewFilter;
         private ItemFilter filter;
         private ItemTransformer transformer;
         @Nonnull
@@ -347,6 +682,26 @@ public class DefaultRollbarReporter implements RollbarReporter {
             }
             return Level.ERROR;
         };
+        private int queueCapacity;
+        @Nonnull
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+        @Nonnull
+        private Duration blockTimeout = Duration.ofMillis(100);
+        private int dispatchThreads = 1;
+        private int maxInFlight = 64;
+        private boolean deferItemConstruction;
+        private int frameCacheCapacity = FrameCache.DEFAULT_CAPACITY;
+        // a rate of 0 means unlimited
+        private double globalPerSecond;
+        private int globalBurst;
+        private final double[] levelPerSecond = new double[Level.values().length];
+        private final int[] levelBurst = new int[Level.values().length];
+        @Nullable
+        private Level minimumLevel;
+        @Nullable
+        private Duration shutdownHookTimeout;
+        @Nonnull
+        private RollbarMetrics metrics = RollbarMetrics.NOOP;
 
         /**
          * @param httpItemClient The {@link HttpItemClient} to use.
@@ -365,6 +720,19 @@ public class DefaultRollbarReporter implements RollbarReporter {
             this.accessToken = accessToken;
         }
 
+        /**
+         * Set a filter that decides whether to report something before the item is built. It runs on the calling
+         * thread for every report made through the Throwable and message methods (not for the ones that take a
+         * {@link Data} or {@link Data.Builder}). Rejected reports complete with a FILTERED response.
+         *
+         * @param previewFilter the filter
+         * @return this
+         */
+        public Builder previewFilter(ItemPreviewFilter previewFilter) {
+            this.previewFilter = previewFilter;
+            return this;
+        }
+
         public Builder filter(ItemFilter filter) {
             this.filter = filter;
             return this;
@@ -403,10 +771,217 @@ public class DefaultRollbarReporter implements RollbarReporter {
             return this;
         }
 
+        /**
+         * Send reports from background threads instead of the calling thread. Reports are put on a queue holding at
+         * most {@code capacity} reports and the calling thread returns right away; transformation, filtering,
+         * serialization and the HTTP request all happen on a dispatch thread. When the queue is full, {@code
+         * overflowPolicy} decides which report is discarded. Discarded reports complete with a DROPPED response.
+         *
+         * When the queue backs up, higher level reports are dispatched first.
+         *
+         * By default there is no queue, and reports are handed to the {@link HttpItemClient} on the calling thread.
+         *
+         * @param capacity       the maximum number of reports waiting to be dispatched
+         * @param overflowPolicy what to do with a new report when the queue is full
+         * @return this
+         */
+        public Builder dispatchQueue(int capacity, @Nonnull OverflowPolicy overflowPolicy) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity must be positive");
+            }
+            this.queueCapacity = capacity;
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * @param dispatchThreads the number of threads draining the dispatch queue. Defaults to 1; sends are
+         *                        asynchronous, so one thread is usually enough unless transformation and
+         *                        serialization are expensive.
+         * @return this
+         */
+        public Builder dispatchThreads(int dispatchThreads) {
+            if (dispatchThreads < 1) {
+                throw new IllegalArgumentException("dispatchThreads must be positive");
+            }
+            this.dispatchThreads = dispatchThreads;
+            return this;
+        }
+
+        /**
+         * @param maxInFlight the maximum number of sends that have been handed to the {@link HttpItemClient} but not
+         *                    yet completed. Once reached, reports wait in the dispatch queue. Defaults to 64.
+         * @return this
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("maxInFlight must be positive");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * @param blockTimeout how long a caller waits for room in a full queue with {@link OverflowPolicy#BLOCK}
+         *                     before its report is dropped. Defaults to 100ms.
+         * @return this
+         */
+        public Builder blockTimeout(@Nonnull Duration blockTimeout) {
+            this.blockTimeout = blockTimeout;
+            return this;
+        }
+
+        /**
+         * Build items on the dispatch thread rather than the calling thread. The calling thread only captures the
+         * throwable, description, custom map, level and a timestamp, and everything else (converting the stack trace,
+         * invoking the initial data supplier, building the {@link Data}, and serializing it) happens in the
+         * background. This makes reporting about as cheap as enqueueing, but comes with some caveats:
+         *
+         * <ul>
+         * <li>The initial data supplier runs on a dispatch thread, so it must not depend on thread-local state of the
+         * caller (request scoped data, MDC, etc).</li>
+         * <li>The custom map is read later, so callers must not modify it after passing it in.</li>
+         * <li>Errors from building the item (e.g. a blank message) complete the returned future exceptionally instead
+         * of being thrown to the caller.</li>
+         * </ul>
+         *
+         * Only applies to the {@link RollbarReporter} methods that take a Throwable or a message; requires a
+         * {@link #dispatchQueue(int, OverflowPolicy)}.
+         *
+         * @param deferItemConstruction true to build items on the dispatch thread
+         * @return this
+         */
+        public Builder deferItemConstruction(boolean deferItemConstruction) {
+            this.deferItemConstruction = deferItemConstruction;
+            return this;
+        }
+
+        /**
+         * Keep the frames converted from recent stack traces, so that an exception thrown from the same place over and
+         * over doesn't have its stack trace converted every time. The cache belongs to this reporter, and holds no
+         * references to classes, so it doesn't keep the application's classes from being unloaded.
+         *
+         * @param frameCacheCapacity the number of stack traces to keep frames for, or 0 not to cache frames. Defaults
+         *                           to {@link FrameCache#DEFAULT_CAPACITY}.
+         * @return this
+         */
+        public Builder frameCacheCapacity(int frameCacheCapacity) {
+            if (frameCacheCapacity < 0) {
+                throw new IllegalArgumentException("frameCacheCapacity must not be negative");
+            }
+            this.frameCacheCapacity = frameCacheCapacity;
+            return this;
+        }
+
+        /**
+         * Cap the rate at which reports are sent, regardless of level. Reports over the limit are rejected on the
+         * calling thread before any item is built, and complete with a RATE_LIMITED response.
+         *
+         * Limits apply before the {@link ItemFilter}, so filtered reports still count against them.
+         *
+         * @param perSecond the sustained number of reports per second
+         * @param burst     the number of reports that may be sent at once after a quiet period
+         * @return this
+         */
+        public Builder rateLimit(double perSecond, int burst) {
+            TokenBucket.validate(perSecond, burst);
+            this.globalPerSecond = perSecond;
+            this.globalBurst = burst;
+            return this;
+        }
+
+        /**
+         * Cap the rate at which reports of one level are sent. Each level's budget is separate, so e.g. a flood of
+         * DEBUG reports can't use up the budget of CRITICAL ones. A report must also fit in the limit set with {@link
+         * #rateLimit(double, int)}, if any. Reports without a level count as {@link Level#ERROR}.
+         *
+         * @param level     the level to limit
+         * @param perSecond the sustained number of reports per second at this level
+         * @param burst     the number of reports at this level that may be sent at once after a quiet period
+         * @return this
+         */
+        public Builder rateLimit(@Nonnull Level level, double perSecond, int burst) {
+            TokenBucket.validate(perSecond, burst);
+            this.levelPerSecond[level.ordinal()] = perSecond;
+            this.levelBurst[level.ordinal()] = burst;
+            return this;
+        }
+
+        /**
+         * Discard reports below a level before anything is built for them. Can be changed later with {@link
+         * DefaultRollbarReporter#setMinimumLevel(Level)}. Reports without a level count as {@link Level#ERROR}.
+         *
+         * @param minimumLevel the lowest level that is reported, or null (the default) to report all levels
+         * @return this
+         */
+        public Builder minimumLevel(@Nullable Level minimumLevel) {
+            this.minimumLevel = minimumLevel;
+            return this;
+        }
+
+        /**
+         * Close the reporter when the JVM shuts down, waiting up to {@code timeout} for outstanding reports to
+         * finish. See {@link DefaultRollbarReporter#close(Duration)}. Closing the reporter earlier removes the hook.
+         *
+         * @param timeout the most to wait, or null (the default) for no shutdown hook
+         * @return this
+         */
+        public Builder shutdownHook(@Nullable Duration timeout) {
+            this.shutdownHookTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * Report what happens to reports, and how long it takes, to a {@link RollbarMetrics}. Pass the same one to
+         * the {@link HttpItemClient} to measure serialization too. Defaults to {@link RollbarMetrics#NOOP}, which
+         * measures nothing.
+         *
+         * @param metrics the metrics to report to
+         * @return this
+         */
+        public Builder metrics(@Nonnull RollbarMetrics metrics) {
+            Validate.isNotNull(metrics, "metrics");
+            this.metrics = metrics;
+            return this;
+        }
+
         public DefaultRollbarReporter build() {
-            return new DefaultRollbarReporter(filter, transformer, httpItemClient, initialDataSupplier, accessToken,
-                    levelPolicy,
-                    environment);
+            if (deferItemConstruction && queueCapacity == 0) {
+                throw new IllegalStateException("deferItemConstruction requires a dispatch queue");
+            }
+
+            Dispatcher dispatcher = null;
+            if (queueCapacity > 0) {
+                DispatchQueue queue = new DispatchQueue(queueCapacity, overflowPolicy, blockTimeout.toNanos());
+                dispatcher = new Dispatcher(queue, dispatchThreads, maxInFlight);
+            }
+
+            FrameCache frameCache = frameCacheCapacity > 0 ? new FrameCache(frameCacheCapacity) : null;
+            DefaultRollbarReporter reporter = new DefaultRollbarReporter(previewFilter, filter, transformer,
+                    httpItemClient, initialDataSupplier, accessToken, levelPolicy, environment, dispatcher,
+                    deferItemConstruction, frameCache, buildRateLimiter(), minimumLevel, metrics);
+            if (shutdownHookTimeout != null) {
+                reporter.addShutdownHook(shutdownHookTimeout);
+            }
+            return reporter;
+        }
+
+        @Nullable
+        private RateLimiter buildRateLimiter() {
+            boolean limited = globalPerSecond > 0;
+            TokenBucket[] byLevel = new TokenBucket[levelPerSecond.length];
+            for (int i = 0; i < byLevel.length; i++) {
+                if (levelPerSecond[i] > 0) {
+                    byLevel[i] = new TokenBucket(levelPerSecond[i], levelBurst[i]);
+                    limited = true;
+                }
+            }
+            if (!limited) {
+                return null;
+            }
+
+            TokenBucket global = globalPerSecond > 0 ? new TokenBucket(globalPerSecond, globalBurst) : null;
+            return new RateLimiter(global, byLevel);
         }
 
         @Nonnull
@@ -414,6 +989,10 @@ public class DefaultRollbarReporter implements RollbarReporter {
             return environment;
         }
 
+        public ItemPreviewFilter getPreviewFilter() {
+            return previewFilter;
+        }
+
         public ItemFilter getFilter() {
             return filter;
         }
@@ -440,5 +1019,78 @@ public class DefaultRollbarReporter implements RollbarReporter {
         public Function<Throwable, Level> getLevelPolicy() {
             return levelPolicy;
         }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        @Nonnull
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public int getDispatchThreads() {
+            return dispatchThreads;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        @Nonnull
+        public Duration getBlockTimeout() {
+            return blockTimeout;
+        }
+
+        public boolean isDeferItemConstruction() {
+            return deferItemConstruction;
+        }
+
+        public int getFrameCacheCapacity() {
+            return frameCacheCapacity;
+        }
+
+        /**
+         * @return the sustained number of reports per second allowed regardless of level, or 0 if unlimited
+         */
+        public double getRateLimitPerSecond() {
+            return globalPerSecond;
+        }
+
+        /**
+         * @return the number of reports that may be sent at once regardless of level, or 0 if unlimited
+         */
+        public int getRateLimitBurst() {
+            return globalBurst;
+        }
+
+        /**
+         * @return the sustained number of reports per second allowed at the level, or 0 if unlimited
+         */
+        public double getRateLimitPerSecond(@Nonnull Level level) {
+            return levelPerSecond[level.ordinal()];
+        }
+
+        /**
+         * @return the number of reports at the level that may be sent at once, or 0 if unlimited
+         */
+        public int getRateLimitBurst(@Nonnull Level level) {
+            return levelBurst[level.ordinal()];
+        }
+
+        @Nullable
+        public Level getMinimumLevel() {
+            return minimumLevel;
+        }
+
+        @Nullable
+        public Duration getShutdownHookTimeout() {
+            return shutdownHookTimeout;
+        }
+
+        @Nonnull
+        public RollbarMetrics getMetrics() {
+            return metrics;
+        }
     }
 }
@@ -0,0 +1,281 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.data.Level;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded queue of pending reports that applies an {@link OverflowPolicy} when full.
+ *
+ * Entries are kept in one FIFO per {@link Level} and are taken highest level first, so that when the reporter falls
+ * behind the most important reports go out first.
+ */
+@ThreadSafe
+final class DispatchQueue {
+    private static final Level[] LEVELS = Level.values();
+
+    private final int capacity;
+    @Nonnull
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition empty = lock.newCondition();
+    // indexed by Level ordinal, which runs from CRITICAL down to DEBUG
+    private final ArrayDeque<Entry>[] byLevel;
+    private int size;
+    private long nextSequence;
+    private boolean closed;
+
+    @SuppressWarnings("unchecked")
+    DispatchQueue(int capacity, @Nonnull OverflowPolicy policy, long blockTimeoutNanos) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockTimeoutNanos = blockTimeoutNanos;
+        this.byLevel = (ArrayDeque<Entry>[]) new ArrayDeque<?>[LEVELS.length];
+        for (int i = 0; i < byLevel.length; i++) {
+            byLevel[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Add an entry, applying the overflow policy if the queue is full. Whatever entry was discarded to make that
+     * happen (either the new one or one already in the queue) has its result completed as dropped. Once the queue is
+     * closed, every new entry is dropped.
+     *
+     * @param entry the entry to add
+     * @return true if the entry was queued
+     * @throws InterruptedException if interrupted while blocking for space
+     */
+    boolean offer(@Nonnull Entry entry) throws InterruptedException {
+        Entry dropped;
+        lock.lock();
+        try {
+            dropped = closed ? entry : makeRoom(entry);
+            if (dropped != entry) {
+                entry.sequence = nextSequence++;
+                byLevel[entry.level.ordinal()].addLast(entry);
+                size++;
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // complete outside the lock, since dependent stages run synchronously
+        if (dropped != null) {
+            dropped.result.complete(RollbarResponse.dropped());
+        }
+        return dropped != entry;
+    }
+
+    /**
+     * @return the highest level entry, waiting for one to be available if necessary
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Nonnull
+    Entry take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            return removeHighest();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the highest level entry, or null if the timeout elapsed before one was available
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Nullable
+    Entry poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return removeHighest();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until every entry has been taken, or the timeout elapses.
+     *
+     * @param nanos the most to wait
+     * @return true if the queue is empty
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitEmpty(long nanos) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size > 0) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = empty.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop accepting entries, and remove the ones still waiting.
+     *
+     * @return the entries that were waiting, highest level first
+     */
+    @Nonnull
+    List<Entry> close() {
+        List<Entry> remaining = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            while (size > 0) {
+                remaining.add(removeHighest());
+            }
+            // wake callers blocked for space, so they drop their entries
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return remaining;
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must hold lock.
+     *
+     * @return the entry to drop, which may be the incoming entry, or null if nothing had to be dropped
+     */
+    @Nullable
+    private Entry makeRoom(Entry incoming) throws InterruptedException {
+        if (size < capacity) {
+            return null;
+        }
+
+        switch (policy) {
+            case DROP_NEWEST:
+                return incoming;
+            case DROP_OLDEST:
+                return removeOldest();
+            case DROP_LOWEST_LEVEL:
+                for (int i = byLevel.length - 1; i > incoming.level.ordinal(); i--) {
+                    if (!byLevel[i].isEmpty()) {
+                        removed();
+                        return byLevel[i].pollFirst();
+                    }
+                }
+                return incoming;
+            case BLOCK:
+                long nanos = blockTimeoutNanos;
+                while (size >= capacity || closed) {
+                    if (nanos <= 0 || closed) {
+                        return incoming;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                return null;
+            default:
+                throw new IllegalStateException("Unknown policy " + policy);
+        }
+    }
+
+    /**
+     * Must hold lock, and size must be positive.
+     */
+    private Entry removeHighest() {
+        for (ArrayDeque<Entry> entries : byLevel) {
+            if (!entries.isEmpty()) {
+                removed();
+                return entries.pollFirst();
+            }
+        }
+        throw new IllegalStateException("Queue is empty");
+    }
+
+    /**
+     * Must hold lock, and size must be positive.
+     */
+    private Entry removeOldest() {
+        ArrayDeque<Entry> oldest = null;
+        for (ArrayDeque<Entry> entries : byLevel) {
+            Entry head = entries.peekFirst();
+            if (head != null && (oldest == null || head.sequence < oldest.peekFirst().sequence)) {
+                oldest = entries;
+            }
+        }
+        if (oldest == null) {
+            throw new IllegalStateException("Queue is empty");
+        }
+        removed();
+        return oldest.pollFirst();
+    }
+
+    /**
+     * Must hold lock.
+     */
+    private void removed() {
+        size--;
+        notFull.signal();
+        if (size == 0) {
+            empty.signalAll();
+        }
+    }
+
+    /**
+     * A unit of work waiting to be dispatched, along with the future handed back to the caller.
+     */
+    static final class Entry {
+        @Nonnull
+        final Level level;
+        @Nonnull
+        final Supplier<CompletableFuture<RollbarResponse>> task;
+        @Nonnull
+        final CompletableFuture<RollbarResponse> result = new CompletableFuture<>();
+        // assigned under the queue lock
+        private long sequence;
+
+        /**
+         * @param level the level used to prioritize the entry, or null to treat it as {@link Level#ERROR}, which is
+         *              what Rollbar assumes for items without a level
+         * @param task  produces the response when the entry is dispatched
+         */
+        Entry(@Nullable Level level, @Nonnull Supplier<CompletableFuture<RollbarResponse>> task) {
+            this.level = level == null ? Level.ERROR : level;
+            this.task = task;
+        }
+    }
+}
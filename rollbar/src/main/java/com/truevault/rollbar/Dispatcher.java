@@ -0,0 +1,132 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.data.Level;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Runs reports on a small pool of daemon threads fed by a {@link DispatchQueue}, so that callers never wait on
+ * transformation, filtering, serialization or the HTTP request. The number of sends that have been started but not
+ * yet completed is capped; once that cap is hit, work piles up in the queue and the overflow policy kicks in.
+ */
+@ThreadSafe
+final class Dispatcher {
+    private static final AtomicInteger dispatcherCount = new AtomicInteger();
+
+    @Nonnull
+    private final DispatchQueue queue;
+    @Nonnull
+    private final Semaphore inFlight;
+    @Nonnull
+    private final Thread[] workers;
+
+    Dispatcher(@Nonnull DispatchQueue queue, int threads, int maxInFlight) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.queue = queue;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        int id = dispatcherCount.incrementAndGet();
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::work, "rollbar-dispatch-" + id + "-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * @param level the level of the report, used to prioritize it
+     * @param task  the work to run on a dispatch thread
+     * @return a future that completes with the task's response, or with a DROPPED response if the queue overflowed
+     */
+    @Nonnull
+    CompletableFuture<RollbarResponse> submit(@Nullable Level level,
+            @Nonnull Supplier<CompletableFuture<RollbarResponse>> task) {
+        DispatchQueue.Entry entry = new DispatchQueue.Entry(level, task);
+        try {
+            queue.offer(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entry.result.complete(RollbarResponse.dropped());
+        }
+        return entry.result;
+    }
+
+    /**
+     * Wait until every queued report has been handed to a dispatch thread, or the timeout elapses.
+     *
+     * @param nanos the most to wait
+     * @return true if nothing is queued
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitQueueEmpty(long nanos) throws InterruptedException {
+        return queue.awaitEmpty(nanos);
+    }
+
+    /**
+     * Stop the dispatch threads. Reports that are still queued, and any submitted later, complete with a DROPPED
+     * response. Sends that have already started are left to complete.
+     */
+    void shutdown() {
+        List<DispatchQueue.Entry> remaining = queue.close();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (DispatchQueue.Entry entry : remaining) {
+            entry.result.complete(RollbarResponse.dropped());
+        }
+    }
+
+    private void work() {
+        while (true) {
+            DispatchQueue.Entry entry;
+            try {
+                // wait for a free slot first so that pending work stays in the queue, where the policy can see it
+                inFlight.acquire();
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            run(entry);
+        }
+    }
+
+    private void run(DispatchQueue.Entry entry) {
+        CompletableFuture<RollbarResponse> response;
+        try {
+            response = entry.task.get();
+        } catch (Throwable t) {
+            // Errors too (say, a StackOverflowError while building the item): nothing was sent, so the permit must be
+            // given back, and the report must not wait forever
+            inFlight.release();
+            entry.result.completeExceptionally(t);
+            return;
+        }
+        if (response == null) {
+            inFlight.release();
+            entry.result.completeExceptionally(new IllegalStateException("The report's task returned null"));
+            return;
+        }
+
+        response.whenComplete((r, t) -> {
+            inFlight.release();
+            if (t != null) {
+                entry.result.completeExceptionally(t);
+            } else {
+                entry.result.complete(r);
+            }
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.Level;
+import com.truevault.rollbar.payload.data.body.BodyContents;
+import com.truevault.rollbar.payload.data.body.CrashReport;
+import com.truevault.rollbar.payload.data.body.Frame;
+import com.truevault.rollbar.payload.data.body.Message;
+import com.truevault.rollbar.payload.data.body.Trace;
+import com.truevault.rollbar.payload.data.body.TraceChain;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Computes a cheap identity for items so that repeated occurrences of the same problem can be recognized on the client
+ * side (e.g. to coalesce or sample them).
+ *
+ * If {@link Data#fingerprint()} is set, that is the fingerprint. Otherwise it is a 64 bit hash of the level and body:
+ * for traces, the exception class and the top frames of each throwable in the chain; for messages and crash reports,
+ * their text. This is not the same grouping Rollbar does on its end, but occurrences that hash the same here will
+ * nearly always be grouped together there.
+ */
+public final class Fingerprints {
+    /**
+     * The number of frames from the top of each stack that are included if not otherwise specified.
+     */
+    public static final int DEFAULT_FRAMES = 5;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Fingerprints() {
+    }
+
+    /**
+     * @param item   the item
+     * @param frames how many frames from the top of each stack to include
+     * @return the fingerprint of the item
+     */
+    @Nonnull
+    public static String of(@Nonnull Item item, int frames) {
+        Data data = item.data();
+        if (data.fingerprint() != null) {
+            return data.fingerprint();
+        }
+
+        long hash = level(FNV_OFFSET, data.level());
+        BodyContents contents = data.body().contents();
+        if (contents instanceof Trace) {
+            hash = trace(hash, (Trace) contents, frames);
+        } else if (contents instanceof TraceChain) {
+            for (Trace trace : ((TraceChain) contents).traces()) {
+                hash = trace(hash, trace, frames);
+            }
+        } else if (contents instanceof Message) {
+            hash = mix(hash, ((Message) contents).body());
+        } else if (contents instanceof CrashReport) {
+            hash = mix(hash, ((CrashReport) contents).raw());
+        } else {
+            hash = mix(hash, contents.getClass().getName());
+        }
+
+        return Long.toHexString(hash);
+    }
+
+    /**
+     * Compute the fingerprint a report would have once built into an item, without building it. For items that
+     * {@link DefaultRollbarReporter} builds from a throwable or message, this gives the same result as {@link
+     * #of(Item, int)} unless the initial data supplier sets {@link Data#fingerprint()}.
+     *
+     * @param level   the level of the report
+     * @param t       the throwable, if any
+     * @param message the message, used if there is no throwable
+     * @param frames  how many frames from the top of each stack to include
+     * @return the fingerprint
+     */
+    @Nonnull
+    public static String of(@Nullable Level level, @Nullable Throwable t, @Nullable String message, int frames) {
+        long hash = level(FNV_OFFSET, level);
+        if (t == null) {
+            return Long.toHexString(mix(hash, message));
+        }
+
+        // mirrors TraceChain.fromThrowable and Frame.fromStackTraceElement
+        do {
+            hash = mix(hash, t.getClass().getSimpleName());
+            StackTraceElement[] elements = t.getStackTrace();
+            for (int i = 0; i < Math.min(frames, elements.length); i++) {
+                StackTraceElement element = elements[i];
+                hash = mixFilename(hash, element.getClassName());
+                hash = mix(hash, element.getMethodName());
+                hash = mix(hash, element.getLineNumber());
+            }
+            t = t.getCause();
+        } while (t != null);
+
+        return Long.toHexString(hash);
+    }
+
+    private static long trace(long hash, Trace trace, int frames) {
+        hash = mix(hash, trace.exception().className());
+        // frames are stored outermost first, so the top of the stack is at the end
+        List<Frame> list = trace.frames();
+        for (int i = list.size() - 1; i >= Math.max(0, list.size() - frames); i--) {
+            Frame frame = list.get(i);
+            hash = mix(hash, frame.filename());
+            hash = mix(hash, frame.method());
+            hash = mix(hash, frame.lineNumber() == null ? -1 : frame.lineNumber());
+        }
+        return hash;
+    }
+
+    static long level(long hash, @Nullable Level level) {
+        return mix(hash, level == null ? -1 : level.level());
+    }
+
+    static long mix(long hash, @Nullable CharSequence s) {
+        if (s == null) {
+            return mix(hash, -1);
+        }
+        for (int i = 0; i < s.length(); i++) {
+            hash = (hash ^ s.charAt(i)) * FNV_PRIME;
+        }
+        // separator, so that ("ab", "c") and ("a", "bc") differ
+        return (hash ^ 0xffff) * FNV_PRIME;
+    }
+
+    /**
+     * Same as mixing in {@code className + ".java"}, without allocating that string.
+     */
+    private static long mixFilename(long hash, String className) {
+        for (int i = 0; i < className.length(); i++) {
+            hash = (hash ^ className.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash, ".java");
+    }
+
+    static long mix(long hash, int value) {
+        hash = (hash ^ (value & 0xffff)) * FNV_PRIME;
+        return (hash ^ (value >>> 16)) * FNV_PRIME;
+    }
+}
@@ -0,0 +1,80 @@
+package com.truevault.rollbar;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * What happened to the reports that were outstanding when a {@link RollbarReporter} was flushed or closed, as of the
+ * end of the flush.
+ */
+@Immutable
+public final class FlushResult {
+    static final FlushResult EMPTY = new FlushResult(0, 0, 0, 0, 0);
+
+    private final int sent;
+    private final int spooled;
+    private final int dropped;
+    private final int failed;
+    private final int pending;
+
+    FlushResult(int sent, int spooled, int dropped, int failed, int pending) {
+        this.sent = sent;
+        this.spooled = spooled;
+        this.dropped = dropped;
+        this.failed = failed;
+        this.pending = pending;
+    }
+
+    /**
+     * @return the number of reports Rollbar accepted
+     */
+    public int getSent() {
+        return sent;
+    }
+
+    /**
+     * @return the number of reports saved to disk to be sent later
+     */
+    public int getSpooled() {
+        return spooled;
+    }
+
+    /**
+     * @return the number of reports discarded without being sent: dropped from a full or closed queue, filtered, or
+     * rate limited
+     */
+    public int getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the number of reports whose send failed
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of reports that were still in progress when the deadline passed
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return true if every report finished before the deadline
+     */
+    public boolean isComplete() {
+        return pending == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "FlushResult{" +
+                "sent=" + sent +
+                ", spooled=" + spooled +
+                ", dropped=" + dropped +
+                ", failed=" + failed +
+                ", pending=" + pending +
+                '}';
+    }
+}
@@ -0,0 +1,71 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Level;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * What is known about a report before an {@link Item} is built for it. Everything here is either already at hand or
+ * computed on demand, so looking at a preview is much cheaper than building the item.
+ */
+public final class ItemPreview {
+    @Nonnull
+    private final Level level;
+    @Nullable
+    private final Throwable throwable;
+    @Nullable
+    private final String message;
+    private String fingerprint;
+
+    ItemPreview(@Nonnull Level level, @Nullable Throwable throwable, @Nullable String message) {
+        this.level = level;
+        this.throwable = throwable;
+        this.message = message;
+    }
+
+    /**
+     * @return the level the item would be reported at
+     */
+    @Nonnull
+    public Level level() {
+        return level;
+    }
+
+    /**
+     * @return the throwable being reported, if any
+     */
+    @Nullable
+    public Throwable throwable() {
+        return throwable;
+    }
+
+    /**
+     * @return the class of the throwable being reported, or null if a message is being reported
+     */
+    @Nullable
+    public Class<? extends Throwable> throwableClass() {
+        return throwable == null ? null : throwable.getClass();
+    }
+
+    /**
+     * @return the message being reported, or the description of the throwable being reported (if any)
+     */
+    @Nullable
+    public String message() {
+        return message;
+    }
+
+    /**
+     * Computed on first use. See {@link Fingerprints#of(Level, Throwable, String, int)}.
+     *
+     * @return the fingerprint the item would have
+     */
+    @Nonnull
+    public String fingerprint() {
+        if (fingerprint == null) {
+            fingerprint = Fingerprints.of(level, throwable, message, Fingerprints.DEFAULT_FRAMES);
+        }
+        return fingerprint;
+    }
+}
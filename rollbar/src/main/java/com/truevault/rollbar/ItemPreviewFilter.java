@@ -0,0 +1,18 @@
+package com.truevault.rollbar;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Like {@link ItemFilter}, but runs before the item is built, so rejected reports cost next to nothing. Use this for
+ * decisions that don't need the full item (e.g. dropping certain exception types); use an {@link ItemFilter} for
+ * anything that needs to look at the item itself.
+ */
+public interface ItemPreviewFilter {
+    /**
+     * Determine if an item should be built and reported to Rollbar.
+     *
+     * @param preview what is known about the report so far
+     * @return true if the item should be built and reported
+     */
+    boolean shouldSend(@Nonnull ItemPreview preview);
+}
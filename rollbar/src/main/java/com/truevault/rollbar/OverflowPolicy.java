@@ -0,0 +1,31 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.payload.data.Level;
+
+/**
+ * What the dispatch queue of a {@link DefaultRollbarReporter} does when a new report arrives and the queue is already
+ * full. Whichever report ends up being discarded has its future completed with a DROPPED response.
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the incoming report and keep everything already queued.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Discard the report that has been queued the longest to make room for the incoming one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discard the oldest report with the lowest {@link Level}, as long as that level is lower than the incoming
+     * report's level. Otherwise discard the incoming report.
+     */
+    DROP_LOWEST_LEVEL,
+
+    /**
+     * Block the calling thread until there is room in the queue, up to the configured block timeout. If there still
+     * isn't room after that, the incoming report is discarded.
+     */
+    BLOCK
+}
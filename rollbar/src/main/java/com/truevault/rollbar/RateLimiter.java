@@ -0,0 +1,43 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.payload.data.Level;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Caps the rate of reports, with an optional budget per {@link Level} and an optional global budget. A report has to
+ * fit in both its level's budget and the global one.
+ */
+@ThreadSafe
+final class RateLimiter {
+    @Nullable
+    private final TokenBucket global;
+    // indexed by Level ordinal; null entries are unlimited
+    @Nonnull
+    private final TokenBucket[] byLevel;
+
+    RateLimiter(@Nullable TokenBucket global, @Nonnull TokenBucket[] byLevel) {
+        this.global = global;
+        this.byLevel = byLevel.clone();
+    }
+
+    /**
+     * @param level the level of the report, or null to treat it as {@link Level#ERROR}
+     * @return true if the report may be sent
+     */
+    boolean tryAcquire(@Nullable Level level) {
+        TokenBucket levelBucket = byLevel[(level == null ? Level.ERROR : level).ordinal()];
+        if (levelBucket != null && !levelBucket.tryAcquire()) {
+            return false;
+        }
+        if (global != null && !global.tryAcquire()) {
+            if (levelBucket != null) {
+                // the report isn't going anywhere, so it shouldn't count against its level
+                levelBucket.release();
+            }
+            return false;
+        }
+        return true;
+    }
+}
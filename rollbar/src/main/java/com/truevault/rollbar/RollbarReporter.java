@@ -3,6 +3,7 @@ package com.truevault.rollbar;
 import com.truevault.rollbar.http.RollbarResponse;
 import com.truevault.rollbar.payload.data.Data;
 import com.truevault.rollbar.payload.data.Level;
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
@@ -15,8 +16,56 @@ import javax.annotation.Nullable;
  * for the request to complete, call {@link Future#get()}. If you want to log errors or perform some other action
  * asynchronously but not wait for completion, you could use one of the many options CompletableFuture gives you, like
  * {@link CompletableFuture#whenComplete(BiConsumer)}.
+ *
+ * Reports may still be on their way when the application shuts down. Call {@link #close(Duration)} (or {@link
+ * #close()}) to give them a chance to finish.
  */
-public interface RollbarReporter {
+public interface RollbarReporter extends AutoCloseable {
+    /**
+     * Check whether reports at a level would be sent at all. Use this to skip preparing expensive arguments (e.g. a
+     * custom map) for reports that will be discarded anyway.
+     *
+     * @param level the level
+     * @return false if reports at this level are discarded without being built
+     */
+    default boolean isEnabled(@Nonnull Level level) {
+        return true;
+    }
+
+    /**
+     * Wait for the reports made so far to finish, up to a deadline. Reports made meanwhile aren't waited for.
+     *
+     * @param timeout the most to wait
+     * @return what happened to the reports that were outstanding
+     */
+    @Nonnull
+    default FlushResult flush(@Nonnull Duration timeout) {
+        return FlushResult.EMPTY;
+    }
+
+    /**
+     * Stop accepting reports, give the ones already made until a deadline to finish, and release the reporter's
+     * resources, including its {@link com.truevault.rollbar.http.HttpItemClient}. Reports made afterwards complete
+     * with a DROPPED response.
+     *
+     * @param timeout the most to wait for outstanding reports
+     * @return what happened to the reports that were outstanding
+     */
+    @Nonnull
+    default FlushResult close(@Nonnull Duration timeout) {
+        return flush(timeout);
+    }
+
+    /**
+     * Close, waiting up to 5 seconds for outstanding reports.
+     *
+     * @see #close(Duration)
+     */
+    @Override
+    default void close() {
+        close(Duration.ofSeconds(5));
+    }
+
     /**
      * Record a throwable as a critical error
      *
@@ -0,0 +1,150 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.http.HttpItemClient;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.utilities.ClockCache;
+import com.truevault.rollbar.utilities.Validate;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An HttpItemClient that sends occurrences of the same item (as determined by {@link Fingerprints}) at logarithmically
+ * spaced counts: the 1st, then (with the default base of 10) the 10th, 100th, 1000th and so on. Once a fingerprint has
+ * been quiet for the configured period, its count starts over, so the next occurrence is sent right away again.
+ *
+ * Occurrences that aren't sent complete with a FILTERED response, just as if an {@link ItemFilter} had rejected them.
+ * Sent items other than the first have the number of occurrences they stand for (i.e. including the ones skipped
+ * since the previous sent item) and the total count so far added to their custom data. The first key differs from
+ * {@link CoalescingItemClient#OCCURRENCES_KEY}, so that the two clients can be stacked without one overwriting the
+ * other's count.
+ *
+ * Counts are kept in a table with a fixed maximum number of fingerprints, so an unbounded number of distinct items
+ * can't use up the heap. When the table is full, the least recently seen fingerprints are forgotten, and their next
+ * occurrence is treated as a first occurrence.
+ */
+@ThreadSafe
+public class SamplingItemClient implements HttpItemClient {
+    /**
+     * The custom data key holding the number of occurrences the sent item stands for.
+     */
+    public static final String SAMPLE_WEIGHT_KEY = "sample_weight";
+    /**
+     * The custom data key holding the number of occurrences since the fingerprint's count last started over.
+     */
+    public static final String TOTAL_OCCURRENCES_KEY = "total_occurrences";
+
+    private static final CompletableFuture<RollbarResponse> FILTERED =
+            CompletableFuture.completedFuture(RollbarResponse.filtered());
+
+    @Nonnull
+    private final HttpItemClient delegate;
+    private final long base;
+    private final long quietNanos;
+    private final int frames;
+    private final ClockCache<String, Counter> counters;
+
+    /**
+     * Sample at powers of 10, tracking up to 10000 fingerprints.
+     *
+     * @param delegate    the client to send sampled items with
+     * @param quietPeriod how long a fingerprint must go without occurrences before its count starts over
+     */
+    public SamplingItemClient(@Nonnull HttpItemClient delegate, @Nonnull Duration quietPeriod) {
+        this(delegate, 10, quietPeriod, 10000, Fingerprints.DEFAULT_FRAMES);
+    }
+
+    /**
+     * @param delegate        the client to send sampled items with
+     * @param base            occurrences are sent when the count is a power of this number
+     * @param quietPeriod     how long a fingerprint must go without occurrences before its count starts over
+     * @param maxFingerprints the maximum number of fingerprints to keep counts for
+     * @param frames          how many frames from the top of each stack are considered when comparing items
+     */
+    public SamplingItemClient(@Nonnull HttpItemClient delegate, int base, @Nonnull Duration quietPeriod,
+            int maxFingerprints, int frames) {
+        Validate.isNotNull(delegate, "delegate");
+        Validate.isNotNull(quietPeriod, "quietPeriod");
+        if (base < 2) {
+            throw new IllegalArgumentException("base must be at least 2");
+        }
+        this.delegate = delegate;
+        this.base = base;
+        this.quietNanos = quietPeriod.toNanos();
+        this.frames = frames;
+        this.counters = new ClockCache<>(maxFingerprints);
+    }
+
+    @Override
+    public CompletableFuture<RollbarResponse> send(Item item) {
+        Counter counter = counters.computeIfAbsent(Fingerprints.of(item, frames), k -> new Counter());
+        long count = counter.increment(System.nanoTime(), quietNanos);
+
+        long previous = previousSample(count);
+        if (previous < 0) {
+            return FILTERED;
+        }
+        if (previous == 0) {
+            return delegate.send(item);
+        }
+
+        Data data = item.data();
+        Map<String, Object> custom = data.custom();
+        if (custom == null) {
+            custom = new LinkedHashMap<>();
+        }
+        custom.put(SAMPLE_WEIGHT_KEY, count - previous);
+        custom.put(TOTAL_OCCURRENCES_KEY, count);
+        return delegate.send(new Item(item.accessToken(), data.toBuilder().custom(custom).build()));
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    /**
+     * @param count an occurrence count, starting at 1
+     * @return -1 if the count is not sampled, otherwise the previous sampled count (0 if this is the first)
+     */
+    private long previousSample(long count) {
+        long sample = 1;
+        long previous = 0;
+        while (sample < count) {
+            previous = sample;
+            if (sample > Long.MAX_VALUE / base) {
+                return -1;
+            }
+            sample *= base;
+        }
+        return sample == count ? previous : -1;
+    }
+
+    private static final class Counter {
+        private final AtomicLong count = new AtomicLong();
+        private volatile long lastSeen = System.nanoTime();
+
+        /**
+         * @return the new count
+         */
+        long increment(long now, long quietNanos) {
+            if (now - lastSeen > quietNanos) {
+                // racing resets may lose a few increments, which doesn't matter for sampling
+                count.set(0);
+            }
+            lastSeen = now;
+            return count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.truevault.rollbar;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A lock-free token bucket, implemented as a generic cell rate algorithm: rather than counting tokens, it tracks the
+ * theoretical time at which the next token would be taken if tokens were taken at exactly the configured rate, and
+ * allows a request if that time is no further ahead of now than the burst allows. The whole state is one long, so
+ * taking a token is a single CAS.
+ */
+@ThreadSafe
+final class TokenBucket {
+    // the most the interval and the tolerance may each be, so that the theoretical arrival time is never more than
+    // half of nanoTime's range ahead of now, and differences between them don't overflow. That's still 73 years.
+    private static final long MAX_AHEAD = Long.MAX_VALUE / 4;
+
+    // nanoseconds between tokens
+    private final long interval;
+    // how far ahead of now the theoretical arrival time may be
+    private final long tolerance;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param perSecond the sustained rate
+     * @param burst     the number of tokens that can be taken at once after the bucket has been idle
+     */
+    TokenBucket(double perSecond, int burst) {
+        validate(perSecond, burst);
+        // the cast saturates at Long.MAX_VALUE for tiny rates
+        this.interval = Math.min(MAX_AHEAD, Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond)));
+        this.tolerance = tolerance(interval, burst);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the arguments don't describe a valid bucket
+     */
+    static void validate(double perSecond, int burst) throws IllegalArgumentException {
+        if (!(perSecond > 0)) {
+            throw new IllegalArgumentException("perSecond must be positive");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be positive");
+        }
+    }
+
+    private static long tolerance(long interval, int burst) {
+        try {
+            return Math.min(MAX_AHEAD, Math.multiplyExact(interval, burst - 1));
+        } catch (ArithmeticException e) {
+            return MAX_AHEAD;
+        }
+    }
+
+    /**
+     * @return true if a token was taken
+     */
+    boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long tat = theoreticalArrival.get();
+            // nanoTime may wrap, so only ever compare differences
+            long base = tat - now > 0 ? tat : now;
+            if (base - now > tolerance) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, base + interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a token taken by {@link #tryAcquire()} that ended up not being used.
+     */
+    void release() {
+        theoreticalArrival.addAndGet(-interval);
+    }
+}
@@ -0,0 +1,96 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.Level;
+import com.truevault.rollbar.payload.data.body.Body;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescingItemClientTest {
+    private final RecordingItemClient recorder = new RecordingItemClient();
+    private final CoalescingItemClient client = new CoalescingItemClient(recorder, Duration.ofMillis(50));
+
+    @Test
+    public void identicalItemsAreSentOnce() {
+        Exception e = new IllegalStateException("boom");
+        CompletableFuture<RollbarResponse> first = client.send(item(e, 100));
+        CompletableFuture<RollbarResponse> second = client.send(item(e, 101));
+        CompletableFuture<RollbarResponse> third = client.send(item(e, 105));
+
+        assertSame(first, second);
+        assertSame(first, third);
+        first.join();
+
+        assertEquals(1, recorder.items.size());
+        Map<String, Object> custom = recorder.items.get(0).data().custom();
+        assertEquals(3L, custom.get(CoalescingItemClient.OCCURRENCES_KEY));
+        assertEquals(100L, custom.get(CoalescingItemClient.FIRST_OCCURRENCE_KEY));
+        assertEquals(105L, custom.get(CoalescingItemClient.LAST_OCCURRENCE_KEY));
+    }
+
+    @Test
+    public void singleOccurrenceIsSentUnchanged() {
+        client.send(item(new IllegalStateException("boom"), 100)).join();
+
+        assertEquals(1, recorder.items.size());
+        assertNull(recorder.items.get(0).data().custom());
+    }
+
+    @Test
+    public void differentItemsAreSentSeparately() {
+        CompletableFuture<RollbarResponse> first = client.send(item(new IllegalStateException("boom"), 100));
+        CompletableFuture<RollbarResponse> second = client.send(item(new IllegalArgumentException("boom"), 100));
+
+        CompletableFuture.allOf(first, second).join();
+
+        assertEquals(2, recorder.items.size());
+    }
+
+    @Test
+    public void laterItemsOpenANewWindow() {
+        Exception e = new IllegalStateException("boom");
+        client.send(item(e, 100)).join();
+        client.send(item(e, 200)).join();
+
+        assertEquals(2, recorder.items.size());
+    }
+
+    @Test
+    public void flushSendsOpenWindowsRightAway() {
+        CoalescingItemClient slow = new CoalescingItemClient(recorder, Duration.ofMinutes(1));
+        CompletableFuture<RollbarResponse> result = slow.send(item(new IllegalStateException("boom"), 100));
+
+        slow.flush();
+
+        assertTrue(result.isDone());
+        assertEquals(1, recorder.items.size());
+    }
+
+    @Test
+    public void itemsSentAfterCloseAreNotCoalesced() {
+        CoalescingItemClient slow = new CoalescingItemClient(recorder, Duration.ofMinutes(1));
+        slow.close();
+
+        CompletableFuture<RollbarResponse> result = slow.send(item(new IllegalStateException("boom"), 100));
+
+        assertTrue(result.isDone());
+        assertEquals(1, recorder.items.size());
+    }
+
+    private static Item item(Throwable t, long epochSecond) {
+        return new Item("token", new Data.Builder(Body.fromThrowable(t), "test")
+                .level(Level.ERROR)
+                .timestamp(Instant.ofEpochSecond(epochSecond))
+                .build());
+    }
+}
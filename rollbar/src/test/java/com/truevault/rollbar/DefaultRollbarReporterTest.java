@@ -1,18 +1,305 @@
 package com.truevault.rollbar;
 
+import com.truevault.rollbar.http.HttpItemClient;
+import com.truevault.rollbar.http.RollbarResponse;
 import com.truevault.rollbar.http.ahc.AsyncHttpItemClient;
+import com.truevault.rollbar.http.metrics.InMemoryRollbarMetrics;
+import com.truevault.rollbar.http.metrics.RollbarMetrics;
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.Level;
+import com.truevault.rollbar.payload.data.body.FrameCache;
+import com.truevault.rollbar.testkit.Behavior;
+import com.truevault.rollbar.testkit.FakeRollbarServer;
+import com.truevault.rollbar.testkit.Latency;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.DROPPED;
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.FILTERED;
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.OK;
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.RATE_LIMITED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class DefaultRollbarReporterTest {
 
     @Test
     public void itDoesNotThrowANullPointerExceptionWhenLoggingAnException() throws ExecutionException,
             InterruptedException {
-        DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(new AsyncHttpItemClient(), "foo", "e3a49f757f86465097c000cb2de9de08")
+        DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(new AsyncHttpItemClient(), "foo",
+                "e3a49f757f86465097c000cb2de9de08")
                 .build();
         assertNotNull(rollbar.log(new Exception("some exception")).get().getUuid());
     }
+
+    @Test
+    public void rateLimitedReportsAreNotSent() {
+        RecordingItemClient recorder = new RecordingItemClient();
+        DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(recorder, "foo", "token")
+                .rateLimit(Level.DEBUG, 0.001, 1)
+                .build();
+
+        assertEquals(OK, rollbar.debug("first").join().getResponseType());
+        assertEquals(RATE_LIMITED, rollbar.debug("second").join().getResponseType());
+        assertEquals(OK, rollbar.critical("other level").join().getResponseType());
+        assertEquals(2, recorder.items.size());
+    }
+
+    @Test
+    public void builderKeepsRateLimits() {
+        DefaultRollbarReporter.Builder builder = new DefaultRollbarReporter.Builder(new RecordingItemClient(), "foo",
+                "token")
+                .rateLimit(10, 5)
+                .rateLimit(Level.DEBUG, 0.5, 2);
+
+        assertEquals(10, builder.getRateLimitPerSecond(), 0);
+        assertEquals(5, builder.getRateLimitBurst());
+        assertEquals(0.5, builder.getRateLimitPerSecond(Level.DEBUG), 0);
+        assertEquals(2, builder.getRateLimitBurst(Level.DEBUG));
+        assertEquals(0, builder.getRateLimitPerSecond(Level.ERROR), 0);
+        assertEquals(0, builder.getRateLimitBurst(Level.ERROR));
+    }
+
+    @Test
+    public void reportsBelowMinimumLevelAreNotBuilt() {
+        RecordingItemClient recorder = new RecordingItemClient();
+        DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(recorder, "foo", "token")
+                .minimumLevel(Level.WARNING)
+                .initialDataSupplier(() -> {
+                    throw new AssertionError("should not build an item");
+                })
+                .build();
+
+        assertFalse(rollbar.isEnabled(Level.INFO));
+        assertTrue(rollbar.isEnabled(Level.ERROR));
+        assertEquals(FILTERED, rollbar.debug(new Exception()).join().getResponseType());
+        assertEquals(FILTERED, rollbar.info("message").join().getResponseType());
+        assertEquals(0, recorder.items.size());
+
+        rollbar.setMinimumLevel(null);
+        assertTrue(rollbar.isEnabled(Level.DEBUG));
+    }
+
+    @Test
+    public void previewFilterRunsBeforeItemIsBuilt() {
+        RecordingItemClient recorder = new RecordingItemClient();
+        DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(recorder, "foo", "token")
+                .previewFilter(preview -> preview.throwableClass() != IllegalStateException.class)
+                .build();
+
+        assertEquals(FILTERED, rollbar.error(new IllegalStateException()).join().getResponseType());
+        assertEquals(OK, rollbar.error(new IllegalArgumentException()).join().getResponseType());
+        assertEquals(1, recorder.items.size());
+    }
+
+    @Test
+    public void flushWaitsForQueuedReports() {
+        // answers each send a little later, on another thread
+        HttpItemClient slow = item -> CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return RollbarResponse.ok(UUID.randomUUID());
+        });
+        DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(slow, "foo", "token")
+                .dispatchQueue(10, OverflowPolicy.DROP_NEWEST)
+                .build();
+
+        List<CompletableFuture<RollbarResponse>> reports = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            reports.add(rollbar.error("message " + i));
+        }
+        FlushResult result = rollbar.flush(Duration.ofSeconds(5));
+
+        assertEquals(5, result.getSent());
+        assertTrue(result.isComplete());
+        assertTrue(reports.stream().allMatch(CompletableFuture::isDone));
+    }
+
+    @Test
+    public void closeDropsReportsLeftAfterTheDeadline() {
+        StalledItemClient stalled = new StalledItemClient();
+        DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(stalled, "foo", "token")
+                .dispatchQueue(10, OverflowPolicy.DROP_NEWEST)
+                .maxInFlight(1)
+                .build();
+
+        List<CompletableFuture<RollbarResponse>> reports = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            reports.add(rollbar.error("message " + i));
+        }
+        FlushResult result = rollbar.close(Duration.ofMillis(50));
+
+        // one is stuck in the client, and the rest never left the queue
+        assertEquals(1, result.getPending());
+        assertEquals(2, result.getDropped());
+        assertEquals(2, reports.stream().filter(r -> r.getNow(null) != null).count());
+        assertTrue(stalled.closed);
+        assertEquals(DROPPED, rollbar.error("after close").join().getResponseType());
+    }
+
+    @Test
+    public void deferredItemsAreBuiltOnTheDispatchThread() {
+        RecordingItemClient recorder = new RecordingItemClient();
+        List<String> builtOn = new CopyOnWriteArrayList<>();
+        DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(recorder, "foo", "token")
+                .dispatchQueue(10, OverflowPolicy.DROP_NEWEST)
+                .deferItemConstruction(true)
+                .initialDataSupplier(() -> {
+                    builtOn.add(Thread.currentThread().getName());
+                    return new Data.Builder();
+                })
+                .build();
+
+        assertEquals(OK, rollbar.error(new IllegalStateException()).join().getResponseType());
+
+        assertEquals(1, builtOn.size());
+        assertTrue(builtOn.get(0), builtOn.get(0).startsWith("rollbar-dispatch-"));
+        assertEquals(1, recorder.items.size());
+    }
+
+    @Test
+    public void droppedDeferredReportsAreNeverBuilt() throws InterruptedException {
+        AtomicInteger built = new AtomicInteger();
+        CountDownLatch firstBuilt = new CountDownLatch(1);
+        DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(new StalledItemClient(), "foo", "token")
+                .dispatchQueue(1, OverflowPolicy.DROP_NEWEST)
+                .maxInFlight(1)
+                .deferItemConstruction(true)
+                .initialDataSupplier(() -> {
+                    built.incrementAndGet();
+                    firstBuilt.countDown();
+                    return new Data.Builder();
+                })
+                .build();
+
+        // the first is stuck in the client, the second fills the queue and the third overflows it
+        CompletableFuture<RollbarResponse> first = rollbar.error(new IllegalStateException("first"));
+        assertTrue(firstBuilt.await(5, TimeUnit.SECONDS));
+        CompletableFuture<RollbarResponse> second = rollbar.error(new IllegalStateException("second"));
+        CompletableFuture<RollbarResponse> third = rollbar.error(new IllegalStateException("third"));
+
+        assertEquals(DROPPED, third.join().getResponseType());
+        assertFalse(second.isDone());
+        rollbar.close(Duration.ofMillis(50));
+        assertEquals(DROPPED, second.join().getResponseType());
+        assertFalse(first.isDone());
+        assertEquals(1, built.get());
+    }
+
+    @Test
+    public void framesAreCachedPerReporter() {
+        RecordingItemClient recorder = new RecordingItemClient();
+        DefaultRollbarReporter cached = new DefaultRollbarReporter.Builder(recorder, "foo", "token").build();
+        DefaultRollbarReporter uncached = new DefaultRollbarReporter.Builder(recorder, "foo", "token")
+                .frameCacheCapacity(0)
+                .build();
+        FrameCache shared = FrameCache.shared();
+        long sharedLookups = shared.hits() + shared.misses();
+        // the same stack trace every time
+        StackTraceElement[] stackTrace = new Exception().getStackTrace();
+
+        for (DefaultRollbarReporter rollbar : Arrays.asList(cached, cached, uncached, uncached)) {
+            IllegalStateException e = new IllegalStateException();
+            e.setStackTrace(stackTrace);
+            rollbar.error(e).join();
+        }
+
+        FrameCache cache = cached.getFrameCache();
+        assertNotNull(cache);
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertNull(uncached.getFrameCache());
+        assertEquals(sharedLookups, shared.hits() + shared.misses());
+        assertEquals(recorder.items.get(0).data().body().trace().frames(),
+                recorder.items.get(3).data().body().trace().frames());
+    }
+
+    @Test
+    public void metricsCountEachStage() {
+        RecordingItemClient recorder = new RecordingItemClient();
+        InMemoryRollbarMetrics metrics = new InMemoryRollbarMetrics();
+        DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(recorder, "foo", "token")
+                .minimumLevel(Level.INFO)
+                .rateLimit(Level.WARNING, 0.001, 1)
+                .metrics(metrics)
+                .build();
+
+        rollbar.error(new IllegalStateException()).join();
+        rollbar.warning("first").join();
+        rollbar.warning("second").join();
+        rollbar.debug("too low").join();
+
+        assertEquals(2, metrics.getCount(RollbarMetrics.Stage.BUILT));
+        assertEquals(1, metrics.getCount(RollbarMetrics.Stage.SENT, Level.ERROR));
+        assertEquals(1, metrics.getCount(RollbarMetrics.Stage.SENT, Level.WARNING));
+        assertEquals(1, metrics.getCount(RollbarMetrics.Stage.DROPPED, Level.WARNING));
+        assertEquals(1, metrics.getCount(RollbarMetrics.Stage.FILTERED, Level.DEBUG));
+        assertEquals(4, metrics.getCallerNanos().getCount());
+        assertEquals(2, metrics.getResponseNanos().getCount());
+    }
+
+    @Test
+    public void reportsCompleteOnTheClientsCompletionExecutor() throws IOException, ExecutionException,
+            InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "completion"));
+        InMemoryRollbarMetrics metrics = new InMemoryRollbarMetrics();
+        try (FakeRollbarServer server = FakeRollbarServer.start(
+                new Behavior.Builder().latency(Latency.fixed(Duration.ofMillis(50))).build())) {
+            AsyncHttpItemClient client = new AsyncHttpItemClient.Builder()
+                    .url(server.url())
+                    .metrics(metrics)
+                    .completionExecutor(executor)
+                    .build();
+            DefaultRollbarReporter rollbar = new DefaultRollbarReporter.Builder(client, "foo", "token").build();
+
+            String thread = rollbar.error(new IllegalStateException())
+                    .thenApply(r -> Thread.currentThread().getName())
+                    .get();
+            rollbar.close(Duration.ofSeconds(1));
+
+            assertEquals("completion", thread);
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+            assertEquals(1, metrics.getExecutorCompletionNanos().getCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Never completes a send.
+     */
+    private static class StalledItemClient implements HttpItemClient {
+        volatile boolean closed;
+
+        @Override
+        public CompletableFuture<RollbarResponse> send(Item item) {
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
 }
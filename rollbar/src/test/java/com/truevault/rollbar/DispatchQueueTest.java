@@ -0,0 +1,122 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.data.Level;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.DROPPED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DispatchQueueTest {
+
+    @Test
+    public void takesHighestLevelFirst() throws InterruptedException {
+        DispatchQueue queue = new DispatchQueue(10, OverflowPolicy.DROP_NEWEST, 0);
+        DispatchQueue.Entry debug = entry(Level.DEBUG);
+        DispatchQueue.Entry critical = entry(Level.CRITICAL);
+        DispatchQueue.Entry error = entry(Level.ERROR);
+
+        queue.offer(debug);
+        queue.offer(critical);
+        queue.offer(error);
+
+        assertSame(critical, queue.take());
+        assertSame(error, queue.take());
+        assertSame(debug, queue.take());
+        assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void dropNewestRejectsIncoming() throws InterruptedException {
+        DispatchQueue queue = new DispatchQueue(1, OverflowPolicy.DROP_NEWEST, 0);
+        DispatchQueue.Entry first = entry(Level.DEBUG);
+        DispatchQueue.Entry second = entry(Level.CRITICAL);
+
+        assertTrue(queue.offer(first));
+        assertFalse(queue.offer(second));
+
+        assertDropped(second);
+        assertSame(first, queue.take());
+    }
+
+    @Test
+    public void dropOldestEvictsAcrossLevels() throws InterruptedException {
+        DispatchQueue queue = new DispatchQueue(2, OverflowPolicy.DROP_OLDEST, 0);
+        DispatchQueue.Entry first = entry(Level.CRITICAL);
+        DispatchQueue.Entry second = entry(Level.DEBUG);
+        DispatchQueue.Entry third = entry(Level.INFO);
+
+        queue.offer(first);
+        queue.offer(second);
+        assertTrue(queue.offer(third));
+
+        assertDropped(first);
+        assertSame(third, queue.take());
+        assertSame(second, queue.take());
+    }
+
+    @Test
+    public void dropLowestLevelEvictsLowerLevels() throws InterruptedException {
+        DispatchQueue queue = new DispatchQueue(2, OverflowPolicy.DROP_LOWEST_LEVEL, 0);
+        DispatchQueue.Entry error = entry(Level.ERROR);
+        DispatchQueue.Entry debug = entry(Level.DEBUG);
+        DispatchQueue.Entry critical = entry(Level.CRITICAL);
+        DispatchQueue.Entry anotherDebug = entry(Level.DEBUG);
+
+        queue.offer(error);
+        queue.offer(debug);
+        assertTrue(queue.offer(critical));
+        assertDropped(debug);
+
+        // nothing lower than DEBUG is queued, so the incoming report goes
+        assertFalse(queue.offer(anotherDebug));
+        assertDropped(anotherDebug);
+
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void blockGivesUpAfterTimeout() throws InterruptedException {
+        DispatchQueue queue = new DispatchQueue(1, OverflowPolicy.BLOCK, TimeUnit.MILLISECONDS.toNanos(10));
+        queue.offer(entry(Level.ERROR));
+
+        DispatchQueue.Entry blocked = entry(Level.ERROR);
+        assertFalse(queue.offer(blocked));
+        assertDropped(blocked);
+    }
+
+    @Test
+    public void blockWaitsForRoom() throws InterruptedException {
+        DispatchQueue queue = new DispatchQueue(1, OverflowPolicy.BLOCK, TimeUnit.SECONDS.toNanos(10));
+        DispatchQueue.Entry first = entry(Level.ERROR);
+        queue.offer(first);
+
+        Thread taker = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+                queue.take();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        taker.start();
+
+        assertTrue(queue.offer(entry(Level.ERROR)));
+        taker.join();
+    }
+
+    private static DispatchQueue.Entry entry(Level level) {
+        return new DispatchQueue.Entry(level, () -> CompletableFuture.completedFuture(RollbarResponse.filtered()));
+    }
+
+    private static void assertDropped(DispatchQueue.Entry entry) {
+        assertTrue(entry.result.isDone());
+        assertEquals(DROPPED, entry.result.join().getResponseType());
+    }
+}
@@ -0,0 +1,63 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.data.Level;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DispatcherTest {
+
+    @Test
+    public void errorsFailTheReportAndFreeThePermit() throws Exception {
+        // one permit and one thread, so the second report only runs if both survive the first
+        Dispatcher dispatcher = new Dispatcher(new DispatchQueue(10, OverflowPolicy.DROP_NEWEST, 0), 1, 1);
+        try {
+            CompletableFuture<RollbarResponse> failed = dispatcher.submit(Level.ERROR, () -> {
+                throw new StackOverflowError();
+            });
+            assertTrue(cause(failed) instanceof StackOverflowError);
+
+            assertEquals(OK, dispatcher.submit(Level.ERROR, DispatcherTest::ok).get(5, TimeUnit.SECONDS)
+                    .getResponseType());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void tasksWithoutAResponseFailTheReportAndFreeThePermit() throws Exception {
+        Dispatcher dispatcher = new Dispatcher(new DispatchQueue(10, OverflowPolicy.DROP_NEWEST, 0), 1, 1);
+        try {
+            assertTrue(cause(dispatcher.submit(Level.ERROR, () -> null)) instanceof IllegalStateException);
+
+            assertEquals(OK, dispatcher.submit(Level.ERROR, DispatcherTest::ok).get(5, TimeUnit.SECONDS)
+                    .getResponseType());
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    private static CompletableFuture<RollbarResponse> ok() {
+        return CompletableFuture.completedFuture(RollbarResponse.ok(UUID.randomUUID()));
+    }
+
+    private static Throwable cause(CompletableFuture<RollbarResponse> report) throws InterruptedException,
+            TimeoutException {
+        try {
+            report.get(5, TimeUnit.SECONDS);
+            fail();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.Level;
+import com.truevault.rollbar.payload.data.body.Body;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class FingerprintsTest {
+
+    @Test
+    public void previewMatchesBuiltTrace() {
+        Exception e = new IllegalStateException("boom");
+
+        assertEquals(Fingerprints.of(item(Body.fromThrowable(e), Level.ERROR), 5),
+                Fingerprints.of(Level.ERROR, e, null, 5));
+    }
+
+    @Test
+    public void previewMatchesBuiltTraceChain() {
+        Exception e = new IllegalStateException("outer", new IllegalArgumentException("inner"));
+
+        assertEquals(Fingerprints.of(item(Body.fromThrowable(e, "desc"), Level.WARNING), 3),
+                Fingerprints.of(Level.WARNING, e, "desc", 3));
+    }
+
+    @Test
+    public void previewMatchesBuiltMessage() {
+        assertEquals(Fingerprints.of(item(Body.fromString("hello"), Level.INFO), 5),
+                Fingerprints.of(Level.INFO, null, "hello", 5));
+    }
+
+    @Test
+    public void levelIsPartOfTheFingerprint() {
+        Exception e = new IllegalStateException("boom");
+
+        assertNotEquals(Fingerprints.of(Level.ERROR, e, null, 5), Fingerprints.of(Level.DEBUG, e, null, 5));
+    }
+
+    @Test
+    public void explicitFingerprintWins() {
+        Data data = new Data.Builder(Body.fromString("hello"), "test").fingerprint("mine").build();
+
+        assertEquals("mine", Fingerprints.of(new Item("token", data), 5));
+    }
+
+    private static Item item(Body body, Level level) {
+        return new Item("token", new Data.Builder(body, "test").level(level).build());
+    }
+}
@@ -0,0 +1,68 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.payload.data.Level;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+
+    @Test
+    public void bucketAllowsBurstThenRejects() {
+        TokenBucket bucket = new TokenBucket(0.001, 3);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void bucketRefills() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, 1);
+
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        Thread.sleep(20);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void hugeBurstsDontOverflow() {
+        // the tolerance, 5s * (burst - 1), doesn't fit in a long
+        TokenBucket bucket = new TokenBucket(0.2, Integer.MAX_VALUE);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+    }
+
+    @Test
+    public void levelsHaveSeparateBudgets() {
+        TokenBucket[] byLevel = new TokenBucket[Level.values().length];
+        byLevel[Level.DEBUG.ordinal()] = new TokenBucket(0.001, 1);
+        byLevel[Level.CRITICAL.ordinal()] = new TokenBucket(0.001, 1);
+        RateLimiter limiter = new RateLimiter(null, byLevel);
+
+        assertTrue(limiter.tryAcquire(Level.DEBUG));
+        assertFalse(limiter.tryAcquire(Level.DEBUG));
+        assertTrue(limiter.tryAcquire(Level.CRITICAL));
+        // no limit for this level
+        assertTrue(limiter.tryAcquire(Level.INFO));
+    }
+
+    @Test
+    public void globalRejectionRefundsLevel() {
+        TokenBucket[] byLevel = new TokenBucket[Level.values().length];
+        byLevel[Level.ERROR.ordinal()] = new TokenBucket(0.001, 1);
+        TokenBucket global = new TokenBucket(0.001, 1);
+        RateLimiter limiter = new RateLimiter(global, byLevel);
+
+        // uses up the global budget
+        assertTrue(limiter.tryAcquire(Level.WARNING));
+        // rejected globally, so ERROR's token is handed back
+        assertFalse(limiter.tryAcquire(Level.ERROR));
+        assertTrue(byLevel[Level.ERROR.ordinal()].tryAcquire());
+    }
+}
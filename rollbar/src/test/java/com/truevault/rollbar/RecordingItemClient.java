@@ -0,0 +1,22 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.http.HttpItemClient;
+import com.truevault.rollbar.http.RollbarResponse;
+import com.truevault.rollbar.payload.Item;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the items it is asked to send and answers each with a successful response.
+ */
+class RecordingItemClient implements HttpItemClient {
+    final List<Item> items = new CopyOnWriteArrayList<>();
+
+    @Override
+    public CompletableFuture<RollbarResponse> send(Item item) {
+        items.add(item);
+        return CompletableFuture.completedFuture(RollbarResponse.ok(UUID.randomUUID()));
+    }
+}
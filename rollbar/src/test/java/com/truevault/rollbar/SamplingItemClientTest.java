@@ -0,0 +1,90 @@
+package com.truevault.rollbar;
+
+import com.truevault.rollbar.payload.Item;
+import com.truevault.rollbar.payload.data.Data;
+import com.truevault.rollbar.payload.data.body.Body;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static com.truevault.rollbar.http.RollbarResponse.ResponseType.FILTERED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SamplingItemClientTest {
+    private final RecordingItemClient recorder = new RecordingItemClient();
+
+    @Test
+    public void sendsAtPowersOfBase() {
+        SamplingItemClient client = new SamplingItemClient(recorder, Duration.ofHours(1));
+        Item item = item("same every time");
+
+        for (int i = 1; i <= 1000; i++) {
+            client.send(item).join();
+        }
+
+        assertEquals(4, recorder.items.size());
+        assertNull(recorder.items.get(0).data().custom());
+        assertCounts(recorder.items.get(1), 9, 10);
+        assertCounts(recorder.items.get(2), 90, 100);
+        assertCounts(recorder.items.get(3), 900, 1000);
+    }
+
+    @Test
+    public void skippedOccurrencesAreFiltered() {
+        SamplingItemClient client = new SamplingItemClient(recorder, Duration.ofHours(1));
+        Item item = item("same every time");
+
+        client.send(item).join();
+        assertEquals(FILTERED, client.send(item).join().getResponseType());
+    }
+
+    @Test
+    public void countStartsOverAfterQuietPeriod() throws InterruptedException {
+        SamplingItemClient client = new SamplingItemClient(recorder, Duration.ofMillis(10));
+        Item item = item("same every time");
+
+        client.send(item).join();
+        client.send(item).join();
+        Thread.sleep(20);
+        client.send(item).join();
+
+        assertEquals(2, recorder.items.size());
+    }
+
+    @Test
+    public void fingerprintsAreCountedSeparately() {
+        SamplingItemClient client = new SamplingItemClient(recorder, Duration.ofHours(1));
+
+        client.send(item("one")).join();
+        client.send(item("two")).join();
+
+        assertEquals(2, recorder.items.size());
+    }
+
+    @Test
+    public void keepsCoalescedCounts() {
+        SamplingItemClient client = new SamplingItemClient(recorder, Duration.ofHours(1));
+        Map<String, Object> custom = new HashMap<>();
+        custom.put(CoalescingItemClient.OCCURRENCES_KEY, 5L);
+        Item item = new Item("token", new Data.Builder(Body.fromString("coalesced"), "test").custom(custom).build());
+
+        for (int i = 1; i <= 10; i++) {
+            client.send(item).join();
+        }
+
+        assertCounts(recorder.items.get(1), 9, 10);
+        assertEquals(5L, recorder.items.get(1).data().custom().get(CoalescingItemClient.OCCURRENCES_KEY));
+    }
+
+    private static void assertCounts(Item item, long occurrences, long total) {
+        Map<String, Object> custom = item.data().custom();
+        assertEquals(occurrences, custom.get(SamplingItemClient.SAMPLE_WEIGHT_KEY));
+        assertEquals(total, custom.get(SamplingItemClient.TOTAL_OCCURRENCES_KEY));
+    }
+
+    private static Item item(String message) {
+        return new Item("token", new Data.Builder(Body.fromString(message), "test").build());
+    }
+}